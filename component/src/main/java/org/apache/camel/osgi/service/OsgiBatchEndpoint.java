@@ -0,0 +1,70 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.camel.osgi.service;
+
+import org.apache.camel.Component;
+import org.apache.camel.Consumer;
+import org.apache.camel.Processor;
+import org.apache.camel.Producer;
+
+/**
+ * The {@code OsgiBatchEndpoint} is the endpoint that creates {@link OsgiBatchProducer} in order to send exchanges to
+ * OSGi consumers in batches.
+ */
+public class OsgiBatchEndpoint extends OsgiDefaultEndpoint {
+
+    private int batchSize = 100;
+    private long batchTimeout = 1000L;
+
+    public OsgiBatchEndpoint(String endpointUri, Component component) {
+        super(endpointUri, component);
+    }
+
+    @Override
+    public Consumer createConsumer(Processor processor) throws Exception {
+        throw new UnsupportedOperationException(String.format("[%s] does not support consumers. Use [%s] instead.",
+            getClass().getName(), getClass().getSuperclass().getName()));
+    }
+
+    @Override
+    public Producer createProducer() throws Exception {
+        if (getBatchSize() <= 0) {
+            throw new IllegalArgumentException(
+                String.format("[batchSize] parameter must be positive for [%s]: [%s]", this, getBatchSize()));
+        }
+        if (getBatchTimeout() <= 0) {
+            // otherwise the exchanges of a batch which never becomes full are never sent
+            throw new IllegalArgumentException(
+                String.format("[batchTimeout] parameter must be positive for [%s]: [%s]", this, getBatchTimeout()));
+        }
+        return new OsgiBatchProducer(this, getProps(), getBatchSize(), getBatchTimeout());
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public long getBatchTimeout() {
+        return batchTimeout;
+    }
+
+    public void setBatchTimeout(long batchTimeout) {
+        this.batchTimeout = batchTimeout;
+    }
+}
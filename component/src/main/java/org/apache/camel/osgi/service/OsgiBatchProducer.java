@@ -0,0 +1,251 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.camel.osgi.service;
+
+import org.apache.camel.AsyncCallback;
+import org.apache.camel.Exchange;
+import org.apache.camel.ExchangePattern;
+import org.apache.camel.impl.DefaultExchange;
+import org.apache.camel.impl.LoggingExceptionHandler;
+import org.apache.camel.spi.ExceptionHandler;
+import org.apache.camel.util.AsyncProcessorHelper;
+import org.apache.camel.util.ExchangeHelper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code OsgiBatchProducer} is the producer that collects exchanges into batches and sends every batch to the OSGi
+ * consumer in a single call.
+ * <p/>
+ * A batch is sent as soon as it contains {@link #getBatchSize() batchSize} exchanges or {@link #getBatchTimeout()
+ * batchTimeout} milliseconds have elapsed since the first exchange of the batch has been received. The batch is sent
+ * as an exchange which body is the list of the collected exchanges and which is marked by the
+ * {@link OsgiComponent#BATCH_PROP} property, so that {@link OsgiDefaultConsumer} processes every exchange of the
+ * batch separately.
+ * <p/>
+ * Producers of the exchanges that expect a reply are notified when the whole batch is processed, all the other
+ * producers continue immediately after the exchange is added to the batch.
+ */
+public class OsgiBatchProducer extends OsgiDefaultProducer {
+
+    private final int batchSize;
+    private final long batchTimeout;
+
+    private final ExceptionHandler exceptionHandler = new LoggingExceptionHandler(getClass());
+
+    private final Object lock = new Object();
+    private final Object sendLock = new Object();
+    private List<Exchange> exchanges = new ArrayList<Exchange>();
+    private List<AsyncCallback> callbacks = new ArrayList<AsyncCallback>();
+    private ScheduledFuture<?> timeoutTask;
+
+    private ScheduledExecutorService scheduler;
+
+    public OsgiBatchProducer(OsgiDefaultEndpoint endpoint, Map<String, Object> props, int batchSize,
+            long batchTimeout) {
+        super(endpoint, props);
+        this.batchSize = batchSize;
+        this.batchTimeout = batchTimeout;
+    }
+
+    @Override
+    public void process(Exchange exchange) throws Exception {
+        AsyncProcessorHelper.process(this, exchange);
+    }
+
+    @Override
+    public boolean process(Exchange exchange, AsyncCallback callback) {
+        boolean replyExpected = exchange.getPattern().isOutCapable();
+
+        boolean full;
+        synchronized (lock) {
+            // the exchanges that do not expect a reply are completed immediately, so they are sent as detached copies
+            exchanges.add(replyExpected
+                ? exchange
+                : ExchangeHelper.copyExchangeAndSetCamelContext(exchange, exchange.getContext(), false));
+            callbacks.add(replyExpected ? callback : null);
+
+            full = exchanges.size() >= batchSize;
+            if (!full && exchanges.size() == 1) {
+                scheduleFlush();
+            }
+        }
+
+        if (full) {
+            flush(true);
+        }
+
+        if (!replyExpected) {
+            callback.done(true);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Sends the exchanges collected so far if any.
+     */
+    public void flush() {
+        flush(false);
+    }
+
+    /**
+     * Sends the collected exchanges in batches of at most {@link #getBatchSize() batchSize} exchanges. The batches are
+     * taken and sent under the same lock, so that they are sent in the order the exchanges have been collected in
+     * whether they are sent because of the size or because of the timeout.
+     *
+     * @param full {@code true} to send only full batches, {@code false} to send all the collected exchanges
+     */
+    private void flush(boolean full) {
+        synchronized (sendLock) {
+            while (true) {
+                Batch batch;
+                synchronized (lock) {
+                    if (exchanges.isEmpty() || full && exchanges.size() < batchSize) {
+                        return;
+                    }
+                    batch = takeBatch();
+                }
+                send(batch);
+            }
+        }
+    }
+
+    private Batch takeBatch() {
+        Batch batch;
+        if (exchanges.size() <= batchSize) {
+            batch = new Batch(exchanges, callbacks);
+            exchanges = new ArrayList<Exchange>(batchSize);
+            callbacks = new ArrayList<AsyncCallback>(batchSize);
+        } else {
+            // the exchanges collected while the previous batch was being sent remain for the next batch
+            batch = new Batch(new ArrayList<Exchange>(exchanges.subList(0, batchSize)),
+                new ArrayList<AsyncCallback>(callbacks.subList(0, batchSize)));
+            exchanges.subList(0, batchSize).clear();
+            callbacks.subList(0, batchSize).clear();
+        }
+        if (timeoutTask != null) {
+            timeoutTask.cancel(false);
+            timeoutTask = null;
+        }
+        if (!exchanges.isEmpty()) {
+            scheduleFlush();
+        }
+        return batch;
+    }
+
+    private void scheduleFlush() {
+        timeoutTask = scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                flush();
+            }
+        }, batchTimeout, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sends the batch to the OSGi consumer as a single exchange and completes the collected exchanges when the batch
+     * is processed.
+     *
+     * @param batch the batch to send
+     */
+    protected void send(final Batch batch) {
+        final Exchange exchange = new DefaultExchange(getEndpoint().getCamelContext(),
+            batch.isReplyExpected() ? ExchangePattern.InOut : ExchangePattern.InOnly);
+        exchange.setProperty(OsgiComponent.BATCH_PROP, Boolean.TRUE);
+        exchange.getIn().setBody(batch.exchanges);
+
+        resumeEjectedServices();
+        AsyncProcessorHelper.process(asyncProcessor, exchange, new AsyncCallback() {
+            @Override
+            public void done(boolean doneSync) {
+                Exception e = exchange.getException();
+                for (int i = 0; i < batch.exchanges.size(); i++) {
+                    Exchange item = batch.exchanges.get(i);
+                    if (e != null && item.getException() == null) {
+                        item.setException(e);
+                    }
+
+                    AsyncCallback callback = batch.callbacks.get(i);
+                    if (callback != null) {
+                        callback.done(false);
+                    } else if (item.getException() != null) {
+                        exceptionHandler.handleException(
+                            "Error processing batched exchange", item, item.getException());
+                    }
+                }
+            }
+        });
+    }
+
+    @Override
+    protected void doStart() throws Exception {
+        super.doStart();
+        if (scheduler == null) {
+            scheduler = getEndpoint().getCamelContext().getExecutorServiceManager()
+                .newSingleThreadScheduledExecutor(this, getEndpoint().getEndpointUri() + "(batch)");
+        }
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        flush();
+        super.doStop();
+    }
+
+    @Override
+    protected void doShutdown() throws Exception {
+        if (scheduler != null) {
+            getEndpoint().getCamelContext().getExecutorServiceManager().shutdownNow(scheduler);
+            scheduler = null;
+        }
+        super.doShutdown();
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public long getBatchTimeout() {
+        return batchTimeout;
+    }
+
+    /**
+     * The collected exchanges together with the callbacks of their producers.
+     */
+    protected static final class Batch {
+        private final List<Exchange> exchanges;
+        private final List<AsyncCallback> callbacks;
+
+        private Batch(List<Exchange> exchanges, List<AsyncCallback> callbacks) {
+            this.exchanges = exchanges;
+            this.callbacks = callbacks;
+        }
+
+        private boolean isReplyExpected() {
+            for (AsyncCallback callback : callbacks) {
+                if (callback != null) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -14,10 +14,13 @@
 
 package org.apache.camel.osgi.service;
 
+import org.apache.camel.AsyncProcessor;
 import org.apache.camel.Endpoint;
 import org.apache.camel.Processor;
 import org.apache.camel.TypeConverter;
 import org.apache.camel.impl.DefaultComponent;
+import org.apache.camel.osgi.service.util.OsgiDefaultProxyCreator;
+import org.apache.camel.osgi.service.util.OsgiProxyCreator;
 import org.osgi.framework.Constants;
 
 import java.util.HashMap;
@@ -40,17 +43,47 @@ public class OsgiComponent extends DefaultComponent {
      */
     protected static final String SERVICE_NAME_PROP = "camelOsgiEndpointName";
 
+    /**
+     * Exchange property that marks the exchange sent by {@link OsgiBatchProducer}, which body is the list of the
+     * batched exchanges.
+     */
+    protected static final String BATCH_PROP = "CamelOsgiBatch";
+
     /**
      * The value of the {@link Constants#OBJECTCLASS} property of the exposed into the OSGi registry camel processor.
      */
     protected static final String OBJECT_CLASS = Processor.class.getName();
 
+    /**
+     * The interfaces the camel processor is exposed into the OSGi registry under. The processor is exposed as
+     * {@link AsyncProcessor} too, so that producers are able to send exchanges to it asynchronously.
+     */
+    protected static final String[] OBJECT_CLASSES = {OBJECT_CLASS, AsyncProcessor.class.getName()};
+
+    private OsgiProxyCreator proxyCreator;
+
+    /**
+     * The proxy creators shared by the endpoints which do not specify their own one, so that they share the cached
+     * proxy classes.
+     */
+    private final OsgiDefaultProxyCreator defaultProxyCreator = new OsgiDefaultProxyCreator(false);
+    private final OsgiDefaultProxyCreator leasingProxyCreator = new OsgiDefaultProxyCreator(true);
+
     @Override
     protected Endpoint createEndpoint(String uri, String path, Map<String, Object> params) throws Exception {
         OsgiEndpointType endpointType = OsgiEndpointType.fromPath(path);
         OsgiDefaultEndpoint endpoint = endpointType.createEndpoint(uri, this);
 
         setProperties(endpoint, params);
+        if (endpoint.getProxyCreator() == null) {
+            endpoint.setProxyCreator(getProxyCreator());
+        }
+        if (endpoint.getProxyCreator() != null && endpoint.isLeaseServices()) {
+            // the proxy creators are configured by the user, so the endpoint cannot make them lease services
+            throw new IllegalArgumentException(String.format(
+                "[leaseServices] parameter cannot be applied to the explicitly specified proxy creator for [%s]. "
+                    + "Configure the proxy creator to lease services instead.", uri));
+        }
 
         // properties that cannot be set on endpoint are exposed as properties of a published OSGi service
         Map<String, Object> props = new HashMap<String, Object>();
@@ -107,6 +140,32 @@ public class OsgiComponent extends DefaultComponent {
         return answer != null ? answer : value;
     }
     
+    /**
+     * Returns the {@link OsgiProxyCreator} to be used by the endpoints of this component which do not specify their
+     * own one.
+     *
+     * @return proxy creator or {@code null} if the endpoints must use the default one
+     */
+    public OsgiProxyCreator getProxyCreator() {
+        return proxyCreator;
+    }
+
+    public void setProxyCreator(OsgiProxyCreator proxyCreator) {
+        this.proxyCreator = proxyCreator;
+    }
+
+    /**
+     * Returns the {@link OsgiDefaultProxyCreator} shared by the producers of the endpoints of this component which do
+     * not specify their own proxy creator.
+     *
+     * @param lease {@code true} if the proxies must lease OSGi services
+     *
+     * @return the shared proxy creator
+     */
+    public OsgiDefaultProxyCreator getDefaultProxyCreator(boolean lease) {
+        return lease ? leasingProxyCreator : defaultProxyCreator;
+    }
+
     @Override
     protected boolean useIntrospectionOnEndpoint() {
         return false;
@@ -14,55 +14,124 @@
 
 package org.apache.camel.osgi.service;
 
+import org.apache.camel.AsyncCallback;
+import org.apache.camel.AsyncProcessor;
+import org.apache.camel.CamelContext;
 import org.apache.camel.Consumer;
 import org.apache.camel.Exchange;
+import org.apache.camel.ExchangePattern;
+import org.apache.camel.Message;
 import org.apache.camel.Processor;
 import org.apache.camel.SuspendableService;
+import org.apache.camel.impl.DefaultExchange;
+import org.apache.camel.impl.DefaultMessage;
+import org.apache.camel.impl.LoggingExceptionHandler;
+import org.apache.camel.osgi.service.util.OsgiCopyOnWriteMap;
+import org.apache.camel.spi.ExceptionHandler;
+import org.apache.camel.spi.ShutdownStrategy;
 import org.apache.camel.support.ServiceSupport;
+import org.apache.camel.util.AsyncProcessorConverterHelper;
+import org.apache.camel.util.AsyncProcessorHelper;
+import org.apache.camel.util.CaseInsensitiveMap;
 import org.apache.camel.util.ExchangeHelper;
 import org.apache.camel.util.ServiceHelper;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.ServiceRegistration;
 
 import java.util.Hashtable;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * The {@code OsgiDefaultConsumer} is the default consumer for the camel OSGi component.
  * <p/>
  * It's responsible for publishing an appropriate OSGi service that will be available for different types of OSGi
  * producers.
+ * <p/>
+ * The service is published as {@link AsyncProcessor}, so that producers are able to send exchanges to it without
+ * blocking the caller thread until the consumer route completes.
+ * <p/>
+ * If the endpoint is configured with the positive {@link OsgiDefaultEndpoint#getQueueSize() queue size} then incoming
+ * exchanges are put into the bounded queue and processed by the pool of
+ * {@link OsgiDefaultEndpoint#getConcurrentConsumers() concurrent consumers}, so that producers are decoupled from the
+ * latency of the consumer route. Producers of the exchanges that expect a reply are notified when the reply is ready,
+ * all the other producers continue immediately after the exchange is queued.
  *
  * @see OsgiDefaultProducer
  * @see OsgiRandomProducer
  * @see OsgiRoundRobinProducer
  * @see OsgiMulticastProducer
  */
-public class OsgiDefaultConsumer extends ServiceSupport implements Consumer, SuspendableService, Processor {
+public class OsgiDefaultConsumer extends ServiceSupport implements Consumer, SuspendableService, AsyncProcessor {
 
     private ServiceRegistration registration;
     private OsgiDefaultEndpoint endpoint;
     private Map<String, Object> props;
     private Processor processor;
+    private AsyncProcessor asyncProcessor;
+    private final ExceptionHandler exceptionHandler = new LoggingExceptionHandler(getClass());
+
+    private volatile ExecutorService executor;
+    private volatile Semaphore queuePermits;
 
     public OsgiDefaultConsumer(OsgiDefaultEndpoint endpoint, Processor processor, Map<String, Object> props) {
         this.endpoint = endpoint;
         this.props = props;
         this.processor = processor;
+        this.asyncProcessor = AsyncProcessorConverterHelper.convert(processor);
     }
 
     @Override
     protected void doStart() throws Exception {
         ServiceHelper.startServices(processor);
+        if (endpoint.getQueueSize() > 0) {
+            queuePermits = new Semaphore(endpoint.getQueueSize());
+            executor = endpoint.getCamelContext().getExecutorServiceManager().newFixedThreadPool(
+                this, endpoint.getEndpointUri(), endpoint.getConcurrentConsumers());
+        }
         register();
     }
 
     @Override
     protected void doStop() throws Exception {
         unregister();
+        if (executor != null) {
+            shutdownExecutor(executor);
+            executor = null;
+        }
         ServiceHelper.stopServices(processor);
     }
 
+    /**
+     * Stops the pool of concurrent consumers while the consumer route is still running, so that the queued exchanges
+     * are processed before it stops. If the queue is not drained within the
+     * {@link org.apache.camel.spi.ShutdownStrategy#getTimeout() shutdown timeout} of the {@code CamelContext}, the
+     * exchanges left in the queue are completed with {@link RejectedExecutionException}.
+     *
+     * @param executor the pool of concurrent consumers to stop
+     *
+     * @throws InterruptedException if the current thread is interrupted while waiting for the queue to be drained
+     */
+    protected void shutdownExecutor(ExecutorService executor) throws InterruptedException {
+        CamelContext camelContext = endpoint.getCamelContext();
+        camelContext.getExecutorServiceManager().shutdown(executor);
+
+        ShutdownStrategy shutdownStrategy = camelContext.getShutdownStrategy();
+        if (!executor.awaitTermination(shutdownStrategy.getTimeout(), shutdownStrategy.getTimeUnit())) {
+            for (Runnable task : executor.shutdownNow()) {
+                if (task instanceof QueuedExchange) {
+                    ((QueuedExchange) task).reject();
+                }
+            }
+        }
+    }
+
     @Override
     protected void doResume() throws Exception {
         register();
@@ -85,7 +154,7 @@ public class OsgiDefaultConsumer extends ServiceSupport implements Consumer, Sus
     protected void register() {
         if(this.registration == null) {
             this.registration = getApplicationBundleContext().registerService(
-                OsgiComponent.OBJECT_CLASS, this, new Hashtable<String, Object>(props));
+                OsgiComponent.OBJECT_CLASSES, this, new Hashtable<String, Object>(props));
         }
     }
 
@@ -98,11 +167,221 @@ public class OsgiDefaultConsumer extends ServiceSupport implements Consumer, Sus
 
     @Override
     public void process(final Exchange exchange) throws Exception {
-        Exchange copy = copyExchange(exchange);
+        if (executor != null || isBatch(exchange)) {
+            AsyncProcessorHelper.process(this, exchange);
+            return;
+        }
+
+        Exchange copy = prepareExchange(exchange);
         try {
             processor.process(copy);
         } finally {
-            ExchangeHelper.copyResults(exchange, copy);
+            copyResults(exchange, copy);
+        }
+    }
+
+    @Override
+    public boolean process(final Exchange exchange, final AsyncCallback callback) {
+        if (isBatch(exchange)) {
+            return processBatch(exchange, callback);
+        }
+        if (executor != null) {
+            return processQueued(exchange, callback);
+        }
+        return processDirect(exchange, callback);
+    }
+
+    /**
+     * Processes every exchange of the batch sent by {@link OsgiBatchProducer} as if it has been sent separately. The
+     * callback is notified when all the exchanges of the batch are processed.
+     *
+     * @param exchange the batch exchange which body is the list of the batched exchanges
+     * @param callback the callback to notify when the processing completes
+     *
+     * @return {@code true} if the whole batch has been processed synchronously, {@code false} otherwise
+     */
+    protected boolean processBatch(Exchange exchange, final AsyncCallback callback) {
+        @SuppressWarnings("unchecked")
+        List<Exchange> exchanges = exchange.getIn().getBody(List.class);
+
+        final AtomicInteger pending = new AtomicInteger(exchanges.size() + 1);
+        final AtomicBoolean sync = new AtomicBoolean(true);
+        AsyncCallback itemCallback = new AsyncCallback() {
+            @Override
+            public void done(boolean doneSync) {
+                if (!doneSync) {
+                    sync.set(false);
+                }
+                if (pending.decrementAndGet() == 0) {
+                    callback.done(false);
+                }
+            }
+        };
+
+        for (Exchange item : exchanges) {
+            process(item, itemCallback);
+        }
+
+        // the last item can be completed either in this thread or asynchronously
+        if (pending.decrementAndGet() == 0) {
+            boolean doneSync = sync.get();
+            callback.done(doneSync);
+            return doneSync;
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether the exchange is the batch sent by {@link OsgiBatchProducer}.
+     *
+     * @param exchange the exchange to check
+     *
+     * @return {@code true} if the exchange is the batch, {@code false} otherwise
+     */
+    protected boolean isBatch(Exchange exchange) {
+        return Boolean.TRUE.equals(exchange.getProperty(OsgiComponent.BATCH_PROP))
+            && exchange.getIn().getBody() instanceof List;
+    }
+
+    /**
+     * Processes the exchange in the thread of the producer.
+     *
+     * @param exchange the exchange to process
+     * @param callback the callback to notify when the processing completes
+     *
+     * @return {@code true} if the exchange has been processed synchronously, {@code false} otherwise
+     */
+    protected boolean processDirect(final Exchange exchange, final AsyncCallback callback) {
+        final Exchange copy;
+        try {
+            copy = prepareExchange(exchange);
+        } catch (Throwable e) {
+            exchange.setException(e);
+            callback.done(true);
+            return true;
+        }
+        return AsyncProcessorHelper.process(asyncProcessor, copy, new AsyncCallback() {
+            @Override
+            public void done(boolean doneSync) {
+                copyResults(exchange, copy);
+                callback.done(doneSync);
+            }
+        });
+    }
+
+    /**
+     * Puts the exchange into the queue to be processed by the pool of concurrent consumers. If the queue is full then
+     * the {@link OsgiDefaultEndpoint#getOverflowPolicy() overflow policy} is applied.
+     * <p/>
+     * The exchanges that do not expect a reply are completed as soon as they are queued, so they are processed as
+     * {@link #copyExchangeDetached(Exchange) detached copies} and errors of processing are only logged.
+     *
+     * @param exchange the exchange to process
+     * @param callback the callback to notify when the processing completes
+     *
+     * @return {@code true} if the exchange has been processed synchronously, {@code false} otherwise
+     */
+    protected boolean processQueued(final Exchange exchange, final AsyncCallback callback) {
+        if (!queuePermits.tryAcquire()) {
+            switch (endpoint.getOverflowPolicy()) {
+                case CallerRuns:
+                    return processDirect(exchange, callback);
+                case Reject:
+                    exchange.setException(new RejectedExecutionException(
+                        String.format("Queue of the consumer [%s] is full", endpoint.getEndpointUri())));
+                    callback.done(true);
+                    return true;
+                default:
+                    try {
+                        queuePermits.acquire();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        exchange.setException(e);
+                        callback.done(true);
+                        return true;
+                    }
+            }
+        }
+
+        final boolean replyExpected = exchange.getPattern().isOutCapable();
+        try {
+            Exchange copy = replyExpected ? prepareExchange(exchange) : copyExchangeDetached(exchange);
+            ExecutorService executor = this.executor;
+            if (executor == null) {
+                throw new RejectedExecutionException(
+                    String.format("Consumer [%s] is stopped", endpoint.getEndpointUri()));
+            }
+            executor.execute(new QueuedExchange(exchange, copy, callback));
+        } catch (Throwable e) {
+            queuePermits.release();
+            exchange.setException(e);
+            callback.done(true);
+            return true;
+        }
+
+        if (!replyExpected) {
+            callback.done(true);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Prepares the exchange to be processed by this consumer.
+     * <p/>
+     * If the exchange has been sent from the same {@code CamelContext} then it's processed as is. If the endpoint is
+     * configured to {@link OsgiDefaultEndpoint#isShareExchange() share exchanges} then the exchange is wrapped into
+     * the {@link OsgiSharedExchange}. In all other cases the exchange is {@link #copyExchange(Exchange) copied}.
+     *
+     * @param exchange an exchange sent by the producer
+     *
+     * @return an exchange to process
+     */
+    protected Exchange prepareExchange(Exchange exchange) {
+        OsgiDefaultEndpoint endpoint = getEndpoint();
+        if (exchange.getContext() == endpoint.getCamelContext()) {
+            return exchange;
+        }
+        if (endpoint.isShareExchange()) {
+            return new OsgiSharedExchange(exchange, endpoint);
+        }
+        return copyExchange(exchange);
+    }
+
+    /**
+     * Copies the results of processing back to the original exchange if the processed exchange is its copy.
+     * <p/>
+     * Unlike {@link ExchangeHelper#copyResults(Exchange, Exchange)} headers and properties of the copy that have not
+     * been modified while processing are not copied back, as they still share the maps of the original exchange.
+     *
+     * @param exchange the original exchange sent by the producer
+     * @param processed the exchange {@link #prepareExchange(Exchange) prepared} from the original one
+     */
+    protected void copyResults(Exchange exchange, Exchange processed) {
+        if (processed == exchange || processed instanceof OsgiSharedExchange) {
+            return;
+        }
+
+        exchange.setException(processed.getException());
+        if (processed.hasOut()) {
+            copyMessageBack(exchange.getOut(), processed.getOut());
+        } else if (exchange.getPattern() == ExchangePattern.InOptionalOut) {
+            exchange.setOut(null);
+        } else if (exchange.getPattern().isOutCapable()) {
+            copyMessageBack(exchange.getOut(), processed.getIn());
+        } else {
+            copyMessageBack(exchange.getIn(), processed.getIn());
+            if (exchange.hasOut()) {
+                exchange.setOut(null);
+            }
+        }
+
+        if (processed.hasProperties()) {
+            Map<String, Object> props = processed.getProperties();
+            if (!(props instanceof OsgiCopyOnWriteMap
+                    && ((OsgiCopyOnWriteMap<?, ?>) props).isSharing(exchange.getProperties()))) {
+                exchange.getProperties().putAll(props);
+            }
         }
     }
 
@@ -110,6 +389,9 @@ public class OsgiDefaultConsumer extends ServiceSupport implements Consumer, Sus
      * Creates exchange copy, so that {@link org.apache.camel.Exchange#getContext()} will return the
      * {@code CamelContext} of the this consumer endpoint instead of the producer endpoint, that sent the provided
      * exchange.
+     * <p/>
+     * Properties and headers of the copy share the maps of the original exchange until they are modified for the
+     * first time, see {@link OsgiCopyOnWriteMap}.
      *
      * @param exchange an exchange to copy
      *
@@ -118,9 +400,170 @@ public class OsgiDefaultConsumer extends ServiceSupport implements Consumer, Sus
     protected Exchange copyExchange(Exchange exchange) {
         OsgiDefaultEndpoint endpoint = getEndpoint();
 
+        DefaultExchange copy = new DefaultExchange(endpoint.getCamelContext(), exchange.getPattern());
+        if (exchange.hasProperties()) {
+            copy.setProperties(new CopyOnWriteProperties(exchange.getProperties()));
+        }
+        copy.setIn(copyMessage(exchange.getIn()));
+        if (exchange.hasOut()) {
+            copy.setOut(copyMessage(exchange.getOut()));
+        }
+        copy.setException(exchange.getException());
+        copy.setFromEndpoint(endpoint);
+        return copy;
+    }
+
+    /**
+     * Creates exchange copy that does not share anything with the original exchange, so that the original exchange
+     * can be used by the producer while the copy is processed by this consumer.
+     *
+     * @param exchange an exchange to copy
+     *
+     * @return exchange copy
+     */
+    protected Exchange copyExchangeDetached(Exchange exchange) {
+        OsgiDefaultEndpoint endpoint = getEndpoint();
+
         Exchange copy = ExchangeHelper.copyExchangeAndSetCamelContext(exchange, endpoint.getCamelContext(), false);
         copy.setFromEndpoint(endpoint);
         return copy;
     }
 
+    /**
+     * Creates message copy which shares the headers with the original message until they are modified. Messages
+     * other than {@link DefaultMessage} are {@link Message#copy() copied} as is.
+     *
+     * @param message a message to copy
+     *
+     * @return message copy
+     */
+    protected Message copyMessage(Message message) {
+        if (message.getClass() != DefaultMessage.class && message.getClass() != CopyOnWriteMessage.class) {
+            return message.copy();
+        }
+
+        DefaultMessage copy = message.hasHeaders() ? new CopyOnWriteMessage(message.getHeaders()) : new DefaultMessage();
+        copy.setMessageId(message.getMessageId());
+        copy.setBody(message.getBody());
+        copy.setFault(message.isFault());
+        if (message.hasAttachments()) {
+            copy.getAttachments().putAll(message.getAttachments());
+        }
+        return copy;
+    }
+
+    /**
+     * Copies the processed message back to the target one skipping the headers if they have not been modified.
+     *
+     * @param target the message of the original exchange
+     * @param source the processed message
+     */
+    protected void copyMessageBack(Message target, Message source) {
+        if (!(target instanceof DefaultMessage) || !source.hasHeaders()
+                || !(source.getHeaders() instanceof OsgiCopyOnWriteMap)
+                || !((OsgiCopyOnWriteMap<?, ?>) source.getHeaders()).isSharing(target.getHeaders())) {
+            target.copyFrom(source);
+            return;
+        }
+
+        // the headers are not modified, so that only the rest of the message is copied
+        DefaultMessage message = (DefaultMessage) target;
+        message.setMessageId(source.getMessageId());
+        message.setBody(source.getBody());
+        message.setFault(source.isFault());
+        if (message.hasAttachments()) {
+            message.getAttachments().clear();
+        }
+        if (source.hasAttachments()) {
+            message.getAttachments().putAll(source.getAttachments());
+        }
+    }
+
+    /**
+     * Exchange properties that share the properties of the original exchange until they are modified.
+     */
+    private static class CopyOnWriteProperties extends OsgiCopyOnWriteMap<String, Object> {
+        public CopyOnWriteProperties(Map<String, Object> original) {
+            super(original);
+        }
+
+        @Override
+        protected Map<String, Object> createCopy(Map<String, Object> original) {
+            return new ConcurrentHashMap<String, Object>(original);
+        }
+    }
+
+    /**
+     * Message which headers share the headers of the original message until they are modified. The headers are
+     * provided by means of {@link #createHeaders()}, as {@link DefaultMessage#setHeaders(Map)} copies all the maps
+     * which are not {@link org.apache.camel.util.CaseInsensitiveMap}. Both the original headers of
+     * {@link DefaultMessage} and their copy are case insensitive, so are the shared headers.
+     */
+    private static class CopyOnWriteMessage extends DefaultMessage {
+        private final Map<String, Object> original;
+
+        public CopyOnWriteMessage(Map<String, Object> original) {
+            this.original = original;
+        }
+
+        @Override
+        protected Map<String, Object> createHeaders() {
+            return new OsgiCopyOnWriteMap<String, Object>(original) {
+                @Override
+                protected Map<String, Object> createCopy(Map<String, Object> original) {
+                    return new CaseInsensitiveMap(original);
+                }
+            };
+        }
+    }
+
+    /**
+     * The exchange waiting in the queue to be processed by one of the concurrent consumers.
+     */
+    private class QueuedExchange implements Runnable {
+
+        private final Exchange exchange;
+        private final Exchange copy;
+        private final AsyncCallback callback;
+        private final boolean replyExpected;
+
+        public QueuedExchange(Exchange exchange, Exchange copy, AsyncCallback callback) {
+            this.exchange = exchange;
+            this.copy = copy;
+            this.callback = callback;
+            this.replyExpected = exchange.getPattern().isOutCapable();
+        }
+
+        @Override
+        public void run() {
+            queuePermits.release();
+            AsyncProcessorHelper.process(asyncProcessor, copy, new AsyncCallback() {
+                @Override
+                public void done(boolean doneSync) {
+                    complete();
+                }
+            });
+        }
+
+        /**
+         * Completes the exchange that has not been processed before the consumer stopped.
+         */
+        public void reject() {
+            queuePermits.release();
+            copy.setException(new RejectedExecutionException(
+                String.format("Consumer [%s] has been stopped before the exchange was processed",
+                    endpoint.getEndpointUri())));
+            complete();
+        }
+
+        private void complete() {
+            if (replyExpected) {
+                copyResults(exchange, copy);
+                callback.done(false);
+            } else if (copy.getException() != null) {
+                exceptionHandler.handleException("Error processing queued exchange", copy, copy.getException());
+            }
+        }
+    }
+
 }
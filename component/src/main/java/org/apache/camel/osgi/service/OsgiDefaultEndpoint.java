@@ -19,6 +19,8 @@ import org.apache.camel.Consumer;
 import org.apache.camel.Processor;
 import org.apache.camel.Producer;
 import org.apache.camel.impl.DefaultEndpoint;
+import org.apache.camel.osgi.service.util.OsgiDefaultProxyCreator;
+import org.apache.camel.osgi.service.util.OsgiProxyCreator;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.BundleReference;
@@ -39,6 +41,22 @@ public class OsgiDefaultEndpoint extends DefaultEndpoint {
 
     private Map<String, Object> props = Collections.emptyMap();
 
+    private boolean leaseServices;
+    private OsgiProxyCreator proxyCreator;
+    private boolean lazyProxies;
+    private boolean outlierDetection;
+    private long outlierInterval = 10000;
+    private int outlierMinimumRequests = 10;
+    private double outlierErrorRate = 0.3;
+    private double outlierLatencyFactor = 3.0;
+    private long outlierEjectionTime = 30000;
+    private int outlierMaxEjectionPercent = 50;
+    private long slowStart;
+    private boolean shareExchange;
+    private int queueSize;
+    private int concurrentConsumers = 1;
+    private OsgiOverflowPolicy overflowPolicy = OsgiOverflowPolicy.Block;
+
     public OsgiDefaultEndpoint(String endpointUri, Component component) {
         super(endpointUri, component);
         this.componentClassLoader = getClass().getClassLoader();
@@ -96,6 +114,245 @@ public class OsgiDefaultEndpoint extends DefaultEndpoint {
         this.props = props;
     }
 
+    /**
+     * Returns whether producers of this endpoint get consuming OSGi services once and keep them until the services
+     * are unregistered instead of getting and releasing them on every exchange.
+     *
+     * @return {@code true} if the consuming services are leased, {@code false} otherwise
+     */
+    public boolean isLeaseServices() {
+        return leaseServices;
+    }
+
+    public void setLeaseServices(boolean leaseServices) {
+        this.leaseServices = leaseServices;
+    }
+
+    /**
+     * Returns the {@link OsgiProxyCreator} to be used by producers of this endpoint to proxy consuming OSGi services.
+     *
+     * @return proxy creator or {@code null} if the {@link #getDefaultProxyCreator() default one} must be used
+     */
+    public OsgiProxyCreator getProxyCreator() {
+        return proxyCreator;
+    }
+
+    public void setProxyCreator(OsgiProxyCreator proxyCreator) {
+        this.proxyCreator = proxyCreator;
+    }
+
+    /**
+     * Returns the {@link OsgiDefaultProxyCreator} to be used by producers of this endpoint if there is no configured
+     * proxy creator. The proxy creator is shared by the endpoints of the component, so that they share the cached
+     * proxy classes.
+     *
+     * @return the default proxy creator
+     */
+    protected OsgiProxyCreator getDefaultProxyCreator() {
+        Component component = super.getComponent();
+        return component instanceof OsgiComponent
+            ? ((OsgiComponent) component).getDefaultProxyCreator(isLeaseServices())
+            : new OsgiDefaultProxyCreator(isLeaseServices());
+    }
+
+    /**
+     * Returns whether producers of this endpoint create proxies for consuming OSGi services only when an exchange is
+     * sent to the corresponding service for the first time.
+     *
+     * @return {@code true} if proxies are created lazily, {@code false} otherwise
+     */
+    public boolean isLazyProxies() {
+        return lazyProxies;
+    }
+
+    public void setLazyProxies(boolean lazyProxies) {
+        this.lazyProxies = lazyProxies;
+    }
+
+    /**
+     * Returns whether producers of this endpoint temporarily eject consuming OSGi services which fail or respond slowly
+     * compared to the other ones.
+     *
+     * @return {@code true} if outliers are ejected, {@code false} otherwise
+     *
+     * @see org.apache.camel.osgi.service.util.OsgiOutlierDetector
+     */
+    public boolean isOutlierDetection() {
+        return outlierDetection;
+    }
+
+    public void setOutlierDetection(boolean outlierDetection) {
+        this.outlierDetection = outlierDetection;
+    }
+
+    /**
+     * Returns the interval in milliseconds to evaluate the statistics of consuming OSGi services at.
+     *
+     * @return the interval to evaluate the statistics at
+     *
+     * @see #isOutlierDetection()
+     */
+    public long getOutlierInterval() {
+        return outlierInterval;
+    }
+
+    public void setOutlierInterval(long outlierInterval) {
+        this.outlierInterval = outlierInterval;
+    }
+
+    /**
+     * Returns the minimum number of exchanges a consuming OSGi service must process in the interval to be evaluated.
+     *
+     * @return the minimum number of exchanges
+     *
+     * @see #isOutlierDetection()
+     */
+    public int getOutlierMinimumRequests() {
+        return outlierMinimumRequests;
+    }
+
+    public void setOutlierMinimumRequests(int outlierMinimumRequests) {
+        this.outlierMinimumRequests = outlierMinimumRequests;
+    }
+
+    /**
+     * Returns the margin the error rate of a consuming OSGi service must exceed the median error rate by to eject it.
+     *
+     * @return the error rate margin
+     *
+     * @see #isOutlierDetection()
+     */
+    public double getOutlierErrorRate() {
+        return outlierErrorRate;
+    }
+
+    public void setOutlierErrorRate(double outlierErrorRate) {
+        this.outlierErrorRate = outlierErrorRate;
+    }
+
+    /**
+     * Returns the factor the average response time of a consuming OSGi service must exceed the median response time by
+     * to eject it. Zero or less means that services are not ejected because of their response time.
+     *
+     * @return the response time factor
+     *
+     * @see #isOutlierDetection()
+     */
+    public double getOutlierLatencyFactor() {
+        return outlierLatencyFactor;
+    }
+
+    public void setOutlierLatencyFactor(double outlierLatencyFactor) {
+        this.outlierLatencyFactor = outlierLatencyFactor;
+    }
+
+    /**
+     * Returns the base time in milliseconds to eject consuming OSGi services for. The time doubles every time the same
+     * service is ejected again.
+     *
+     * @return the base ejection time
+     *
+     * @see #isOutlierDetection()
+     */
+    public long getOutlierEjectionTime() {
+        return outlierEjectionTime;
+    }
+
+    public void setOutlierEjectionTime(long outlierEjectionTime) {
+        this.outlierEjectionTime = outlierEjectionTime;
+    }
+
+    /**
+     * Returns the maximum percent of consuming OSGi services that can be ejected at the same time.
+     *
+     * @return the maximum percent of ejected services
+     *
+     * @see #isOutlierDetection()
+     */
+    public int getOutlierMaxEjectionPercent() {
+        return outlierMaxEjectionPercent;
+    }
+
+    public void setOutlierMaxEjectionPercent(int outlierMaxEjectionPercent) {
+        this.outlierMaxEjectionPercent = outlierMaxEjectionPercent;
+    }
+
+    /**
+     * Returns the time in milliseconds the share of exchanges a newly registered OSGi consumer receives from load
+     * balancing producers of this endpoint ramps up for.
+     *
+     * @return the slow start window, zero or less if newly registered consumers get their full share at once
+     *
+     * @see OsgiSlowStart
+     */
+    public long getSlowStart() {
+        return slowStart;
+    }
+
+    public void setSlowStart(long slowStart) {
+        this.slowStart = slowStart;
+    }
+
+    /**
+     * Returns whether consumers of this endpoint process exchanges sent from another {@code CamelContext} without
+     * copying them, i.e. by means of {@link OsgiSharedExchange}.
+     *
+     * @return {@code true} if exchanges are not copied, {@code false} otherwise
+     */
+    public boolean isShareExchange() {
+        return shareExchange;
+    }
+
+    public void setShareExchange(boolean shareExchange) {
+        this.shareExchange = shareExchange;
+    }
+
+    /**
+     * Returns the maximum number of exchanges waiting to be processed by consumers of this endpoint. If it's greater
+     * than zero then exchanges are put into the queue and processed by the pool of {@link #getConcurrentConsumers()}
+     * threads, so that producers do not wait for the consumer route to complete. If it's zero or less then exchanges
+     * are processed in the thread of the producer.
+     *
+     * @return the size of the queue
+     */
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+    }
+
+    /**
+     * Returns the number of threads processing the queued exchanges.
+     *
+     * @return the number of threads processing the queued exchanges
+     *
+     * @see #getQueueSize()
+     */
+    public int getConcurrentConsumers() {
+        return concurrentConsumers;
+    }
+
+    public void setConcurrentConsumers(int concurrentConsumers) {
+        this.concurrentConsumers = concurrentConsumers;
+    }
+
+    /**
+     * Returns what to do with an incoming exchange when the queue is full.
+     *
+     * @return the policy to apply when the queue is full
+     *
+     * @see #getQueueSize()
+     */
+    public OsgiOverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public void setOverflowPolicy(OsgiOverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
     protected BundleContext getApplicationBundleContext() {
         return applicationBundleContext;
     }
@@ -16,10 +16,13 @@ package org.apache.camel.osgi.service;
 
 import org.apache.camel.Exchange;
 import org.apache.camel.Processor;
+import org.apache.camel.osgi.service.util.OsgiRankedServiceList;
+import org.apache.camel.osgi.service.util.OsgiServiceCollectionListener;
 import org.apache.camel.processor.loadbalancer.QueueLoadBalancer;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -27,16 +30,65 @@ import java.util.List;
  * the highest ranking.
  * <p/>
  * As a rule processors to select from must implement {@link org.osgi.framework.ServiceReference} to work as expected.
+ * <p/>
+ * If the load balancer is registered as a listener of the
+ * {@link org.apache.camel.osgi.service.util.OsgiServiceCollection} it selects from, the most actual service is
+ * maintained as services come and go, so that selecting it is a single volatile read. Otherwise the service is looked
+ * up among the given processors on each exchange.
+ * <p/>
+ * If the processors are {@link OsgiRankedServiceList}, the most actual service is the first one, so that it's not
+ * looked up at all.
  */
-public class OsgiDefaultLoadBalancer extends QueueLoadBalancer {
+public class OsgiDefaultLoadBalancer extends QueueLoadBalancer implements OsgiServiceCollectionListener<Processor> {
+
+    /**
+     * The most actual service among the ones reported to this load balancer, {@code null} if there are no such services.
+     * It is updated under the lock of the notifying collection only, so it is enough to make it volatile.
+     */
+    private volatile Processor selected;
+
+    @Override
+    protected Processor chooseProcessor(List<Processor> processors, Exchange exchange) {
+        Processor answer = selected;
+        if (answer == null && !processors.isEmpty()) {
+            answer = choose(processors);
+        }
+        return answer;
+    }
 
     @Override
-    protected synchronized Processor chooseProcessor(List<Processor> processors, Exchange exchange) {
-        return choose(processors);
+    public void serviceAdded(Processor service) {
+        Processor current = selected;
+        if (current == null || compare(service, current) > 0) {
+            selected = service;
+        }
+    }
+
+    @Override
+    public void serviceModified(Processor service) {
+        // ranking of the modified service may have been either increased or decreased
+        selected = getProcessors().isEmpty() ? null : choose(getProcessors());
+    }
+
+    @Override
+    public void serviceRemoved(Processor service) {
+        if (service == selected) {
+            selected = getProcessors().isEmpty() ? null : choose(getProcessors());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static int compare(Processor first, Processor second) {
+        return ((Comparable<Object>) first).compareTo(second);
     }
 
     @SuppressWarnings("unchecked")
-    private Processor choose(Collection<?> processors) {
+    private static Processor choose(Collection<?> processors) {
+        if (processors instanceof OsgiRankedServiceList) {
+            // the list can become empty concurrently, so the first service is taken by means of an iterator
+            Iterator<?> iterator = processors.iterator();
+            return iterator.hasNext() ? (Processor) iterator.next() : null;
+        }
         return (Processor) Collections.max((Collection<? extends Comparable>) processors);
     }
 }
@@ -14,12 +14,21 @@
 
 package org.apache.camel.osgi.service;
 
+import org.apache.camel.AsyncCallback;
+import org.apache.camel.AsyncProcessor;
 import org.apache.camel.Exchange;
 import org.apache.camel.Processor;
-import org.apache.camel.impl.DefaultProducer;
+import org.apache.camel.impl.DefaultAsyncProducer;
 import org.apache.camel.osgi.service.filter.Filters;
 import org.apache.camel.osgi.service.util.OsgiDefaultProxyCreator;
+import org.apache.camel.osgi.service.util.OsgiLazyProxyCreator;
+import org.apache.camel.osgi.service.util.OsgiOutlierDetector;
+import org.apache.camel.osgi.service.util.OsgiOutlierProxyCreator;
+import org.apache.camel.osgi.service.util.OsgiProxyCreator;
+import org.apache.camel.osgi.service.util.OsgiServiceCollectionListener;
+import org.apache.camel.osgi.service.util.OsgiRankedServiceList;
 import org.apache.camel.osgi.service.util.OsgiServiceList;
+import org.apache.camel.util.AsyncProcessorConverterHelper;
 import org.apache.camel.util.ServiceHelper;
 import org.osgi.framework.BundleContext;
 
@@ -31,15 +40,19 @@ import java.util.Map;
  * <p/>
  * Sending to consumer policy is determined by the corresponding {@link #processor} which at the moment can be one of
  * {@link OsgiDefaultLoadBalancer}, {@link org.apache.camel.processor.loadbalancer.RandomLoadBalancer},
- * {@link org.apache.camel.processor.loadbalancer.RoundRobinLoadBalancer},
+ * {@link OsgiRoundRobinLoadBalancer},
  * {@link org.apache.camel.processor.MulticastProcessor}.
+ * <p/>
+ * The producer is an {@link AsyncProcessor}, so that exchanges are sent to the consumers that support asynchronous
+ * processing without blocking the caller thread.
  */
-public class OsgiDefaultProducer extends DefaultProducer {
+public class OsgiDefaultProducer extends DefaultAsyncProducer {
 
     /**
      * Dynamic list of OSGi services to send an exchange to.
      * <p/>
-     * This list can be updated dynamically as new OSGi services leaves, arrives.
+     * This list can be updated dynamically as new OSGi services leaves, arrives. The services are ordered by ranking,
+     * see {@link OsgiRankedServiceList}.
      */
     protected final OsgiServiceList<Processor> services;
 
@@ -48,20 +61,89 @@ public class OsgiDefaultProducer extends DefaultProducer {
      */
     protected Processor processor;
 
+    /**
+     * The {@link #processor} adapted to {@link AsyncProcessor}.
+     */
+    protected AsyncProcessor asyncProcessor;
+
+    /**
+     * The detector of outliers or {@code null} if outliers are not ejected.
+     */
+    private final OsgiOutlierDetector detector;
+
     public OsgiDefaultProducer(OsgiDefaultEndpoint endpoint, Map<String, Object> props) {
         super(endpoint);
-        this.services = new OsgiServiceList<Processor>(
+        this.detector = endpoint.isOutlierDetection()
+            ? new OsgiOutlierDetector(
+                endpoint.getOutlierInterval(),
+                endpoint.getOutlierMinimumRequests(),
+                endpoint.getOutlierErrorRate(),
+                endpoint.getOutlierLatencyFactor(),
+                endpoint.getOutlierEjectionTime(),
+                endpoint.getOutlierMaxEjectionPercent())
+            : null;
+        this.services = new OsgiRankedServiceList<Processor>(
             endpoint.getApplicationBundleContext(),
             Filters.allEq(props).value(),
             endpoint.getComponentClassLoader(),
-            new OsgiDefaultProxyCreator());
+            createProxyCreator(endpoint, detector));
+        if (detector != null) {
+            detector.setServices(services);
+        }
+    }
+
+    /**
+     * Returns the proxy creator configured on the endpoint or the {@link OsgiDefaultProxyCreator} shared by the
+     * endpoints of the component if there is no such one. The proxy creator is wrapped into {@link OsgiLazyProxyCreator} if the endpoint requires proxies to be
+     * created lazily, and into {@link OsgiOutlierProxyCreator} if the endpoint requires outliers to be ejected.
+     *
+     * @param endpoint the endpoint of this producer
+     * @param detector the detector to eject outliers or {@code null} if outliers must not be ejected
+     *
+     * @return proxy creator to wrap consuming OSGi services
+     */
+    private static OsgiProxyCreator createProxyCreator(OsgiDefaultEndpoint endpoint, OsgiOutlierDetector detector) {
+        OsgiProxyCreator proxyCreator = endpoint.getProxyCreator();
+        if (proxyCreator == null) {
+            proxyCreator = endpoint.getDefaultProxyCreator();
+        }
+        if (endpoint.isLazyProxies()) {
+            proxyCreator = new OsgiLazyProxyCreator(proxyCreator);
+        }
+        return detector != null ? new OsgiOutlierProxyCreator(proxyCreator, detector) : proxyCreator;
     }
 
     @Override
     public void process(Exchange exchange) throws Exception {
+        resumeEjectedServices();
         processor.process(exchange);
     }
 
+    @Override
+    public boolean process(Exchange exchange, AsyncCallback callback) {
+        resumeEjectedServices();
+        return asyncProcessor.process(exchange, callback);
+    }
+
+    /**
+     * Resumes the consuming services which have been ejected as outliers if their ejection time has elapsed. Must be
+     * called before selecting a service to send an exchange to.
+     */
+    protected void resumeEjectedServices() {
+        if (detector != null) {
+            detector.resumeExpired();
+        }
+    }
+
+    /**
+     * Creates the slow start for the load balancer of this producer according to the parameters of the endpoint.
+     *
+     * @return the slow start to admit newly registered OSGi consumers with
+     */
+    protected OsgiSlowStart createSlowStart() {
+        return new OsgiSlowStart(getEndpoint().getSlowStart());
+    }
+
     /**
      * Creates a processor that is responsible for processing a given exchange, i.e. send it to OSGi consumers.
      *
@@ -77,19 +159,28 @@ public class OsgiDefaultProducer extends DefaultProducer {
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     protected void doStart() throws Exception {
         super.doStart();
         services.startTracking();
         if(processor == null) {
             processor = createProcessor();
         }
+        if (processor instanceof OsgiServiceCollectionListener) {
+            services.addListener((OsgiServiceCollectionListener<Processor>) processor);
+        }
+        asyncProcessor = AsyncProcessorConverterHelper.convert(processor);
         ServiceHelper.startService(processor);
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     protected void doStop() throws Exception {
         ServiceHelper.stopService(processor);
         services.stopTracking();
+        if (processor instanceof OsgiServiceCollectionListener) {
+            services.removeListener((OsgiServiceCollectionListener<Processor>) processor);
+        }
         super.doStop();
     }
 
@@ -70,6 +70,54 @@ public enum OsgiEndpointType {
         public OsgiRandomEndpoint createEndpoint(String uri, Component comp) {
             return new OsgiRandomEndpoint(uri, comp);
         }
+    },
+
+    BATCH("batch:") {
+        @Override
+        @SuppressWarnings("unchecked")
+        public OsgiBatchEndpoint createEndpoint(String uri, Component comp) {
+            return new OsgiBatchEndpoint(uri, comp);
+        }
+    },
+
+    WEIGHTED("weighted:") {
+        @Override
+        @SuppressWarnings("unchecked")
+        public OsgiWeightedEndpoint createEndpoint(String uri, Component comp) {
+            return new OsgiWeightedEndpoint(uri, comp);
+        }
+    },
+
+    LEASTACTIVE("leastactive:") {
+        @Override
+        @SuppressWarnings("unchecked")
+        public OsgiLeastActiveEndpoint createEndpoint(String uri, Component comp) {
+            return new OsgiLeastActiveEndpoint(uri, comp);
+        }
+    },
+
+    LATENCY("latency:") {
+        @Override
+        @SuppressWarnings("unchecked")
+        public OsgiLatencyEndpoint createEndpoint(String uri, Component comp) {
+            return new OsgiLatencyEndpoint(uri, comp);
+        }
+    },
+
+    STICKY("sticky:") {
+        @Override
+        @SuppressWarnings("unchecked")
+        public OsgiStickyEndpoint createEndpoint(String uri, Component comp) {
+            return new OsgiStickyEndpoint(uri, comp);
+        }
+    },
+
+    FAILOVER("failover:") {
+        @Override
+        @SuppressWarnings("unchecked")
+        public OsgiFailoverEndpoint createEndpoint(String uri, Component comp) {
+            return new OsgiFailoverEndpoint(uri, comp);
+        }
     };
 
     protected final String prefix;
@@ -99,8 +147,10 @@ public enum OsgiEndpointType {
      * Extracts name of the endpoint from its path.
      * <p/>
      * If path starts with predefined endpoint prefix ({@literal "default:"}, {@literal "multicast:"},
-     * {@literal "roundrobin:"}, {@literal "random:"}) than endpoint name is considered to be the remaining path of
-     * the endpoint path without prefix, else endpoint name is the whole path.
+     * {@literal "roundrobin:"}, {@literal "random:"}, {@literal "batch:"}, {@literal "weighted:"},
+     * {@literal "leastactive:"}, {@literal "latency:"}, {@literal "sticky:"}, {@literal "failover:"}) than endpoint
+     * name is considered to be the remaining path of the endpoint path without prefix, else endpoint name is the whole
+     * path.
      *
      * @param path the path of the camel endpoint, i.e. {@code "default:test"} for {@code "osgi:default:test"}
      *
@@ -121,7 +171,13 @@ public enum OsgiEndpointType {
      * prefix,<br/>
      * {@link #MULTICAST} endpoint type if path starts with {@literal "multicast:"} prefix,<br/>
      * {@link #ROUNDROBIN} endpoint type if path starts with {@literal "roundrobin:"} prefix,<br/>
-     * {@link #RANDOM} endpoint type if path starts with {@literal "random:"} prefix
+     * {@link #RANDOM} endpoint type if path starts with {@literal "random:"} prefix,<br/>
+     * {@link #BATCH} endpoint type if path starts with {@literal "batch:"} prefix,<br/>
+     * {@link #WEIGHTED} endpoint type if path starts with {@literal "weighted:"} prefix,<br/>
+     * {@link #LEASTACTIVE} endpoint type if path starts with {@literal "leastactive:"} prefix,<br/>
+     * {@link #LATENCY} endpoint type if path starts with {@literal "latency:"} prefix,<br/>
+     * {@link #STICKY} endpoint type if path starts with {@literal "sticky:"} prefix,<br/>
+     * {@link #FAILOVER} endpoint type if path starts with {@literal "failover:"} prefix
      */
     public static OsgiEndpointType fromPath(String path) {
         OsgiEndpointType result = DEFAULT;
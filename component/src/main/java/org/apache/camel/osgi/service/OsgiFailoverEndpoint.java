@@ -0,0 +1,94 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.camel.osgi.service;
+
+import org.apache.camel.Component;
+import org.apache.camel.Consumer;
+import org.apache.camel.Processor;
+import org.apache.camel.Producer;
+
+/**
+ * The {@code OsgiFailoverEndpoint} is the endpoint that creates {@link OsgiFailoverProducer} in order to send
+ * exchanges to OSGi consumers by means of {@link OsgiFailoverLoadBalancer}.
+ */
+public class OsgiFailoverEndpoint extends OsgiDefaultEndpoint {
+
+    private int maximumFailoverAttempts = -1;
+    private int consecutiveFailures = 5;
+    private double failureRate = 0.5;
+    private int failureRateWindow = 20;
+    private long coolOff = 30000L;
+
+    public OsgiFailoverEndpoint(String endpointUri, Component component) {
+        super(endpointUri, component);
+    }
+
+    @Override
+    public Consumer createConsumer(Processor processor) throws Exception {
+        throw new UnsupportedOperationException(String.format("[%s] does not support consumers. Use [%s] instead.",
+            getClass().getName(), getClass().getSuperclass().getName()));
+    }
+
+    @Override
+    public Producer createProducer() throws Exception {
+        if (getFailureRate() <= 0 || getFailureRate() > 1) {
+            throw new IllegalArgumentException(
+                String.format("[failureRate] parameter must be in range (0, 1] for [%s]: [%s]",
+                    this, getFailureRate()));
+        }
+        return new OsgiFailoverProducer(this, getProps(), getMaximumFailoverAttempts(), getConsecutiveFailures(),
+            getFailureRate(), getFailureRateWindow(), getCoolOff());
+    }
+
+    public int getMaximumFailoverAttempts() {
+        return maximumFailoverAttempts;
+    }
+
+    public void setMaximumFailoverAttempts(int maximumFailoverAttempts) {
+        this.maximumFailoverAttempts = maximumFailoverAttempts;
+    }
+
+    public int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    public void setConsecutiveFailures(int consecutiveFailures) {
+        this.consecutiveFailures = consecutiveFailures;
+    }
+
+    public double getFailureRate() {
+        return failureRate;
+    }
+
+    public void setFailureRate(double failureRate) {
+        this.failureRate = failureRate;
+    }
+
+    public int getFailureRateWindow() {
+        return failureRateWindow;
+    }
+
+    public void setFailureRateWindow(int failureRateWindow) {
+        this.failureRateWindow = failureRateWindow;
+    }
+
+    public long getCoolOff() {
+        return coolOff;
+    }
+
+    public void setCoolOff(long coolOff) {
+        this.coolOff = coolOff;
+    }
+}
@@ -0,0 +1,347 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.camel.osgi.service;
+
+import org.apache.camel.AsyncCallback;
+import org.apache.camel.AsyncProcessor;
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+import org.apache.camel.util.AsyncProcessorConverterHelper;
+import org.apache.camel.util.AsyncProcessorHelper;
+import org.apache.camel.util.ExchangeHelper;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The {@code OsgiFailoverLoadBalancer} is the load balancer that distributes exchanges between OSGi services in
+ * round-robin fashion and sends the exchange to the next service if the current one fails.
+ * <p/>
+ * Every service is guarded by its own circuit breaker. The breaker opens if the service fails the specified number of
+ * exchanges in a row, or if the specified part of the exchanges fails within the window of the specified number of
+ * exchanges. The services with open breakers are skipped for the cool-off period. After that a single exchange is sent
+ * to the service: the breaker closes if the exchange succeeds and opens again otherwise.
+ * <p/>
+ * The first attempt processes the original exchange, so that no copy is made unless the service fails. Every next
+ * attempt processes a copy of the original exchange without the exception and the out message of the failed attempt,
+ * and the results of the last attempt are copied back to the original exchange. As with
+ * {@link org.apache.camel.processor.loadbalancer.FailOverLoadBalancer} the changes made by the failed service to the
+ * in message are visible to the next one.
+ * <p/>
+ * A service registered again gets a new closed breaker, as the breaker of a service is dropped as soon as the service
+ * is unregistered. If the slow start is enabled, the first attempt skips the newly registered services which are not
+ * admitted, but they are still tried if the other services fail.
+ */
+public class OsgiFailoverLoadBalancer extends OsgiSnapshotLoadBalancer<OsgiFailoverLoadBalancer.CircuitBreaker> {
+
+    private static final long CLOSED = Long.MIN_VALUE;
+
+    private final int maximumFailoverAttempts;
+    private final int consecutiveFailures;
+    private final double failureRate;
+    private final int failureRateWindow;
+    private final long coolOff;
+
+    private final AtomicInteger counter = new AtomicInteger();
+
+    public OsgiFailoverLoadBalancer(int maximumFailoverAttempts, int consecutiveFailures, double failureRate,
+        int failureRateWindow, long coolOff) {
+
+        this(maximumFailoverAttempts, consecutiveFailures, failureRate, failureRateWindow, coolOff,
+            OsgiSlowStart.DISABLED);
+    }
+
+    /**
+     * Creates an instance of {@code OsgiFailoverLoadBalancer}.
+     *
+     * @param maximumFailoverAttempts the maximum number of attempts to send the exchange to the next service after the
+     * first one fails, {@code -1} to try all the available services
+     * @param consecutiveFailures the number of failures in a row to open the breaker, zero or less to disable
+     * @param failureRate the part of failed exchanges in the window to open the breaker, in range {@code (0, 1]}
+     * @param failureRateWindow the number of exchanges to calculate the failure rate over, zero or less to disable
+     * @param coolOff the time in milliseconds to skip the service with the open breaker for
+     * @param slowStart the slow start to admit newly registered services to the first attempt with
+     */
+    public OsgiFailoverLoadBalancer(int maximumFailoverAttempts, int consecutiveFailures, double failureRate,
+        int failureRateWindow, long coolOff, OsgiSlowStart slowStart) {
+
+        super(CircuitBreaker.class, slowStart);
+        if (failureRate <= 0 || failureRate > 1) {
+            throw new IllegalArgumentException(
+                String.format("Failure rate must be in range (0, 1]: [%s]", failureRate));
+        }
+        this.maximumFailoverAttempts = maximumFailoverAttempts;
+        this.consecutiveFailures = consecutiveFailures;
+        this.failureRate = failureRate;
+        this.failureRateWindow = failureRateWindow;
+        this.coolOff = coolOff;
+    }
+
+    @Override
+    public boolean process(Exchange exchange, AsyncCallback callback) {
+        CircuitBreaker[] current = getStates();
+        return new Failover(exchange, callback, current, nextStart(current)).next();
+    }
+
+    /**
+     * Returns the service the exchange would be sent to first, i.e. the next service in round-robin order which
+     * breaker is closed. Unlike {@link #process(Exchange, AsyncCallback)} it never takes the trial permit of an open
+     * breaker.
+     */
+    @Override
+    protected Processor chooseProcessor(List<Processor> processors, Exchange exchange) {
+        CircuitBreaker[] current = getStates();
+        int start = nextStart(current);
+        for (int i = 0; i < current.length; i++) {
+            CircuitBreaker breaker = current[(start + i) % current.length];
+            if (breaker.openUntil.get() == CLOSED) {
+                return breaker.processor;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether the breaker of the given service is open, i.e. the service is skipped.
+     *
+     * @param processor the service to check
+     *
+     * @return {@code true} if the breaker of the service is open, {@code false} if it is closed or the service is
+     * unknown to the load balancer
+     */
+    public boolean isOpen(Processor processor) {
+        CircuitBreaker breaker = getState(processor);
+        return breaker != null && breaker.openUntil.get() != CLOSED;
+    }
+
+    @Override
+    protected CircuitBreaker createState(Processor processor) {
+        return new CircuitBreaker(processor);
+    }
+
+    @Override
+    public String toString() {
+        return "OsgiFailoverLoadBalancer[" + getProcessors() + "]";
+    }
+
+    private static long now() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+    /**
+     * Returns the index of the service to send the next exchange to first. The newly registered services which are not
+     * admitted by the slow start are skipped, so that they are tried only if the other services fail.
+     */
+    private int nextStart(CircuitBreaker[] current) {
+        if (current.length == 0) {
+            return 0;
+        }
+        int start = (counter.getAndIncrement() & Integer.MAX_VALUE) % current.length;
+        for (int i = 0; i < current.length; i++) {
+            int index = (start + i) % current.length;
+            if (admit(current[index].processor)) {
+                return index;
+            }
+        }
+        return start;
+    }
+
+    /**
+     * Sends the exchange to the services one by one until it succeeds or there are no more services to try.
+     */
+    private final class Failover implements AsyncCallback {
+        private final Exchange exchange;
+        private final AsyncCallback callback;
+        private final CircuitBreaker[] breakers;
+        private final int start;
+
+        private int index;
+        private int attempts;
+        private boolean sync = true;
+        private boolean finished;
+
+        private CircuitBreaker breaker;
+        private boolean trial;
+        private Exchange current;
+
+        private Failover(Exchange exchange, AsyncCallback callback, CircuitBreaker[] breakers, int start) {
+            this.exchange = exchange;
+            this.callback = callback;
+            this.breakers = breakers;
+            this.start = start;
+        }
+
+        /**
+         * Sends the exchange to the next available service.
+         *
+         * @return {@code true} if the exchange has been processed synchronously
+         */
+        private boolean next() {
+            while (!finished) {
+                if (!select()) {
+                    if (current == null) {
+                        exchange.setException(
+                            new IllegalStateException("No processors available to process " + exchange));
+                    }
+                    finish(sync);
+                    return sync;
+                }
+
+                current = attempts++ == 0 ? exchange : copyForFailover();
+                try {
+                    AsyncProcessor processor = AsyncProcessorConverterHelper.convert(breaker.processor);
+                    if (!AsyncProcessorHelper.process(processor, current, this)) {
+                        return false;
+                    }
+                } catch (Throwable e) {
+                    // the callback is not notified if the service throws, so the trial permit is released here
+                    current.setException(e);
+                    done(true);
+                }
+            }
+            return sync;
+        }
+
+        @Override
+        public void done(boolean doneSync) {
+            boolean failed = current.getException() != null;
+            breaker.record(failed, trial);
+            if (failed && (maximumFailoverAttempts < 0 || attempts <= maximumFailoverAttempts)) {
+                if (!doneSync) {
+                    // continue in the thread of the service
+                    sync = false;
+                    next();
+                }
+                return;
+            }
+            finish(sync && doneSync);
+        }
+
+        private Exchange copyForFailover() {
+            Exchange copy = ExchangeHelper.createCopy(exchange, true);
+            copy.setException(null);
+            copy.setOut(null);
+            return copy;
+        }
+
+        private void finish(boolean doneSync) {
+            if (current != null && current != exchange) {
+                ExchangeHelper.copyResults(exchange, current);
+            }
+            finished = true;
+            callback.done(doneSync);
+        }
+
+        private boolean select() {
+            while (index < breakers.length) {
+                CircuitBreaker candidate = breakers[(start + index++) % breakers.length];
+                int permit = candidate.acquire();
+                if (permit >= 0) {
+                    breaker = candidate;
+                    trial = permit > 0;
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    final class CircuitBreaker {
+        private final Processor processor;
+
+        /**
+         * The time the breaker is open till or {@link #CLOSED}.
+         */
+        private final AtomicLong openUntil = new AtomicLong(CLOSED);
+        private final AtomicBoolean trial = new AtomicBoolean();
+        private final AtomicInteger failures = new AtomicInteger();
+
+        /**
+         * The number of exchanges in the current window in the high 32 bits and the number of failed ones in the
+         * low 32 bits.
+         */
+        private final AtomicLong window = new AtomicLong();
+
+        private CircuitBreaker(Processor processor) {
+            this.processor = processor;
+        }
+
+        /**
+         * Acquires the permission to send an exchange to the service.
+         *
+         * @return {@code 0} if the breaker is closed, {@code 1} if the exchange is the trial one, {@code -1} if the
+         * breaker is open
+         */
+        private int acquire() {
+            long until = openUntil.get();
+            if (until == CLOSED) {
+                return 0;
+            }
+            return now() >= until && trial.compareAndSet(false, true) ? 1 : -1;
+        }
+
+        private void record(boolean failed, boolean trialed) {
+            if (trialed) {
+                if (failed) {
+                    openUntil.set(now() + coolOff);
+                } else {
+                    failures.set(0);
+                    window.set(0);
+                    openUntil.set(CLOSED);
+                }
+                trial.set(false);
+                return;
+            }
+
+            int inRow = failed ? failures.incrementAndGet() : 0;
+            if (!failed) {
+                failures.set(0);
+            }
+            if (consecutiveFailures > 0 && inRow >= consecutiveFailures) {
+                open();
+                return;
+            }
+
+            if (failureRateWindow > 0) {
+                while (true) {
+                    long current = window.get();
+                    long calls = (current >>> 32) + 1;
+                    long errors = (current & 0xffffffffL) + (failed ? 1 : 0);
+                    if (calls < failureRateWindow) {
+                        if (window.compareAndSet(current, (calls << 32) | errors)) {
+                            return;
+                        }
+                    } else if (window.compareAndSet(current, 0)) {
+                        if (errors >= failureRate * calls) {
+                            open();
+                        }
+                        return;
+                    }
+                }
+            }
+        }
+
+        private void open() {
+            if (openUntil.compareAndSet(CLOSED, now() + coolOff)) {
+                failures.set(0);
+                window.set(0);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,56 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.camel.osgi.service;
+
+import org.apache.camel.Processor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@code OsgiFailoverProducer} is the producer that uses {@link OsgiFailoverLoadBalancer} to send exchanges to OSGi
+ * consumers, so that the exchange is sent to the next consumer if the current one fails.
+ */
+public class OsgiFailoverProducer extends OsgiDefaultProducer {
+
+    private final int maximumFailoverAttempts;
+    private final int consecutiveFailures;
+    private final double failureRate;
+    private final int failureRateWindow;
+    private final long coolOff;
+
+    public OsgiFailoverProducer(OsgiDefaultEndpoint endpoint, Map<String, Object> props, int maximumFailoverAttempts,
+        int consecutiveFailures, double failureRate, int failureRateWindow, long coolOff) {
+
+        super(endpoint, props);
+        this.maximumFailoverAttempts = maximumFailoverAttempts;
+        this.consecutiveFailures = consecutiveFailures;
+        this.failureRate = failureRate;
+        this.failureRateWindow = failureRateWindow;
+        this.coolOff = coolOff;
+    }
+
+    @Override
+    protected Processor createProcessor() {
+        return new OsgiFailoverLoadBalancer(
+            maximumFailoverAttempts, consecutiveFailures, failureRate, failureRateWindow, coolOff, createSlowStart()) {
+
+            @Override
+            public List<Processor> getProcessors() {
+                return services;
+            }
+        };
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.camel.osgi.service;
+
+import org.apache.camel.Component;
+import org.apache.camel.Consumer;
+import org.apache.camel.Processor;
+import org.apache.camel.Producer;
+
+/**
+ * The {@code OsgiLatencyEndpoint} is the endpoint that creates {@link OsgiLatencyProducer} in order to send
+ * exchanges to OSGi consumers by means of {@link OsgiLatencyLoadBalancer}.
+ */
+public class OsgiLatencyEndpoint extends OsgiDefaultEndpoint {
+
+    private double smoothing = 0.2;
+    private double probeRatio = 0.05;
+
+    public OsgiLatencyEndpoint(String endpointUri, Component component) {
+        super(endpointUri, component);
+    }
+
+    @Override
+    public Consumer createConsumer(Processor processor) throws Exception {
+        throw new UnsupportedOperationException(String.format("[%s] does not support consumers. Use [%s] instead.",
+            getClass().getName(), getClass().getSuperclass().getName()));
+    }
+
+    @Override
+    public Producer createProducer() throws Exception {
+        if (getSmoothing() <= 0 || getSmoothing() > 1) {
+            throw new IllegalArgumentException(
+                String.format("[smoothing] parameter must be in range (0, 1] for [%s]: [%s]", this, getSmoothing()));
+        }
+        if (getProbeRatio() < 0 || getProbeRatio() > 1) {
+            throw new IllegalArgumentException(
+                String.format("[probeRatio] parameter must be in range [0, 1] for [%s]: [%s]", this, getProbeRatio()));
+        }
+        return new OsgiLatencyProducer(this, getProps(), getSmoothing(), getProbeRatio());
+    }
+
+    public double getSmoothing() {
+        return smoothing;
+    }
+
+    public void setSmoothing(double smoothing) {
+        this.smoothing = smoothing;
+    }
+
+    public double getProbeRatio() {
+        return probeRatio;
+    }
+
+    public void setProbeRatio(double probeRatio) {
+        this.probeRatio = probeRatio;
+    }
+}
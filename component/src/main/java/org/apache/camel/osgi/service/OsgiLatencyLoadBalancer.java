@@ -0,0 +1,194 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.camel.osgi.service;
+
+import org.apache.camel.AsyncCallback;
+import org.apache.camel.AsyncProcessor;
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+import org.apache.camel.util.AsyncProcessorConverterHelper;
+import org.apache.camel.util.AsyncProcessorHelper;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The {@code OsgiLatencyLoadBalancer} is the load balancer that prefers the OSGi services with the lowest response
+ * time.
+ * <p/>
+ * The response time of every service is measured as the exponentially weighted moving average, where the weight of
+ * the latest exchange is specified by the {@code smoothing} factor. The load balancer samples two random services and
+ * selects the one with the lower expected latency, i.e. the average response time multiplied by the number of exchanges
+ * in flight plus one, so that the fastest service is not overloaded. Failed exchanges are not taken into account, so
+ * that a service failing fast does not look like the fastest one. A service that has not processed any exchange
+ * successfully yet is assumed to be as fast as the service it's compared with, so that it's preferred only while it
+ * has no more exchanges in flight than the other one.
+ * <p/>
+ * To let the estimates of the slower services recover, the {@code probeRatio} part of exchanges is sent to the random
+ * services regardless of their response time.
+ * <p/>
+ * If the slow start is enabled and the selected service is newly registered and not admitted, the other sampled
+ * service is selected instead, so the probes are not subject to the slow start.
+ */
+public class OsgiLatencyLoadBalancer extends OsgiSnapshotLoadBalancer<OsgiLatencyLoadBalancer.ServiceLatency> {
+
+    private final double smoothing;
+    private final double probeRatio;
+
+    public OsgiLatencyLoadBalancer(double smoothing, double probeRatio) {
+        this(smoothing, probeRatio, OsgiSlowStart.DISABLED);
+    }
+
+    /**
+     * Creates an instance of {@code OsgiLatencyLoadBalancer}.
+     *
+     * @param smoothing the weight of the latest response time in the average, must be in range {@code (0, 1]}
+     * @param probeRatio the part of exchanges sent to random services, must be in range {@code [0, 1]}
+     * @param slowStart the slow start to admit newly registered services with
+     */
+    public OsgiLatencyLoadBalancer(double smoothing, double probeRatio, OsgiSlowStart slowStart) {
+        super(ServiceLatency.class, slowStart);
+        if (smoothing <= 0 || smoothing > 1) {
+            throw new IllegalArgumentException(String.format("Smoothing must be in range (0, 1]: [%s]", smoothing));
+        }
+        if (probeRatio < 0 || probeRatio > 1) {
+            throw new IllegalArgumentException(String.format("Probe ratio must be in range [0, 1]: [%s]", probeRatio));
+        }
+        this.smoothing = smoothing;
+        this.probeRatio = probeRatio;
+    }
+
+    @Override
+    public boolean process(final Exchange exchange, final AsyncCallback callback) {
+        final ServiceLatency latency = choose();
+        if (latency == null) {
+            exchange.setException(new IllegalStateException("No processors available to process " + exchange));
+            callback.done(true);
+            return true;
+        }
+
+        latency.active.incrementAndGet();
+        final long start = System.nanoTime();
+        AsyncProcessor processor = AsyncProcessorConverterHelper.convert(latency.processor);
+        return AsyncProcessorHelper.process(processor, exchange, new AsyncCallback() {
+            @Override
+            public void done(boolean doneSync) {
+                if (exchange.getException() == null) {
+                    latency.update(System.nanoTime() - start, smoothing);
+                }
+                latency.active.decrementAndGet();
+                callback.done(doneSync);
+            }
+        });
+    }
+
+    @Override
+    protected Processor chooseProcessor(List<Processor> processors, Exchange exchange) {
+        ServiceLatency latency = choose();
+        return latency != null ? latency.processor : null;
+    }
+
+    /**
+     * Returns the average response time of the given service.
+     *
+     * @param processor the service to get the response time of
+     *
+     * @return the average response time in nanoseconds, {@code 0} if the service has not processed any exchange
+     * successfully yet, or {@code -1} if the service is unknown to the load balancer
+     */
+    public double getAverageLatency(Processor processor) {
+        ServiceLatency latency = getState(processor);
+        return latency != null ? latency.get() : -1;
+    }
+
+    @Override
+    protected ServiceLatency createState(Processor processor) {
+        return new ServiceLatency(processor);
+    }
+
+    private ServiceLatency choose() {
+        ServiceLatency[] current = getStates();
+        switch (current.length) {
+            case 0:
+                return null;
+            case 1:
+                return current[0];
+            default:
+                Random random = RANDOM.get();
+                int first = random.nextInt(current.length);
+                if (probeRatio > 0 && random.nextDouble() < probeRatio) {
+                    return current[first];
+                }
+                int second = random.nextInt(current.length - 1);
+                if (second >= first) {
+                    second++;
+                }
+                if (!isFaster(current[first], current[second])) {
+                    int swap = first;
+                    first = second;
+                    second = swap;
+                }
+                return admit(current[first].processor) ? current[first] : current[second];
+        }
+    }
+
+    /**
+     * Returns whether the first service is expected to respond not later than the second one. A service that has not
+     * responded yet gets the average response time of the other one, so that the services are compared by the number
+     * of exchanges in flight, and the one that has not responded yet wins the tie to get measured.
+     */
+    private static boolean isFaster(ServiceLatency first, ServiceLatency second) {
+        double firstAverage = first.get();
+        double secondAverage = second.get();
+        int firstActive = first.active.get();
+        int secondActive = second.active.get();
+        if (firstAverage == 0 || secondAverage == 0) {
+            return firstActive < secondActive || firstActive == secondActive && firstAverage == 0;
+        }
+        return firstAverage * (firstActive + 1) <= secondAverage * (secondActive + 1);
+    }
+
+    static final class ServiceLatency {
+        private final Processor processor;
+        private final AtomicInteger active = new AtomicInteger();
+
+        /**
+         * The bits of the average response time in nanoseconds as {@code double}.
+         */
+        private final AtomicLong average = new AtomicLong(Double.doubleToLongBits(0));
+
+        private ServiceLatency(Processor processor) {
+            this.processor = processor;
+        }
+
+        private double get() {
+            return Double.longBitsToDouble(average.get());
+        }
+
+        private void update(long latency, double smoothing) {
+            while (true) {
+                long bits = average.get();
+                double current = Double.longBitsToDouble(bits);
+                double next = current == 0 ? latency : current + smoothing * (latency - current);
+                if (average.compareAndSet(bits, Double.doubleToLongBits(next))) {
+                    return;
+                }
+            }
+        }
+    }
+
+}
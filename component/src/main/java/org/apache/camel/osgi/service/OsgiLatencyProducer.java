@@ -0,0 +1,48 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.camel.osgi.service;
+
+import org.apache.camel.Processor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@code OsgiLatencyProducer} is the producer that uses {@link OsgiLatencyLoadBalancer} to send exchanges to the
+ * OSGi consumers with the lowest response time.
+ */
+public class OsgiLatencyProducer extends OsgiDefaultProducer {
+
+    private final double smoothing;
+    private final double probeRatio;
+
+    public OsgiLatencyProducer(OsgiDefaultEndpoint endpoint, Map<String, Object> props, double smoothing,
+        double probeRatio) {
+
+        super(endpoint, props);
+        this.smoothing = smoothing;
+        this.probeRatio = probeRatio;
+    }
+
+    @Override
+    protected Processor createProcessor() {
+        return new OsgiLatencyLoadBalancer(smoothing, probeRatio, createSlowStart()) {
+            @Override
+            public List<Processor> getProcessors() {
+                return services;
+            }
+        };
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.camel.osgi.service;
+
+import org.apache.camel.AsyncCallback;
+import org.apache.camel.AsyncProcessor;
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+import org.apache.camel.util.AsyncProcessorConverterHelper;
+import org.apache.camel.util.AsyncProcessorHelper;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The {@code OsgiLeastActiveLoadBalancer} is the load balancer that sends exchanges to the OSGi services with the
+ * least number of exchanges in flight, so that a service which is stuck on a slow downstream does not receive its full
+ * share of exchanges.
+ * <p/>
+ * Instead of scanning all the services the load balancer samples two random services and selects the one with fewer
+ * exchanges in flight (the power of two choices), so the cost of selection does not depend on the number of services.
+ * Exchanges in flight are counted by the atomic counter of each service, so there is no global lock. The counter of a
+ * service survives other services coming and going, so the exchanges already sent to the service are still counted.
+ * <p/>
+ * If the slow start is enabled and the selected service is newly registered and not admitted, the other sampled
+ * service is selected instead.
+ */
+public class OsgiLeastActiveLoadBalancer extends OsgiSnapshotLoadBalancer<OsgiLeastActiveLoadBalancer.ActiveCounter> {
+
+    public OsgiLeastActiveLoadBalancer() {
+        this(OsgiSlowStart.DISABLED);
+    }
+
+    public OsgiLeastActiveLoadBalancer(OsgiSlowStart slowStart) {
+        super(ActiveCounter.class, slowStart);
+    }
+
+    @Override
+    public boolean process(final Exchange exchange, final AsyncCallback callback) {
+        final ActiveCounter counter = choose();
+        if (counter == null) {
+            exchange.setException(new IllegalStateException("No processors available to process " + exchange));
+            callback.done(true);
+            return true;
+        }
+
+        counter.active.incrementAndGet();
+        AsyncProcessor processor = AsyncProcessorConverterHelper.convert(counter.processor);
+        return AsyncProcessorHelper.process(processor, exchange, new AsyncCallback() {
+            @Override
+            public void done(boolean doneSync) {
+                counter.active.decrementAndGet();
+                callback.done(doneSync);
+            }
+        });
+    }
+
+    @Override
+    protected Processor chooseProcessor(List<Processor> processors, Exchange exchange) {
+        ActiveCounter counter = choose();
+        return counter != null ? counter.processor : null;
+    }
+
+    /**
+     * Returns the number of exchanges which are being processed by the given service.
+     *
+     * @param processor the service to get the number of exchanges of
+     *
+     * @return the number of exchanges in flight or {@code -1} if the service is unknown to the load balancer
+     */
+    public int getActiveCount(Processor processor) {
+        ActiveCounter counter = getState(processor);
+        return counter != null ? counter.active.get() : -1;
+    }
+
+    @Override
+    protected ActiveCounter createState(Processor processor) {
+        return new ActiveCounter(processor);
+    }
+
+    private ActiveCounter choose() {
+        ActiveCounter[] current = getStates();
+        switch (current.length) {
+            case 0:
+                return null;
+            case 1:
+                return current[0];
+            default:
+                Random random = RANDOM.get();
+                int first = random.nextInt(current.length);
+                int second = random.nextInt(current.length - 1);
+                if (second >= first) {
+                    second++;
+                }
+                if (current[first].active.get() > current[second].active.get()) {
+                    int swap = first;
+                    first = second;
+                    second = swap;
+                }
+                return admit(current[first].processor) ? current[first] : current[second];
+        }
+    }
+
+    static final class ActiveCounter {
+        private final Processor processor;
+        private final AtomicInteger active = new AtomicInteger();
+
+        private ActiveCounter(Processor processor) {
+            this.processor = processor;
+        }
+    }
+
+}
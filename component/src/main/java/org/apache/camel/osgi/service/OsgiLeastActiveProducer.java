@@ -0,0 +1,41 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.camel.osgi.service;
+
+import org.apache.camel.Processor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@code OsgiLeastActiveProducer} is the producer that uses {@link OsgiLeastActiveLoadBalancer} to send exchanges
+ * to the OSGi consumers with the least number of exchanges in flight.
+ */
+public class OsgiLeastActiveProducer extends OsgiDefaultProducer {
+
+    public OsgiLeastActiveProducer(OsgiDefaultEndpoint endpoint, Map<String, Object> props) {
+        super(endpoint, props);
+    }
+
+    @Override
+    protected Processor createProcessor() {
+        return new OsgiLeastActiveLoadBalancer(createSlowStart()) {
+            @Override
+            public List<Processor> getProcessors() {
+                return services;
+            }
+        };
+    }
+}
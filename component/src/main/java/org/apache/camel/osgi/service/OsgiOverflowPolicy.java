@@ -0,0 +1,39 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.camel.osgi.service;
+
+/**
+ * The {@code OsgiOverflowPolicy} determines what a queued {@link OsgiDefaultConsumer} does with an incoming exchange
+ * when its queue is full.
+ *
+ * @see OsgiDefaultEndpoint#getQueueSize()
+ */
+public enum OsgiOverflowPolicy {
+
+    /**
+     * The producer is blocked until there is a free space in the queue.
+     */
+    Block,
+
+    /**
+     * The exchange is rejected by setting {@link java.util.concurrent.RejectedExecutionException} on it.
+     */
+    Reject,
+
+    /**
+     * The exchange is processed in the thread of the producer bypassing the queue.
+     */
+    CallerRuns
+}
@@ -21,10 +21,13 @@ import org.apache.camel.Producer;
 
 /**
  * The {@code OsgiRandomEndpoint} is the endpoint that uses creates {@link OsgiRandomProducer} in order to send
- * exchanges to OSGi consumers by means of {@link org.apache.camel.processor.loadbalancer.RandomLoadBalancer}.
+ * exchanges to OSGi consumers by means of {@link org.apache.camel.processor.loadbalancer.RandomLoadBalancer}, or by
+ * means of {@link OsgiLeastActiveLoadBalancer} if {@link #isTwoChoices() two choices} are enabled.
  */
 public class OsgiRandomEndpoint extends OsgiDefaultEndpoint {
 
+    private boolean twoChoices;
+
     public OsgiRandomEndpoint(String endpointUri, Component component) {
         super(endpointUri, component);
     }
@@ -37,7 +40,21 @@ public class OsgiRandomEndpoint extends OsgiDefaultEndpoint {
 
     @Override
     public Producer createProducer() throws Exception {
-        return new OsgiRandomProducer(this, getProps());
+        return new OsgiRandomProducer(this, getProps(), isTwoChoices());
+    }
+
+    /**
+     * Returns whether producers of this endpoint sample two random OSGi consumers and send an exchange to the one with
+     * fewer exchanges in flight instead of sending it to a single random consumer.
+     *
+     * @return {@code true} if the power of two choices is used, {@code false} otherwise
+     */
+    public boolean isTwoChoices() {
+        return twoChoices;
+    }
+
+    public void setTwoChoices(boolean twoChoices) {
+        this.twoChoices = twoChoices;
     }
 
 }
@@ -0,0 +1,60 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.camel.osgi.service;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+import org.apache.camel.processor.loadbalancer.RandomLoadBalancer;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The {@code OsgiRandomLoadBalancer} is the {@link RandomLoadBalancer} that ramps up the share of exchanges the newly
+ * registered OSGi services receive by means of the {@link OsgiSlowStart slow start}. Unlike its superclass it selects
+ * the services uniformly and without a lock.
+ * <p/>
+ * A selected service which is not admitted is replaced by another random one at most as many times as there are
+ * services, so the share of a newly registered service follows the slow start the closer, the more services there are.
+ */
+public class OsgiRandomLoadBalancer extends RandomLoadBalancer {
+
+    private final OsgiSlowStart slowStart;
+
+    public OsgiRandomLoadBalancer(OsgiSlowStart slowStart) {
+        this.slowStart = slowStart;
+    }
+
+    @Override
+    protected Processor chooseProcessor(List<Processor> processors, Exchange exchange) {
+        int size = processors.size();
+        if (size == 0) {
+            return null;
+        }
+        Random random = OsgiSnapshotLoadBalancer.RANDOM.get();
+        Processor first = processors.get(random.nextInt(size));
+        if (slowStart.admit(processors, first)) {
+            return first;
+        }
+        for (int i = 1; i < size; i++) {
+            Processor next = processors.get(random.nextInt(size));
+            if (slowStart.admit(processors, next)) {
+                return next;
+            }
+        }
+        return first;
+    }
+
+}
@@ -15,24 +15,42 @@
 package org.apache.camel.osgi.service;
 
 import org.apache.camel.Processor;
-import org.apache.camel.processor.loadbalancer.RandomLoadBalancer;
 
 import java.util.List;
 import java.util.Map;
 
 /**
- * The {@code OsgiRandomProducer} is the producer that uses {@link RandomLoadBalancer} to send exchanges to OSGi
+ * The {@code OsgiRandomProducer} is the producer that uses {@link OsgiRandomLoadBalancer} to send exchanges to OSGi
  * consumers.
+ * <p/>
+ * If two choices are enabled, the producer uses {@link OsgiLeastActiveLoadBalancer} instead, which samples two random
+ * consumers and sends an exchange to the one with fewer exchanges in flight. It keeps the constant cost of the random
+ * selection but avoids sending exchanges to the consumers which are already overloaded.
  */
 public class OsgiRandomProducer extends OsgiDefaultProducer {
 
+    private final boolean twoChoices;
+
     public OsgiRandomProducer(OsgiDefaultEndpoint endpoint, Map<String, Object> props) {
+        this(endpoint, props, false);
+    }
+
+    public OsgiRandomProducer(OsgiDefaultEndpoint endpoint, Map<String, Object> props, boolean twoChoices) {
         super(endpoint, props);
+        this.twoChoices = twoChoices;
     }
 
     @Override
     protected Processor createProcessor() {
-        return new RandomLoadBalancer() {
+        if (twoChoices) {
+            return new OsgiLeastActiveLoadBalancer(createSlowStart()) {
+                @Override
+                public List<Processor> getProcessors() {
+                    return services;
+                }
+            };
+        }
+        return new OsgiRandomLoadBalancer(createSlowStart()) {
             @Override
             public List<Processor> getProcessors() {
                 return services;
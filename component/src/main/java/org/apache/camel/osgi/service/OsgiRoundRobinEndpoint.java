@@ -21,7 +21,7 @@ import org.apache.camel.Producer;
 
 /**
  * The {@code OsgiRoundRobinEndpoint} is the endpoint that uses creates {@link OsgiRoundRobinProducer} in order to send
- * exchanges to OSGi consumers by means of {@link org.apache.camel.processor.loadbalancer.RoundRobinLoadBalancer}.
+ * exchanges to OSGi consumers by means of {@link OsgiRoundRobinLoadBalancer}.
  */
 public class OsgiRoundRobinEndpoint extends OsgiDefaultEndpoint {
 
@@ -0,0 +1,80 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.camel.osgi.service;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The {@code OsgiRoundRobinLoadBalancer} is the load balancer that sends exchanges to OSGi services in round-robin
+ * fashion without any shared state being written while selecting a service.
+ * <p/>
+ * Each thread has its own cursor which starts at a random position and moves over the immutable snapshot of the
+ * services, so that every thread visits the services in turn, and the exchanges are distributed evenly in aggregate
+ * without a shared counter or a lock. Until the load balancer is notified about any service the services are selected
+ * from the given processors.
+ * <p/>
+ * If the slow start is enabled, the cursor skips the newly registered services which are not admitted, so that their
+ * turns go to the next services.
+ */
+public class OsgiRoundRobinLoadBalancer extends OsgiSnapshotLoadBalancer<Processor> {
+
+    private final ThreadLocal<int[]> cursor = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[] {new Random().nextInt(Integer.MAX_VALUE)};
+        }
+    };
+
+    public OsgiRoundRobinLoadBalancer() {
+        this(OsgiSlowStart.DISABLED);
+    }
+
+    public OsgiRoundRobinLoadBalancer(OsgiSlowStart slowStart) {
+        super(Processor.class, slowStart);
+    }
+
+    @Override
+    protected Processor chooseProcessor(List<Processor> processors, Exchange exchange) {
+        Processor[] current = getStates();
+        if (current.length == 0) {
+            current = processors.toArray(new Processor[processors.size()]);
+        }
+        if (current.length == 0) {
+            return null;
+        }
+        int[] position = cursor.get();
+        Processor first = current[(position[0]++ & Integer.MAX_VALUE) % current.length];
+        if (admit(first)) {
+            return first;
+        }
+        for (int i = 1; i < current.length; i++) {
+            Processor next = current[(position[0]++ & Integer.MAX_VALUE) % current.length];
+            if (admit(next)) {
+                return next;
+            }
+        }
+        return first;
+    }
+
+    @Override
+    protected Processor createState(Processor processor) {
+        return processor;
+    }
+
+}
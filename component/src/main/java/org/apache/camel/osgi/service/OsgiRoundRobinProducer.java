@@ -15,14 +15,13 @@
 package org.apache.camel.osgi.service;
 
 import org.apache.camel.Processor;
-import org.apache.camel.processor.loadbalancer.RoundRobinLoadBalancer;
 
 import java.util.List;
 import java.util.Map;
 
 /**
- * The {@code OsgiRoundRobinProducer} is the producer that uses {@link RoundRobinLoadBalancer} to send exchanges to OSGi
- * consumers.
+ * The {@code OsgiRoundRobinProducer} is the producer that uses {@link OsgiRoundRobinLoadBalancer} to send exchanges to
+ * OSGi consumers.
  */
 public class OsgiRoundRobinProducer extends OsgiDefaultProducer {
 
@@ -32,7 +31,7 @@ public class OsgiRoundRobinProducer extends OsgiDefaultProducer {
 
     @Override
     protected Processor createProcessor() {
-        return new RoundRobinLoadBalancer() {
+        return new OsgiRoundRobinLoadBalancer(createSlowStart()) {
             @Override
             public List<Processor> getProcessors() {
                 return services;
@@ -0,0 +1,253 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.camel.osgi.service;
+
+import org.apache.camel.CamelContext;
+import org.apache.camel.Endpoint;
+import org.apache.camel.Exchange;
+import org.apache.camel.ExchangePattern;
+import org.apache.camel.Message;
+import org.apache.camel.spi.Synchronization;
+import org.apache.camel.spi.UnitOfWork;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@code OsgiSharedExchange} is a thin wrapper of the exchange sent by the producer, which allows the consumer to
+ * process this exchange without copying it.
+ * <p/>
+ * Only {@link #getContext()} and {@link #getFromEndpoint()} are overridden to return the {@code CamelContext} and the
+ * endpoint of the consumer, all the other methods are delegated to the original exchange, so that messages,
+ * properties and the unit of work are shared between the producer and the consumer.
+ *
+ * @see OsgiDefaultConsumer
+ */
+public class OsgiSharedExchange implements Exchange {
+
+    private final Exchange exchange;
+    private final CamelContext context;
+    private Endpoint fromEndpoint;
+
+    public OsgiSharedExchange(Exchange exchange, Endpoint fromEndpoint) {
+        this.exchange = exchange;
+        this.context = fromEndpoint.getCamelContext();
+        this.fromEndpoint = fromEndpoint;
+    }
+
+    /**
+     * Returns the original exchange sent by the producer.
+     *
+     * @return the original exchange
+     */
+    public Exchange getExchange() {
+        return exchange;
+    }
+
+    @Override
+    public CamelContext getContext() {
+        return context;
+    }
+
+    @Override
+    public Endpoint getFromEndpoint() {
+        return fromEndpoint;
+    }
+
+    @Override
+    public void setFromEndpoint(Endpoint fromEndpoint) {
+        this.fromEndpoint = fromEndpoint;
+    }
+
+    @Override
+    public Exchange copy() {
+        return new OsgiSharedExchange(exchange.copy(), fromEndpoint);
+    }
+
+    @Override
+    public ExchangePattern getPattern() {
+        return exchange.getPattern();
+    }
+
+    @Override
+    public void setPattern(ExchangePattern pattern) {
+        exchange.setPattern(pattern);
+    }
+
+    @Override
+    public Object getProperty(String name) {
+        return exchange.getProperty(name);
+    }
+
+    @Override
+    public Object getProperty(String name, Object defaultValue) {
+        return exchange.getProperty(name, defaultValue);
+    }
+
+    @Override
+    public <T> T getProperty(String name, Class<T> type) {
+        return exchange.getProperty(name, type);
+    }
+
+    @Override
+    public <T> T getProperty(String name, Object defaultValue, Class<T> type) {
+        return exchange.getProperty(name, defaultValue, type);
+    }
+
+    @Override
+    public void setProperty(String name, Object value) {
+        exchange.setProperty(name, value);
+    }
+
+    @Override
+    public Object removeProperty(String name) {
+        return exchange.removeProperty(name);
+    }
+
+    @Override
+    public Map<String, Object> getProperties() {
+        return exchange.getProperties();
+    }
+
+    @Override
+    public boolean hasProperties() {
+        return exchange.hasProperties();
+    }
+
+    @Override
+    public Message getIn() {
+        return exchange.getIn();
+    }
+
+    @Override
+    public <T> T getIn(Class<T> type) {
+        return exchange.getIn(type);
+    }
+
+    @Override
+    public void setIn(Message in) {
+        exchange.setIn(in);
+    }
+
+    @Override
+    public Message getOut() {
+        return exchange.getOut();
+    }
+
+    @Override
+    public <T> T getOut(Class<T> type) {
+        return exchange.getOut(type);
+    }
+
+    @Override
+    public boolean hasOut() {
+        return exchange.hasOut();
+    }
+
+    @Override
+    public void setOut(Message out) {
+        exchange.setOut(out);
+    }
+
+    @Override
+    public Exception getException() {
+        return exchange.getException();
+    }
+
+    @Override
+    public <T> T getException(Class<T> type) {
+        return exchange.getException(type);
+    }
+
+    @Override
+    public void setException(Throwable t) {
+        exchange.setException(t);
+    }
+
+    @Override
+    public boolean isFailed() {
+        return exchange.isFailed();
+    }
+
+    @Override
+    public boolean isTransacted() {
+        return exchange.isTransacted();
+    }
+
+    @Override
+    public Boolean isExternalRedelivered() {
+        return exchange.isExternalRedelivered();
+    }
+
+    @Override
+    public boolean isRollbackOnly() {
+        return exchange.isRollbackOnly();
+    }
+
+    @Override
+    public String getFromRouteId() {
+        return exchange.getFromRouteId();
+    }
+
+    @Override
+    public void setFromRouteId(String fromRouteId) {
+        exchange.setFromRouteId(fromRouteId);
+    }
+
+    @Override
+    public UnitOfWork getUnitOfWork() {
+        return exchange.getUnitOfWork();
+    }
+
+    @Override
+    public void setUnitOfWork(UnitOfWork unitOfWork) {
+        exchange.setUnitOfWork(unitOfWork);
+    }
+
+    @Override
+    public String getExchangeId() {
+        return exchange.getExchangeId();
+    }
+
+    @Override
+    public void setExchangeId(String id) {
+        exchange.setExchangeId(id);
+    }
+
+    @Override
+    public void addOnCompletion(Synchronization onCompletion) {
+        exchange.addOnCompletion(onCompletion);
+    }
+
+    @Override
+    public boolean containsOnCompletion(Synchronization onCompletion) {
+        return exchange.containsOnCompletion(onCompletion);
+    }
+
+    @Override
+    public void handoverCompletions(Exchange target) {
+        exchange.handoverCompletions(target);
+    }
+
+    @Override
+    public List<Synchronization> handoverCompletions() {
+        return exchange.handoverCompletions();
+    }
+
+    @Override
+    public String toString() {
+        return exchange.toString();
+    }
+}
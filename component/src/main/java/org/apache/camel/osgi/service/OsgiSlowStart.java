@@ -0,0 +1,116 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.camel.osgi.service;
+
+import org.apache.camel.Processor;
+import org.apache.camel.osgi.service.util.OsgiServiceCollection;
+
+import java.util.List;
+
+/**
+ * The {@code OsgiSlowStart} ramps up the share of exchanges a newly registered OSGi service receives from a load
+ * balancer, so that the service gets warmed up before it receives its full share.
+ * <p/>
+ * The share of a service grows linearly from zero to one during the slow start window which starts when the
+ * registration of the service is received by the {@link OsgiServiceCollection} the services are selected from. The
+ * services registered before the collection started tracking, as well as the services selected from any other list,
+ * are not ramped up.
+ * <p/>
+ * Load balancers {@link #admit(List, Processor) admit} the service they have selected with the probability equal to
+ * its share and select another one otherwise, so the same ramp is applied regardless of the way the services are
+ * selected. A load balancer which has nothing else to select sends the exchange to the service it has selected
+ * first, so a newly registered service is never left without exchanges if it's the only one.
+ */
+public class OsgiSlowStart {
+
+    /**
+     * The slow start which does not ramp up any service.
+     */
+    public static final OsgiSlowStart DISABLED = new OsgiSlowStart(0);
+
+    private final long window;
+
+    /**
+     * Creates an instance of {@code OsgiSlowStart}.
+     *
+     * @param window the time in milliseconds the share of a newly registered service ramps up for, zero or less to
+     * give newly registered services their full share at once
+     */
+    public OsgiSlowStart(long window) {
+        this.window = window;
+    }
+
+    /**
+     * Returns the time in milliseconds the share of a newly registered service ramps up for.
+     *
+     * @return the slow start window, zero or less if the slow start is disabled
+     */
+    public long getWindow() {
+        return window;
+    }
+
+    public boolean isEnabled() {
+        return window > 0;
+    }
+
+    /**
+     * Returns the share of exchanges the service registered at the given time must receive.
+     *
+     * @param registrationTime the time in milliseconds the service has been registered at, {@code 0} if it's unknown
+     * @param now the current time in milliseconds
+     *
+     * @return the share of the service in range {@code [0, 1]}
+     */
+    public double getShare(long registrationTime, long now) {
+        long elapsed = now - registrationTime;
+        if (!isEnabled() || registrationTime <= 0 || elapsed >= window) {
+            return 1;
+        }
+        return (double) Math.max(elapsed, 0) / window;
+    }
+
+    /**
+     * Decides whether the selected service may receive the exchange.
+     *
+     * @param processors the services the service has been selected from
+     * @param processor the selected service
+     *
+     * @return {@code true} if the exchange may be sent to the service, {@code false} if another service should be
+     * selected
+     */
+    public boolean admit(List<Processor> processors, Processor processor) {
+        if (!isEnabled()) {
+            return true;
+        }
+        double share = getShare(getRegistrationTime(processors, processor), System.currentTimeMillis());
+        return share >= 1 || OsgiSnapshotLoadBalancer.RANDOM.get().nextDouble() < share;
+    }
+
+    /**
+     * Returns the time the given service has been registered at.
+     *
+     * @param processors the services the service has been selected from
+     * @param processor the service to get the registration time of
+     *
+     * @return the time in milliseconds the service has been registered at, {@code 0} if it's unknown
+     */
+    @SuppressWarnings("unchecked")
+    protected long getRegistrationTime(List<Processor> processors, Processor processor) {
+        return processors instanceof OsgiServiceCollection
+            ? ((OsgiServiceCollection<Processor>) processors).getRegistrationTime(processor)
+            : 0;
+    }
+
+}
@@ -0,0 +1,188 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.camel.osgi.service;
+
+import org.apache.camel.Processor;
+import org.apache.camel.osgi.service.util.OsgiServiceCollectionListener;
+import org.apache.camel.processor.loadbalancer.QueueLoadBalancer;
+
+import java.lang.reflect.Array;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * The {@code OsgiSnapshotLoadBalancer} is the base class of the load balancers that keep some state for every OSGi
+ * service they select from, e.g. the number of exchanges in flight or the circuit breaker of the service.
+ * <p/>
+ * The states are kept in the immutable snapshot which is rebuilt when the load balancer is notified by the
+ * {@link org.apache.camel.osgi.service.util.OsgiServiceCollection} it selects from, or when processors are added to
+ * or removed from the load balancer itself. The states of the services that are still available are carried over to
+ * the new snapshot, and the state of a service is dropped as soon as the service is unregistered. So selecting a
+ * service reads the current snapshot without locks.
+ * <p/>
+ * The service selected by a subclass can be checked against the {@link OsgiSlowStart slow start} of the load
+ * balancer, so that newly registered services are {@link #admit(Processor) admitted} gradually.
+ *
+ * @param <S> the type of the state of a service
+ */
+public abstract class OsgiSnapshotLoadBalancer<S> extends QueueLoadBalancer
+    implements OsgiServiceCollectionListener<Processor> {
+
+    protected static final ThreadLocal<Random> RANDOM = new ThreadLocal<Random>() {
+        @Override
+        protected Random initialValue() {
+            return new Random();
+        }
+    };
+
+    private final Class<S> stateType;
+    private final OsgiSlowStart slowStart;
+    private volatile Snapshot<S> snapshot;
+
+    protected OsgiSnapshotLoadBalancer(Class<S> stateType) {
+        this(stateType, OsgiSlowStart.DISABLED);
+    }
+
+    /**
+     * Creates an instance of {@code OsgiSnapshotLoadBalancer}.
+     *
+     * @param stateType the type of the state of a service
+     * @param slowStart the slow start to admit newly registered services with
+     */
+    protected OsgiSnapshotLoadBalancer(Class<S> stateType, OsgiSlowStart slowStart) {
+        this.stateType = stateType;
+        this.slowStart = slowStart;
+        this.snapshot = new Snapshot<S>(new Processor[0], newStates(0));
+    }
+
+    /**
+     * Creates the state of the newly available service.
+     *
+     * @param processor the service to create the state of
+     *
+     * @return the state of the service
+     */
+    protected abstract S createState(Processor processor);
+
+    /**
+     * Returns the states of the currently available services in order of {@link #getProcessors()}. The returned array
+     * must not be modified.
+     *
+     * @return the states of the services
+     */
+    protected S[] getStates() {
+        return snapshot.states;
+    }
+
+    /**
+     * Returns the state of the given service.
+     *
+     * @param processor the service to get the state of
+     *
+     * @return the state of the service or {@code null} if the service is unknown to the load balancer
+     */
+    protected S getState(Processor processor) {
+        Snapshot<S> current = snapshot;
+        for (int i = 0; i < current.processors.length; i++) {
+            if (current.processors[i] == processor) {
+                return current.states[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Decides whether the selected service may receive the exchange according to the slow start of the load balancer.
+     *
+     * @param processor the selected service
+     *
+     * @return {@code true} if the exchange may be sent to the service, {@code false} if another service should be
+     * selected
+     */
+    protected boolean admit(Processor processor) {
+        return slowStart.admit(getProcessors(), processor);
+    }
+
+    @Override
+    public void addProcessor(Processor processor) {
+        super.addProcessor(processor);
+        refresh();
+    }
+
+    @Override
+    public void removeProcessor(Processor processor) {
+        super.removeProcessor(processor);
+        refresh();
+    }
+
+    @Override
+    public void serviceAdded(Processor service) {
+        refresh();
+    }
+
+    /**
+     * Does nothing as the states of the services do not depend on service properties by default.
+     */
+    @Override
+    public void serviceModified(Processor service) {
+    }
+
+    @Override
+    public void serviceRemoved(Processor service) {
+        refresh();
+    }
+
+    /**
+     * Rebuilds the snapshot of the services keeping the states of the services that are still available.
+     */
+    protected synchronized void refresh() {
+        Snapshot<S> current = snapshot;
+        Map<Processor, S> existing = new IdentityHashMap<Processor, S>();
+        for (int i = 0; i < current.processors.length; i++) {
+            existing.put(current.processors[i], current.states[i]);
+        }
+
+        List<Processor> processors = getProcessors();
+        Processor[] services = processors.toArray(new Processor[processors.size()]);
+        S[] states = newStates(services.length);
+        for (int i = 0; i < services.length; i++) {
+            S state = existing.get(services[i]);
+            if (state == null) {
+                state = createState(services[i]);
+                existing.put(services[i], state);
+            }
+            states[i] = state;
+        }
+        snapshot = new Snapshot<S>(services, states);
+    }
+
+    @SuppressWarnings("unchecked")
+    private S[] newStates(int length) {
+        return (S[]) Array.newInstance(stateType, length);
+    }
+
+    private static final class Snapshot<S> {
+        private final Processor[] processors;
+        private final S[] states;
+
+        private Snapshot(Processor[] processors, S[] states) {
+            this.processors = processors;
+            this.states = states;
+        }
+    }
+
+}
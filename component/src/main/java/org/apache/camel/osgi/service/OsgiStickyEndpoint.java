@@ -0,0 +1,77 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.camel.osgi.service;
+
+import org.apache.camel.Component;
+import org.apache.camel.Consumer;
+import org.apache.camel.Expression;
+import org.apache.camel.Processor;
+import org.apache.camel.Producer;
+
+/**
+ * The {@code OsgiStickyEndpoint} is the endpoint that creates {@link OsgiStickyProducer} in order to send exchanges
+ * to OSGi consumers by means of {@link OsgiStickyLoadBalancer}.
+ * <p/>
+ * The key of the exchanges is specified by the {@code key} expression written in the {@code keyLanguage} language.
+ */
+public class OsgiStickyEndpoint extends OsgiDefaultEndpoint {
+
+    private String key;
+    private String keyLanguage = "simple";
+    private int virtualNodes = 100;
+
+    public OsgiStickyEndpoint(String endpointUri, Component component) {
+        super(endpointUri, component);
+    }
+
+    @Override
+    public Consumer createConsumer(Processor processor) throws Exception {
+        throw new UnsupportedOperationException(String.format("[%s] does not support consumers. Use [%s] instead.",
+            getClass().getName(), getClass().getSuperclass().getName()));
+    }
+
+    @Override
+    public Producer createProducer() throws Exception {
+        if (getKey() == null) {
+            throw new IllegalArgumentException(String.format("[key] parameter must be specified for [%s]", this));
+        }
+        Expression expression = getCamelContext().resolveLanguage(getKeyLanguage()).createExpression(getKey());
+        return new OsgiStickyProducer(this, getProps(), expression, getVirtualNodes());
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    public String getKeyLanguage() {
+        return keyLanguage;
+    }
+
+    public void setKeyLanguage(String keyLanguage) {
+        this.keyLanguage = keyLanguage;
+    }
+
+    public int getVirtualNodes() {
+        return virtualNodes;
+    }
+
+    public void setVirtualNodes(int virtualNodes) {
+        this.virtualNodes = virtualNodes;
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.camel.osgi.service;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.Expression;
+import org.apache.camel.Processor;
+import org.apache.camel.osgi.service.util.OsgiServiceCollectionListener;
+import org.apache.camel.processor.loadbalancer.QueueLoadBalancer;
+import org.osgi.framework.Constants;
+import org.osgi.framework.ServiceReference;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The {@code OsgiStickyLoadBalancer} is the load balancer that sends exchanges with the same key to the same OSGi
+ * service by means of the consistent hashing.
+ * <p/>
+ * Every service is placed on the hash ring at the specified number of points (virtual nodes) which depend only on the
+ * {@link Constants#SERVICE_ID service.id} of the service, so that all the producers place the services in the same way.
+ * The exchange is sent to the service which owns the first point of the ring that follows the hash of the exchange key.
+ * When a service comes or goes only its own points are added to or removed from the ring, so only about {@code 1/N}
+ * of the keys are moved to other services.
+ * <p/>
+ * The key is evaluated by the given {@link Expression}. Exchanges without key are distributed between the services in
+ * round-robin fashion.
+ * <p/>
+ * The ring is immutable and is replaced when the load balancer is notified by the
+ * {@link org.apache.camel.osgi.service.util.OsgiServiceCollection} it selects from, or when processors are added to
+ * or removed from the load balancer itself. So the lookup of the service is a binary search without locks.
+ * <p/>
+ * If the slow start is enabled and the owner of the key is newly registered and not admitted, the exchange is sent to
+ * the owner of the next point of the ring, i.e. to the service which has owned the key before the new service came.
+ */
+public class OsgiStickyLoadBalancer extends QueueLoadBalancer implements OsgiServiceCollectionListener<Processor> {
+
+    private final Expression key;
+    private final int virtualNodes;
+    private final OsgiSlowStart slowStart;
+    private final AtomicInteger counter = new AtomicInteger();
+
+    private volatile Ring ring = new Ring(new Processor[0], new long[0], new Processor[0]);
+
+    public OsgiStickyLoadBalancer(Expression key, int virtualNodes) {
+        this(key, virtualNodes, OsgiSlowStart.DISABLED);
+    }
+
+    /**
+     * Creates an instance of {@code OsgiStickyLoadBalancer}.
+     *
+     * @param key the expression to evaluate the key of an exchange
+     * @param virtualNodes the number of points of every service on the hash ring
+     * @param slowStart the slow start to admit newly registered services with
+     */
+    public OsgiStickyLoadBalancer(Expression key, int virtualNodes, OsgiSlowStart slowStart) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key expression must be specified");
+        }
+        if (virtualNodes <= 0) {
+            throw new IllegalArgumentException(
+                String.format("The number of virtual nodes must be positive: [%s]", virtualNodes));
+        }
+        this.key = key;
+        this.virtualNodes = virtualNodes;
+        this.slowStart = slowStart;
+    }
+
+    @Override
+    protected Processor chooseProcessor(List<Processor> processors, Exchange exchange) {
+        Ring current = ring;
+        if (current.services.length == 0) {
+            return null;
+        }
+
+        Object value = key.evaluate(exchange, Object.class);
+        if (value == null) {
+            int start = counter.getAndIncrement() & Integer.MAX_VALUE;
+            for (int i = 0; i < current.services.length; i++) {
+                Processor service = current.services[(start + i) % current.services.length];
+                if (slowStart.admit(processors, service)) {
+                    return service;
+                }
+            }
+            return current.services[start % current.services.length];
+        }
+
+        int index = Arrays.binarySearch(current.points, mix(value.hashCode()));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        if (index == current.points.length) {
+            index = 0;
+        }
+        Processor owner = current.owners[index];
+        if (slowStart.admit(processors, owner)) {
+            return owner;
+        }
+
+        // the keys of the service which is not admitted yet are owned by the next services of the ring
+        Processor rejected = owner;
+        for (int i = 1, attempts = 1; i < current.points.length && attempts < current.services.length; i++) {
+            Processor next = current.owners[(index + i) % current.points.length];
+            if (next != rejected) {
+                if (slowStart.admit(processors, next)) {
+                    return next;
+                }
+                rejected = next;
+                attempts++;
+            }
+        }
+        return owner;
+    }
+
+    @Override
+    public void addProcessor(Processor processor) {
+        super.addProcessor(processor);
+        serviceAdded(processor);
+    }
+
+    @Override
+    public void removeProcessor(Processor processor) {
+        super.removeProcessor(processor);
+        serviceRemoved(processor);
+    }
+
+    @Override
+    public synchronized void serviceAdded(Processor service) {
+        Ring current = ring;
+        for (Processor existing : current.services) {
+            if (existing == service) {
+                return;
+            }
+        }
+        Processor[] services = Arrays.copyOf(current.services, current.services.length + 1);
+        services[current.services.length] = service;
+
+        long[] added = new long[virtualNodes];
+        long id = getId(service);
+        for (int i = 0; i < virtualNodes; i++) {
+            added[i] = mix((id << 32) | i);
+        }
+        Arrays.sort(added);
+
+        // merge the points of the new service into the ring
+        int size = current.points.length + added.length;
+        long[] points = new long[size];
+        Processor[] owners = new Processor[size];
+        for (int i = 0, j = 0, k = 0; k < size; k++) {
+            if (j == added.length || (i < current.points.length && current.points[i] <= added[j])) {
+                points[k] = current.points[i];
+                owners[k] = current.owners[i++];
+            } else {
+                points[k] = added[j++];
+                owners[k] = service;
+            }
+        }
+        ring = new Ring(services, points, owners);
+    }
+
+    @Override
+    public void serviceModified(Processor service) {
+        // points of the service depend only on its id which cannot be modified
+    }
+
+    @Override
+    public synchronized void serviceRemoved(Processor service) {
+        Ring current = ring;
+        int index = -1;
+        for (int i = 0; i < current.services.length; i++) {
+            if (current.services[i] == service) {
+                index = i;
+                break;
+            }
+        }
+        if (index < 0) {
+            return;
+        }
+        Processor[] services = new Processor[current.services.length - 1];
+        System.arraycopy(current.services, 0, services, 0, index);
+        System.arraycopy(current.services, index + 1, services, index, services.length - index);
+
+        int size = current.points.length - virtualNodes;
+        long[] points = new long[size];
+        Processor[] owners = new Processor[size];
+        for (int i = 0, k = 0; i < current.owners.length; i++) {
+            if (current.owners[i] != service) {
+                points[k] = current.points[i];
+                owners[k++] = current.owners[i];
+            }
+        }
+        ring = new Ring(services, points, owners);
+    }
+
+    private static long getId(Processor service) {
+        Object id = service instanceof ServiceReference
+            ? ((ServiceReference) service).getProperty(Constants.SERVICE_ID)
+            : null;
+        return id instanceof Number ? ((Number) id).longValue() : System.identityHashCode(service);
+    }
+
+    /**
+     * Spreads bits of the given value all over the result, so that close values are placed far from each other on
+     * the ring (the finalizer of the MurmurHash3).
+     */
+    private static long mix(long value) {
+        long h = value;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static class Ring {
+        private final Processor[] services;
+        private final long[] points;
+        private final Processor[] owners;
+
+        private Ring(Processor[] services, long[] points, Processor[] owners) {
+            this.services = services;
+            this.points = points;
+            this.owners = owners;
+        }
+    }
+
+}
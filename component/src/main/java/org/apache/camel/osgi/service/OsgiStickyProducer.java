@@ -0,0 +1,49 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.camel.osgi.service;
+
+import org.apache.camel.Expression;
+import org.apache.camel.Processor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@code OsgiStickyProducer} is the producer that uses {@link OsgiStickyLoadBalancer} to send exchanges with the
+ * same key to the same OSGi consumer.
+ */
+public class OsgiStickyProducer extends OsgiDefaultProducer {
+
+    private final Expression key;
+    private final int virtualNodes;
+
+    public OsgiStickyProducer(OsgiDefaultEndpoint endpoint, Map<String, Object> props, Expression key,
+        int virtualNodes) {
+
+        super(endpoint, props);
+        this.key = key;
+        this.virtualNodes = virtualNodes;
+    }
+
+    @Override
+    protected Processor createProcessor() {
+        return new OsgiStickyLoadBalancer(key, virtualNodes, createSlowStart()) {
+            @Override
+            public List<Processor> getProcessors() {
+                return services;
+            }
+        };
+    }
+}
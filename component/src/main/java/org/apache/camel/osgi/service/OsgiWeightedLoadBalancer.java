@@ -0,0 +1,251 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.camel.osgi.service;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+import org.apache.camel.osgi.service.util.OsgiServiceCollection;
+import org.apache.camel.osgi.service.util.OsgiServiceCollectionListener;
+import org.apache.camel.processor.loadbalancer.QueueLoadBalancer;
+import org.osgi.framework.ServiceReference;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The {@code OsgiWeightedLoadBalancer} is the load balancer that distributes exchanges between OSGi services
+ * proportionally to their weights by means of the smooth weighted round-robin, i.e. the services of higher weights
+ * receive more exchanges but the exchanges sent to the same service are interleaved with the ones sent to the others.
+ * <p/>
+ * The weight of a service is read from the service property which name is specified while creating the load balancer.
+ * The weight can be either a number or a string representing an integer. Services without weight or with invalid one
+ * get the weight of {@code 1}, services with zero weight receive no exchanges.
+ * <p/>
+ * The order of the services is calculated ahead of time, so that selecting a service is a single atomic increment
+ * without locks. The order is at most {@value #MAX_SCHEDULE_LENGTH} services long (or as long as the number of
+ * services if there are more of them), larger weights are scaled down proportionally. If the load balancer is registered as a listener of the
+ * {@link org.apache.camel.osgi.service.util.OsgiServiceCollection} it selects from, the order is recalculated only
+ * when services come and go or their weights are modified. Otherwise it is calculated from the given processors on
+ * each exchange.
+ * <p/>
+ * If the slow start is enabled, the effective weight of a newly registered service ramps linearly from a small fraction
+ * of its weight up to the full weight during the slow start window, so that the service gets warmed up before it
+ * receives its full share of exchanges. The registration time is provided by the {@link OsgiServiceCollection} the
+ * services are selected from. The services registered before the collection started tracking are not ramped. While
+ * any service is ramping, the order is recalculated 10 times per window.
+ * <p/>
+ * As a rule processors to select from must implement {@link ServiceReference} to work as expected.
+ */
+public class OsgiWeightedLoadBalancer extends QueueLoadBalancer implements OsgiServiceCollectionListener<Processor> {
+
+    /**
+     * The number of steps the effective weight of a newly registered service ramps up in.
+     */
+    static final int RAMP_STEPS = 10;
+
+    /**
+     * The maximum length of the order of the services, not counting the services which weights are scaled up to
+     * {@code 1}.
+     */
+    static final int MAX_SCHEDULE_LENGTH = 1024;
+
+    private final String weightProperty;
+    private final OsgiSlowStart slowStart;
+    private final AtomicInteger counter = new AtomicInteger();
+
+    /**
+     * The services in order they should be selected in, {@code null} if the load balancer is not notified about
+     * the services.
+     */
+    private volatile Processor[] schedule;
+
+    /**
+     * The time to recalculate the order at while newly registered services are ramping up.
+     */
+    private final AtomicLong refreshTime = new AtomicLong(Long.MAX_VALUE);
+
+    public OsgiWeightedLoadBalancer(String weightProperty) {
+        this(weightProperty, 0);
+    }
+
+    /**
+     * Creates an instance of {@code OsgiWeightedLoadBalancer}.
+     *
+     * @param weightProperty the name of the service property to read the weight of a service from
+     * @param slowStart the time in milliseconds the weight of a newly registered service ramps up for, zero or less to
+     * give newly registered services the full weight at once
+     */
+    public OsgiWeightedLoadBalancer(String weightProperty, long slowStart) {
+        this(weightProperty, new OsgiSlowStart(slowStart));
+    }
+
+    /**
+     * Creates an instance of {@code OsgiWeightedLoadBalancer}.
+     *
+     * @param weightProperty the name of the service property to read the weight of a service from
+     * @param slowStart the slow start to ramp up the weights of newly registered services with
+     */
+    public OsgiWeightedLoadBalancer(String weightProperty, OsgiSlowStart slowStart) {
+        this.weightProperty = weightProperty;
+        this.slowStart = slowStart;
+    }
+
+    @Override
+    protected Processor chooseProcessor(List<Processor> processors, Exchange exchange) {
+        long time = refreshTime.get();
+        if (time != Long.MAX_VALUE && System.currentTimeMillis() >= time
+                && refreshTime.compareAndSet(time, Long.MAX_VALUE)) {
+            // only the thread that claims the refresh recalculates the order, the others use the current one
+            refresh();
+        }
+        Processor[] current = schedule;
+        if (current == null) {
+            current = createSchedule(processors, false);
+        }
+        if (current.length == 0) {
+            return null;
+        }
+        return current[(counter.getAndIncrement() & Integer.MAX_VALUE) % current.length];
+    }
+
+    @Override
+    public void serviceAdded(Processor service) {
+        refresh();
+    }
+
+    @Override
+    public void serviceModified(Processor service) {
+        refresh();
+    }
+
+    @Override
+    public void serviceRemoved(Processor service) {
+        refresh();
+    }
+
+    private synchronized void refresh() {
+        schedule = createSchedule(getProcessors(), true);
+    }
+
+    /**
+     * Returns the weight of the given service.
+     *
+     * @param processor the service to get the weight of
+     *
+     * @return the weight of the service, {@code 0} if the service must not receive exchanges
+     */
+    protected int getWeight(Processor processor) {
+        Object weight = processor instanceof ServiceReference
+            ? ((ServiceReference) processor).getProperty(weightProperty)
+            : null;
+        int answer = 1;
+        if (weight instanceof Number) {
+            answer = ((Number) weight).intValue();
+        } else if (weight != null) {
+            try {
+                answer = Integer.parseInt(weight.toString().trim());
+            } catch (NumberFormatException e) {
+                answer = 1;
+            }
+        }
+        return answer < 0 ? 1 : answer;
+    }
+
+    /**
+     * Returns the time the given service has been registered at.
+     *
+     * @param processor the service to get the registration time of
+     *
+     * @return the time in milliseconds the service has been registered at, {@code 0} if it's unknown
+     */
+    protected long getRegistrationTime(Processor processor) {
+        return slowStart.getRegistrationTime(getProcessors(), processor);
+    }
+
+    /**
+     * Calculates the order of the services according to the smooth weighted round-robin. The weights are divided by
+     * their greatest common divisor, so the length of the order is the sum of the divided weights. If the sum exceeds
+     * {@link #MAX_SCHEDULE_LENGTH}, the weights are scaled down proportionally keeping every non-zero weight at least
+     * {@code 1}, so that neither the order nor the time to calculate it depend on the magnitude of the weights.
+     *
+     * @param processors the services to calculate the order of
+     * @param ramp whether the weights of newly registered services must be ramped up
+     *
+     * @return the services in order they should be selected in
+     */
+    private Processor[] createSchedule(List<Processor> processors, boolean ramp) {
+        Processor[] services = processors.toArray(new Processor[processors.size()]);
+        long[] weights = new long[services.length];
+        long now = System.currentTimeMillis();
+        boolean ramping = false;
+
+        long gcd = 0;
+        for (int i = 0; i < services.length; i++) {
+            weights[i] = getWeight(services[i]);
+            if (ramp && slowStart.isEnabled() && weights[i] > 0) {
+                // all the weights are scaled to ramp up the weights of the newly registered services in steps
+                weights[i] *= RAMP_STEPS;
+                double share = slowStart.getShare(getRegistrationTime(services[i]), now);
+                if (share < 1) {
+                    weights[i] = Math.max(1, (long) (weights[i] * share));
+                    ramping = true;
+                }
+            }
+            gcd = gcd(gcd, weights[i]);
+        }
+        if (ramp) {
+            refreshTime.set(ramping ? now + Math.max(slowStart.getWindow() / RAMP_STEPS, 1) : Long.MAX_VALUE);
+        }
+
+        long total = 0;
+        if (gcd > 0) {
+            for (int i = 0; i < weights.length; i++) {
+                weights[i] /= gcd;
+                total += weights[i];
+            }
+        }
+        if (total > MAX_SCHEDULE_LENGTH) {
+            long scaled = 0;
+            for (int i = 0; i < weights.length; i++) {
+                if (weights[i] > 0) {
+                    weights[i] = Math.max(1, (long) ((double) weights[i] * MAX_SCHEDULE_LENGTH / total));
+                    scaled += weights[i];
+                }
+            }
+            total = scaled;
+        }
+
+        Processor[] answer = new Processor[(int) total];
+        long[] current = new long[weights.length];
+        for (int step = 0; step < answer.length; step++) {
+            int selected = -1;
+            for (int i = 0; i < weights.length; i++) {
+                current[i] += weights[i];
+                if (weights[i] > 0 && (selected < 0 || current[i] > current[selected])) {
+                    selected = i;
+                }
+            }
+            current[selected] -= total;
+            answer[step] = services[selected];
+        }
+        return answer;
+    }
+
+    private static long gcd(long a, long b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+
+}
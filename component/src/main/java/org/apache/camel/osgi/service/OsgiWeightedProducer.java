@@ -0,0 +1,47 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.camel.osgi.service;
+
+import org.apache.camel.Processor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@code OsgiWeightedProducer} is the producer that uses {@link OsgiWeightedLoadBalancer} to send exchanges to OSGi
+ * consumers proportionally to their weights.
+ */
+public class OsgiWeightedProducer extends OsgiDefaultProducer {
+
+    private final String weightProperty;
+    private final long slowStart;
+
+    public OsgiWeightedProducer(OsgiDefaultEndpoint endpoint, Map<String, Object> props, String weightProperty,
+            long slowStart) {
+        super(endpoint, props);
+        this.weightProperty = weightProperty;
+        this.slowStart = slowStart;
+    }
+
+    @Override
+    protected Processor createProcessor() {
+        return new OsgiWeightedLoadBalancer(weightProperty, slowStart) {
+            @Override
+            public List<Processor> getProcessors() {
+                return services;
+            }
+        };
+    }
+}
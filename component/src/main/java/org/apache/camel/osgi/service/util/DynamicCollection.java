@@ -14,30 +14,73 @@
 
 package org.apache.camel.osgi.service.util;
 
-import java.lang.ref.WeakReference;
 import java.util.AbstractCollection;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Iterator;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.RandomAccess;
 
 /**
  * The {@code DynamicCollection} is implementation of {@link Collection} that allows iterators to see additions and
  * removals of elements while iterating.
  * <p/>
- * This collection and its iterators are thread safe but all operations happen under a synchronization lock.
+ * This collection and its iterators are thread safe but by default all operations happen under a synchronization
+ * lock.
+ * <p/>
+ * Iterators are not tracked by the collection. Instead, every modification is appended to the chain of modifications
+ * together with the index of the element that has been added or removed, and every iterator catches up with the
+ * modifications made since its previous call when it is used. So creating an iterator and modifying the collection
+ * take constant time regardless of the number of iterators, and the modifications seen by all the iterators are
+ * reclaimed by the garbage collector together with the iterators. The chain keeps only the indexes of the modified
+ * elements, so an iterator which is not used anymore retains neither the elements nor the snapshots of the collection.
+ * <p/>
+ * The positions of the elements are indexed by their identity, so that looking up an element which is contained in the
+ * collection, e.g. to remove it, does not compare it with the other elements. Elements which are not found by their
+ * identity are looked up by means of {@link Object#equals(Object)}.
+ * <p/>
+ * In the copy-on-write mode the elements are kept in an immutable array which is replaced on every modification, so
+ * that reads and iterations happen without locks at the cost of copying the array while modifying the collection.
+ * It's preferable for collections which are read much more often than modified. Iterators of such a collection must
+ * not be shared between threads.
  */
 public class DynamicCollection<E> extends AbstractCollection<E> {
 
     protected final Object lock = new Object();
     protected final List<E> storage;
-    protected final List<WeakReference<DynamicIterator>> iterators;
+    protected final boolean copyOnWrite;
+
+    /**
+     * The current elements of the collection in the copy-on-write mode.
+     */
+    private volatile Snapshot snapshot;
+
+    /**
+     * The last modification of the collection.
+     */
+    private volatile Modification modification;
 
     public DynamicCollection() {
-        this.storage = new ArrayList<E>();
-        this.iterators = new ArrayList<WeakReference<DynamicIterator>>();
+        this(false);
+    }
+
+    /**
+     * Creates an instance of {@code DynamicCollection}.
+     *
+     * @param copyOnWrite whether the elements must be copied on every modification so that reads and iterations do
+     * not lock
+     */
+    public DynamicCollection(boolean copyOnWrite) {
+        this.copyOnWrite = copyOnWrite;
+        this.storage = copyOnWrite ? new SnapshotList() : new IndexedList();
+        this.modification = new Modification(-1, -1);
+        this.snapshot = copyOnWrite ? new Snapshot(new Object[0], modification) : null;
     }
 
     public DynamicIterator iterator() {
@@ -45,23 +88,17 @@ public class DynamicCollection<E> extends AbstractCollection<E> {
     }
 
     public DynamicIterator iterator(int index) {
-        DynamicIterator iterator = createIterator(index);
-        synchronized (lock) {
-            for (Iterator<WeakReference<DynamicIterator>> it = iterators.iterator(); it.hasNext();) {
-                if (it.next().get() == null) {
-                    it.remove();
-                }
-            }
-            iterators.add(new WeakReference<DynamicIterator>(iterator));
-        }
-        return iterator;
+        return createIterator(index);
     }
 
     protected DynamicIterator createIterator(int index) {
-        return new DynamicIterator(index);
+        return copyOnWrite ? new SnapshotIterator(index) : new DynamicIterator(index);
     }
 
     public int size() {
+        if (copyOnWrite) {
+            return storage.size();
+        }
         synchronized (lock) {
             return storage.size();
         }
@@ -75,24 +112,36 @@ public class DynamicCollection<E> extends AbstractCollection<E> {
         if (o == null) {
             throw new NullPointerException();
         }
+        if (copyOnWrite) {
+            return storage.contains(o);
+        }
         synchronized (lock) {
             return storage.contains(o);
         }
     }
 
     public Object[] toArray() {
+        if (copyOnWrite) {
+            return storage.toArray();
+        }
         synchronized (lock) {
             return storage.toArray();
         }
     }
 
     public <T> T[] toArray(T[] a) {
+        if (copyOnWrite) {
+            return storage.toArray(a);
+        }
         synchronized (lock) {
             return storage.toArray(a);
         }
     }
 
     public boolean containsAll(Collection<?> c) {
+        if (copyOnWrite) {
+            return storage.containsAll(c);
+        }
         synchronized (lock) {
             return storage.containsAll(c);
         }
@@ -114,11 +163,14 @@ public class DynamicCollection<E> extends AbstractCollection<E> {
         }
         synchronized (lock) {
             int index = storage.indexOf(o);
-            return remove(index) != null;
+            return index >= 0 && remove(index) != null;
         }
     }
 
     public E get(int index) {
+        if (copyOnWrite) {
+            return storage.get(index);
+        }
         synchronized (lock) {
             return storage.get(index);
         }
@@ -130,13 +182,8 @@ public class DynamicCollection<E> extends AbstractCollection<E> {
         }
 
         storage.add(index, o);
-        for (Iterator<WeakReference<DynamicIterator>> it = iterators.iterator(); it.hasNext();) {
-            DynamicIterator i = it.next().get();
-            if (i == null) {
-                it.remove();
-            } else {
-                i.addedIndex(index);
-            }
+        if (!copyOnWrite) {
+            append(new Modification(index, -1));
         }
     }
 
@@ -150,20 +197,32 @@ public class DynamicCollection<E> extends AbstractCollection<E> {
     public E remove(int index) {
         synchronized (lock) {
             E o = storage.remove(index);
-            for (Iterator<WeakReference<DynamicIterator>> it = iterators.iterator(); it.hasNext();) {
-                WeakReference<DynamicIterator> r = it.next();
-                DynamicIterator i = r.get();
-                if (i == null) {
-                    it.remove();
-                } else {
-                    i.removedIndex(index);
-                }
+            if (!copyOnWrite) {
+                append(new Modification(-1, index));
             }
             return o;
         }
     }
 
+    /**
+     * Appends the modification to the chain of modifications. Called under the lock of the collection.
+     *
+     * @param next the modification to append
+     */
+    private void append(Modification next) {
+        modification.next = next;
+        modification = next;
+    }
+
+    @SuppressWarnings("unchecked")
     public E first() {
+        if (copyOnWrite) {
+            Object[] elements = snapshot.elements;
+            if (elements.length == 0) {
+                throw new NoSuchElementException();
+            }
+            return (E) elements[0];
+        }
         synchronized (lock) {
             if (storage.isEmpty()) {
                 throw new NoSuchElementException();
@@ -173,7 +232,15 @@ public class DynamicCollection<E> extends AbstractCollection<E> {
         }
     }
 
+    @SuppressWarnings("unchecked")
     public E last() {
+        if (copyOnWrite) {
+            Object[] elements = snapshot.elements;
+            if (elements.length == 0) {
+                throw new NoSuchElementException();
+            }
+            return (E) elements[elements.length - 1];
+        }
         synchronized (lock) {
             if (storage.isEmpty()) {
                 throw new NoSuchElementException();
@@ -192,6 +259,8 @@ public class DynamicCollection<E> extends AbstractCollection<E> {
         protected E previous;
         protected E last;
 
+        private Modification seen = copyOnWrite ? snapshot.modification : modification;
+
         public DynamicIterator() {
             this(0);
         }
@@ -200,24 +269,47 @@ public class DynamicCollection<E> extends AbstractCollection<E> {
             this.index = index;
         }
 
-        protected void removedIndex(int index) {
-            synchronized (lock) {
-                if (index < this.index || (index == this.index && (hasNextCalled || hasPreviousCalled))) {
-                    this.index--;
+        /**
+         * Adjusts the position of the iterator according to the modifications made since the previous call.
+         */
+        protected void catchUp() {
+            catchUp(null);
+        }
+
+        /**
+         * Adjusts the position of the iterator according to the modifications made since the previous call up to the
+         * given one.
+         *
+         * @param last the last modification to adjust the position to or {@code null} to adjust it to all of them
+         */
+        protected void catchUp(Modification last) {
+            Modification current = seen;
+            for (Modification next = current.next; current != last && next != null; next = next.next) {
+                if (next.added >= 0) {
+                    addedIndex(next.added);
+                } else if (next.removed >= 0) {
+                    removedIndex(next.removed);
                 }
+                current = next;
+            }
+            seen = current;
+        }
+
+        protected void removedIndex(int index) {
+            if (index < this.index || (index == this.index && (hasNextCalled || hasPreviousCalled))) {
+                this.index--;
             }
         }
 
         protected void addedIndex(int index) {
-            synchronized (lock) {
-                if (index < this.index || (index == this.index && (next != null || previous != null))) {
-                    this.index++;
-                }
+            if (index < this.index || (index == this.index && (next != null || previous != null))) {
+                this.index++;
             }
         }
 
         public boolean hasNext() {
             synchronized (lock) {
+                catchUp();
                 hasPreviousCalled = false;
                 hasNextCalled = true;
                 next = index < storage.size() ? storage.get(index) : null;
@@ -227,6 +319,7 @@ public class DynamicCollection<E> extends AbstractCollection<E> {
 
         public boolean hasPrevious() {
             synchronized (lock) {
+                catchUp();
                 hasPreviousCalled = true;
                 hasNextCalled = false;
                 previous = index > 0 ? storage.get(index - 1) : null;
@@ -239,6 +332,8 @@ public class DynamicCollection<E> extends AbstractCollection<E> {
                 try {
                     if (!hasNextCalled) {
                         hasNext();
+                    } else {
+                        catchUp();
                     }
                     last = next;
                     if (next != null) {
@@ -261,6 +356,8 @@ public class DynamicCollection<E> extends AbstractCollection<E> {
                 try {
                     if (!hasPreviousCalled) {
                         hasPrevious();
+                    } else {
+                        catchUp();
                     }
                     last = previous;
                     if (previous != null) {
@@ -280,12 +377,14 @@ public class DynamicCollection<E> extends AbstractCollection<E> {
 
         public int nextIndex() {
             synchronized (lock) {
+                catchUp();
                 return index;
             }
         }
 
         public int previousIndex() {
             synchronized (lock) {
+                catchUp();
                 return index - 1;
             }
         }
@@ -304,4 +403,384 @@ public class DynamicCollection<E> extends AbstractCollection<E> {
 
     }
 
+    /**
+     * The iterator of the collection in the copy-on-write mode, which iterates over the snapshots of the collection
+     * without locks.
+     */
+    protected class SnapshotIterator extends DynamicIterator {
+
+        public SnapshotIterator(int index) {
+            super(index);
+        }
+
+        /**
+         * Adjusts the position of the iterator according to the modifications made since the previous call.
+         *
+         * @return the current elements of the collection
+         */
+        private Object[] elements() {
+            Snapshot current = snapshot;
+            catchUp(current.modification);
+            return current.elements;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean hasNext() {
+            Object[] elements = elements();
+            hasPreviousCalled = false;
+            hasNextCalled = true;
+            next = index >= 0 && index < elements.length ? (E) elements[index] : null;
+            return next != null;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean hasPrevious() {
+            Object[] elements = elements();
+            hasPreviousCalled = true;
+            hasNextCalled = false;
+            previous = index > 0 && index <= elements.length ? (E) elements[index - 1] : null;
+            return previous != null;
+        }
+
+        @Override
+        public E next() {
+            try {
+                if (!hasNextCalled) {
+                    hasNext();
+                } else {
+                    elements();
+                }
+                last = next;
+                if (next != null) {
+                    ++index;
+                    return next;
+                } else {
+                    throw new NoSuchElementException();
+                }
+            } finally {
+                hasPreviousCalled = false;
+                hasNextCalled = false;
+                next = null;
+                previous = null;
+            }
+        }
+
+        @Override
+        public E previous() {
+            try {
+                if (!hasPreviousCalled) {
+                    hasPrevious();
+                } else {
+                    elements();
+                }
+                last = previous;
+                if (previous != null) {
+                    --index;
+                    return previous;
+                } else {
+                    throw new NoSuchElementException();
+                }
+            } finally {
+                hasPreviousCalled = false;
+                hasNextCalled = false;
+                next = null;
+                previous = null;
+            }
+        }
+
+        @Override
+        public int nextIndex() {
+            elements();
+            return index;
+        }
+
+        @Override
+        public int previousIndex() {
+            elements();
+            return index - 1;
+        }
+
+    }
+
+    /**
+     * The storage of the collection in the copy-on-write mode. Reads are served from the current snapshot without
+     * locks, while modifications must happen under the lock of the collection.
+     */
+    private class SnapshotList extends AbstractList<E> implements RandomAccess {
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public E get(int index) {
+            Object[] elements = snapshot.elements;
+            if (index < 0 || index >= elements.length) {
+                throw new IndexOutOfBoundsException(String.format("Index: %d, Size: %d", index, elements.length));
+            }
+            return (E) elements[index];
+        }
+
+        @Override
+        public int size() {
+            return snapshot.elements.length;
+        }
+
+        @Override
+        public int indexOf(Object o) {
+            Snapshot current = snapshot;
+            Integer position = current.positions.get(o);
+            if (position != null) {
+                return position;
+            }
+            Object[] elements = current.elements;
+            for (int i = 0; i < elements.length; i++) {
+                if (o.equals(elements[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public int lastIndexOf(Object o) {
+            Object[] elements = snapshot.elements;
+            for (int i = elements.length - 1; i >= 0; i--) {
+                if (o.equals(elements[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return indexOf(o) >= 0;
+        }
+
+        @Override
+        public Object[] toArray() {
+            Object[] elements = snapshot.elements;
+            return Arrays.copyOf(elements, elements.length);
+        }
+
+        @Override
+        public <T> T[] toArray(T[] a) {
+            return Arrays.asList(snapshot.elements).toArray(a);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public List<E> subList(int fromIndex, int toIndex) {
+            Object[] elements = snapshot.elements;
+            if (fromIndex < 0 || toIndex > elements.length || fromIndex > toIndex) {
+                throw new IndexOutOfBoundsException(String.format("From: %d, To: %d, Size: %d",
+                    fromIndex, toIndex, elements.length));
+            }
+            Object[] range = Arrays.copyOfRange(elements, fromIndex, toIndex);
+            return (List<E>) Collections.unmodifiableList(Arrays.asList(range));
+        }
+
+        @Override
+        public void add(int index, E element) {
+            Object[] elements = snapshot.elements;
+            if (index < 0 || index > elements.length) {
+                throw new IndexOutOfBoundsException(String.format("Index: %d, Size: %d", index, elements.length));
+            }
+            Object[] answer = new Object[elements.length + 1];
+            System.arraycopy(elements, 0, answer, 0, index);
+            answer[index] = element;
+            System.arraycopy(elements, index, answer, index + 1, elements.length - index);
+            publish(answer, index, -1);
+        }
+
+        @Override
+        public E remove(int index) {
+            E element = get(index);
+            Object[] elements = snapshot.elements;
+            Object[] answer = new Object[elements.length - 1];
+            System.arraycopy(elements, 0, answer, 0, index);
+            System.arraycopy(elements, index + 1, answer, index, elements.length - index - 1);
+            publish(answer, -1, index);
+            return element;
+        }
+
+        @Override
+        public E set(int index, E element) {
+            E previous = get(index);
+            Object[] answer = snapshot.elements.clone();
+            answer[index] = element;
+            publish(answer, -1, -1);
+            return previous;
+        }
+
+        @Override
+        public void clear() {
+            publish(new Object[0], -1, -1);
+        }
+
+        private void publish(Object[] elements, int added, int removed) {
+            Modification next = new Modification(added, removed);
+            append(next);
+            snapshot = new Snapshot(elements, next);
+        }
+    }
+
+    /**
+     * The storage of the collection in the default mode that indexes the positions of the elements. All the methods
+     * must be called under the lock of the collection.
+     * <p/>
+     * Modifications update only the positions of the elements following the modified one, so appending an element
+     * takes constant time.
+     */
+    private class IndexedList extends ArrayList<E> {
+
+        private final Map<Object, Integer> positions = new IdentityHashMap<Object, Integer>();
+
+        @Override
+        public boolean add(E element) {
+            add(size(), element);
+            return true;
+        }
+
+        @Override
+        public void add(int index, E element) {
+            super.add(index, element);
+            // iterating backwards so that a moved element is not mistaken for its next occurrence
+            for (int i = size() - 1; i > index; i--) {
+                Object moved = get(i);
+                Integer position = positions.get(moved);
+                if (position != null && position == i - 1) {
+                    positions.put(moved, i);
+                }
+            }
+            indexed(index, element);
+        }
+
+        @Override
+        public E remove(int index) {
+            E element = get(index);
+            removeRange(index, index + 1);
+            return element;
+        }
+
+        @Override
+        protected void removeRange(int fromIndex, int toIndex) {
+            if (fromIndex < 0 || toIndex > size() || fromIndex > toIndex) {
+                throw new IndexOutOfBoundsException(String.format("From: %d, To: %d, Size: %d",
+                    fromIndex, toIndex, size()));
+            }
+            for (int i = fromIndex; i < toIndex; i++) {
+                Integer position = positions.get(get(i));
+                if (position != null && position >= fromIndex) {
+                    positions.remove(get(i));
+                }
+            }
+            super.removeRange(fromIndex, toIndex);
+            int count = toIndex - fromIndex;
+            for (int i = fromIndex; i < size(); i++) {
+                Object moved = get(i);
+                Integer position = positions.get(moved);
+                if (position == null || position == i + count) {
+                    positions.put(moved, i);
+                }
+            }
+        }
+
+        @Override
+        public E set(int index, E element) {
+            E previous = super.set(index, element);
+            if (previous != element && Integer.valueOf(index).equals(positions.get(previous))) {
+                positions.remove(previous);
+                for (int i = index + 1; i < size(); i++) {
+                    if (get(i) == previous) {
+                        positions.put(previous, i);
+                        break;
+                    }
+                }
+            }
+            indexed(index, element);
+            return previous;
+        }
+
+        @Override
+        public void clear() {
+            super.clear();
+            positions.clear();
+        }
+
+        @Override
+        public int indexOf(Object o) {
+            Integer position = positions.get(o);
+            return position != null ? position : super.indexOf(o);
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return indexOf(o) >= 0;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public List<E> subList(int fromIndex, int toIndex) {
+            // the view must not be modified or read outside the lock of the collection, so a copy is returned
+            Object[] range = super.subList(fromIndex, toIndex).toArray();
+            return (List<E>) Collections.unmodifiableList(Arrays.asList(range));
+        }
+
+        /**
+         * Indexes the element put at the given position unless it occurs before.
+         */
+        private void indexed(int index, Object element) {
+            Integer position = positions.get(element);
+            if (position == null || position > index) {
+                positions.put(element, index);
+            }
+        }
+    }
+
+    /**
+     * Indexes the positions of the given elements by their identity.
+     *
+     * @param elements the elements to index
+     *
+     * @return the position of the first occurrence of every element
+     */
+    private static Map<Object, Integer> positions(Object[] elements) {
+        Map<Object, Integer> answer = new IdentityHashMap<Object, Integer>(elements.length);
+        for (int i = elements.length - 1; i >= 0; i--) {
+            answer.put(elements[i], i);
+        }
+        return answer;
+    }
+
+    /**
+     * The modification of the collection linked to the next one.
+     */
+    protected static class Modification {
+        private final int added;
+        private final int removed;
+        private volatile Modification next;
+
+        private Modification(int added, int removed) {
+            this.added = added;
+            this.removed = removed;
+        }
+    }
+
+    /**
+     * The immutable elements of the collection in the copy-on-write mode resulted from the modification. The snapshot
+     * refers to its modification but not vice versa, so that the chain of modifications does not retain the snapshots.
+     */
+    private static final class Snapshot {
+        private final Object[] elements;
+        private final Map<Object, Integer> positions;
+        private final Modification modification;
+
+        private Snapshot(Object[] elements, Modification modification) {
+            this.elements = elements;
+            this.positions = positions(elements);
+            this.modification = modification;
+        }
+    }
+
 }
@@ -23,10 +23,25 @@ import java.util.RandomAccess;
  * The {@code DynamicList} is implementation of {@link List} that allows iterators to see additions and
  * removals of elements while iterating.
  * <p/>
- * This list and its iterators are thread safe but all operations happen under a synchronization lock.
+ * This list and its iterators are thread safe but by default all operations happen under a synchronization lock.
+ * The list can be created in the copy-on-write mode, see {@link DynamicCollection}.
  */
 public class DynamicList<E> extends DynamicCollection<E> implements List<E>, RandomAccess {
 
+    public DynamicList() {
+        this(false);
+    }
+
+    /**
+     * Creates an instance of {@code DynamicList}.
+     *
+     * @param copyOnWrite whether the elements must be copied on every modification so that reads and iterations do
+     * not lock
+     */
+    public DynamicList(boolean copyOnWrite) {
+        super(copyOnWrite);
+    }
+
     @Override
     public boolean addAll(int index, Collection<? extends E> c) {
         if (c == null) {
@@ -68,6 +83,9 @@ public class DynamicList<E> extends DynamicCollection<E> implements List<E>, Ran
         if (o == null) {
             throw new NullPointerException();
         }
+        if (copyOnWrite) {
+            return storage.indexOf(o);
+        }
         synchronized (lock) {
             return storage.indexOf(o);
         }
@@ -78,12 +96,18 @@ public class DynamicList<E> extends DynamicCollection<E> implements List<E>, Ran
         if (o == null) {
             throw new NullPointerException();
         }
+        if (copyOnWrite) {
+            return storage.lastIndexOf(o);
+        }
         synchronized (lock) {
             return storage.lastIndexOf(o);
         }
     }
 
     public E get(int index) {
+        if (copyOnWrite) {
+            return storage.get(index);
+        }
         synchronized (lock) {
             return storage.get(index);
         }
@@ -101,6 +125,9 @@ public class DynamicList<E> extends DynamicCollection<E> implements List<E>, Ran
 
     @Override
     public List<E> subList(int fromIndex, int toIndex) {
+        if (copyOnWrite) {
+            return storage.subList(fromIndex, toIndex);
+        }
         synchronized (lock) {
             return storage.subList(fromIndex, toIndex);
         }
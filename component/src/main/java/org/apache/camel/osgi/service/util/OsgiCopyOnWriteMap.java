@@ -0,0 +1,372 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.camel.osgi.service.util;
+
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The {@code OsgiCopyOnWriteMap} is a map that shares the original map until it's modified for the first time.
+ * <p/>
+ * All the read operations are delegated to the original map until the first modification, which copies the original
+ * map by means of {@link #createCopy(Map)} and performs the modification and all the subsequent operations on that
+ * copy. The original map is never modified, so that it must not be modified by anyone else while it's shared.
+ * <p/>
+ * Modifications through {@link #keySet()}, {@link #values()} and {@link #entrySet()} views and their iterators are
+ * supported too. Iterators that have been created before the first modification continue to iterate over the
+ * original map.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+public class OsgiCopyOnWriteMap<K, V> implements Map<K, V> {
+
+    private final Map<K, V> original;
+    private volatile Map<K, V> copy;
+
+    /**
+     * Creates a map that shares the provided original map until it's modified.
+     *
+     * @param original the map to share
+     */
+    public OsgiCopyOnWriteMap(Map<K, V> original) {
+        this.original = original;
+    }
+
+    /**
+     * Creates a copy of the original map to be modified. Returns the {@link HashMap} by default.
+     *
+     * @param original the original map
+     *
+     * @return the modifiable copy of the original map
+     */
+    protected Map<K, V> createCopy(Map<K, V> original) {
+        return new HashMap<K, V>(original);
+    }
+
+    /**
+     * Returns the map which is currently shared.
+     *
+     * @return the original map
+     */
+    public Map<K, V> getOriginal() {
+        return original;
+    }
+
+    /**
+     * Returns whether the original map has been already copied, i.e. this map has been modified at least once.
+     *
+     * @return {@code true} if the original map has been copied, {@code false} otherwise
+     */
+    public boolean isCopied() {
+        return copy != null;
+    }
+
+    /**
+     * Returns whether this map still shares the provided map, i.e. it has not been modified yet.
+     *
+     * @param map the map to check
+     *
+     * @return {@code true} if this map is not modified and shares the provided map, {@code false} otherwise
+     */
+    public boolean isSharing(Map<?, ?> map) {
+        return copy == null && original == map;
+    }
+
+    private Map<K, V> readable() {
+        Map<K, V> answer = copy;
+        return answer != null ? answer : original;
+    }
+
+    private Map<K, V> writable() {
+        Map<K, V> answer = copy;
+        if (answer == null) {
+            synchronized (this) {
+                if (copy == null) {
+                    copy = createCopy(original);
+                }
+                answer = copy;
+            }
+        }
+        return answer;
+    }
+
+    @Override
+    public int size() {
+        return readable().size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return readable().isEmpty();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return readable().containsKey(key);
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        return readable().containsValue(value);
+    }
+
+    @Override
+    public V get(Object key) {
+        return readable().get(key);
+    }
+
+    @Override
+    public V put(K key, V value) {
+        return writable().put(key, value);
+    }
+
+    @Override
+    public V remove(Object key) {
+        if (copy == null && !original.containsKey(key)) {
+            return null;
+        }
+        return writable().remove(key);
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> map) {
+        if (!map.isEmpty()) {
+            writable().putAll(map);
+        }
+    }
+
+    @Override
+    public void clear() {
+        if (copy != null || !original.isEmpty()) {
+            writable().clear();
+        }
+    }
+
+    @Override
+    public Set<K> keySet() {
+        return new AbstractSet<K>() {
+            @Override
+            public Iterator<K> iterator() {
+                final Iterator<Entry<K, V>> iterator = entryIterator();
+                return new Iterator<K>() {
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public K next() {
+                        return iterator.next().getKey();
+                    }
+
+                    @Override
+                    public void remove() {
+                        iterator.remove();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return OsgiCopyOnWriteMap.this.size();
+            }
+
+            @Override
+            public boolean contains(Object key) {
+                return containsKey(key);
+            }
+
+            @Override
+            public boolean remove(Object key) {
+                boolean answer = containsKey(key);
+                OsgiCopyOnWriteMap.this.remove(key);
+                return answer;
+            }
+
+            @Override
+            public void clear() {
+                OsgiCopyOnWriteMap.this.clear();
+            }
+        };
+    }
+
+    @Override
+    public Collection<V> values() {
+        return new AbstractCollection<V>() {
+            @Override
+            public Iterator<V> iterator() {
+                final Iterator<Entry<K, V>> iterator = entryIterator();
+                return new Iterator<V>() {
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public V next() {
+                        return iterator.next().getValue();
+                    }
+
+                    @Override
+                    public void remove() {
+                        iterator.remove();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return OsgiCopyOnWriteMap.this.size();
+            }
+
+            @Override
+            public boolean contains(Object value) {
+                return containsValue(value);
+            }
+
+            @Override
+            public void clear() {
+                OsgiCopyOnWriteMap.this.clear();
+            }
+        };
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<Entry<K, V>>() {
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                return entryIterator();
+            }
+
+            @Override
+            public int size() {
+                return OsgiCopyOnWriteMap.this.size();
+            }
+
+            @Override
+            public void clear() {
+                OsgiCopyOnWriteMap.this.clear();
+            }
+        };
+    }
+
+    /**
+     * Creates an iterator over the entries of the map, which is currently readable. Removals and value updates are
+     * performed through the map itself, so that they are never applied to the original map.
+     *
+     * @return an iterator over the entries
+     */
+    private Iterator<Entry<K, V>> entryIterator() {
+        final Iterator<Entry<K, V>> iterator = readable().entrySet().iterator();
+        final boolean copied = isCopied();
+        return new Iterator<Entry<K, V>>() {
+            private Entry<K, V> current;
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public Entry<K, V> next() {
+                final Entry<K, V> entry = iterator.next();
+                current = entry;
+                if (copied) {
+                    return entry;
+                }
+                return new Entry<K, V>() {
+                    private V value = entry.getValue();
+
+                    @Override
+                    public K getKey() {
+                        return entry.getKey();
+                    }
+
+                    @Override
+                    public V getValue() {
+                        return value;
+                    }
+
+                    @Override
+                    public V setValue(V value) {
+                        V answer = this.value;
+                        this.value = value;
+                        put(entry.getKey(), value);
+                        return answer;
+                    }
+
+                    @Override
+                    public boolean equals(Object o) {
+                        if (!(o instanceof Entry)) {
+                            return false;
+                        }
+                        Entry<?, ?> e = (Entry<?, ?>) o;
+                        return eq(getKey(), e.getKey()) && eq(getValue(), e.getValue());
+                    }
+
+                    @Override
+                    public int hashCode() {
+                        K key = getKey();
+                        return (key == null ? 0 : key.hashCode()) ^ (value == null ? 0 : value.hashCode());
+                    }
+
+                    @Override
+                    public String toString() {
+                        return getKey() + "=" + value;
+                    }
+                };
+            }
+
+            @Override
+            public void remove() {
+                if (current == null) {
+                    throw new IllegalStateException();
+                }
+                if (copied) {
+                    iterator.remove();
+                } else {
+                    OsgiCopyOnWriteMap.this.remove(current.getKey());
+                }
+                current = null;
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o == this || readable().equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return readable().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return readable().toString();
+    }
+
+    private static boolean eq(Object o1, Object o2) {
+        return o1 == null ? o2 == null : o1.equals(o2);
+    }
+}
@@ -16,22 +16,57 @@ package org.apache.camel.osgi.service.util;
 
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleEvent;
 import org.osgi.framework.Constants;
 import org.osgi.framework.ServiceReference;
+import org.osgi.framework.SynchronousBundleListener;
 
+import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Proxy;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * The {@code OsgiDefaultProxyCreator} is the default implementation of the {@link OsgiProxyCreator}.
  * <p/>
  * It uses {@link OsgiInvocationHandler} to handle calls to the exported OSGi service.
+ * <p/>
+ * The constructors of the generated proxy classes are cached per exporting bundle, consuming bundle and the set of the
+ * classes the service is published under, so that proxying of the services published by the same bundle does not load
+ * any classes and does not generate any proxy classes after the first one. The proxy class is defined by the class
+ * loader the first service has been proxied with, so the cached constructors are evicted when either the exporting or
+ * the consuming bundle is updated, unresolved or uninstalled, that's why this proxy creator listens for bundle events.
+ * The cache is effective only if the proxy creator is shared, e.g. by all the endpoints of the component.
  *
  * @see OsgiInvocationHandler
  */
-public class OsgiDefaultProxyCreator implements OsgiProxyCreator {
+public class OsgiDefaultProxyCreator implements OsgiProxyCreator, SynchronousBundleListener {
+
+    private final boolean lease;
+    private final ConcurrentMap<ProxyClassKey, Constructor<?>> constructors =
+        new ConcurrentHashMap<ProxyClassKey, Constructor<?>>();
+
+    /**
+     * Creates a proxy creator which proxies get and release OSGi services on every call.
+     */
+    public OsgiDefaultProxyCreator() {
+        this(false);
+    }
+
+    /**
+     * Creates a proxy creator.
+     *
+     * @param lease {@code true} if the created proxies must get OSGi services once and keep them until they are
+     * {@link OsgiLeasingProxy#releaseService() released}, {@code false} if services must be get and released on every call
+     */
+    public OsgiDefaultProxyCreator(boolean lease) {
+        this.lease = lease;
+    }
 
     @Override
     @SuppressWarnings("unchecked")
@@ -41,11 +76,76 @@ public class OsgiDefaultProxyCreator implements OsgiProxyCreator {
             throw new IllegalArgumentException(String.format("Service [%s] has been unregistered", reference));
         }
 
-        InvocationHandler handler = new OsgiInvocationHandler(bundleContext, reference);
+        InvocationHandler handler = new OsgiInvocationHandler(bundleContext, reference, lease);
 
         String[] classNames = (String[]) reference.getProperty(Constants.OBJECTCLASS);
+        Constructor<?> constructor = getProxyConstructor(
+            exportingBundle, bundleContext.getBundle(), classNames, classLoader);
+        try {
+            return (T) constructor.newInstance(handler);
+        } catch (Exception e) {
+            throw new IllegalStateException(
+                String.format("Unable to create proxy for service [%s] with classloader [%s]", reference, classLoader),
+                e);
+        }
+    }
+
+    /**
+     * Evicts the cached proxy constructors of the services published or consumed by the bundle that is updated,
+     * unresolved or uninstalled.
+     *
+     * @param event the bundle event
+     */
+    @Override
+    public void bundleChanged(BundleEvent event) {
+        switch (event.getType()) {
+            case BundleEvent.UPDATED:
+            case BundleEvent.UNRESOLVED:
+            case BundleEvent.UNINSTALLED:
+                long bundleId = event.getBundle().getBundleId();
+                for (Iterator<ProxyClassKey> iter = constructors.keySet().iterator(); iter.hasNext(); ) {
+                    ProxyClassKey key = iter.next();
+                    if (key.bundleId == bundleId || key.consumingBundleId == bundleId) {
+                        iter.remove();
+                    }
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Returns the cached constructor of the proxy class for the services published under the specified classes by
+     * the specified bundle and consumed by the other one, creating the proxy class if there is no one.
+     *
+     * @param exportingBundle the bundle that published the service
+     * @param consumingBundle the bundle that consumes the service or {@code null} if it's unknown
+     * @param classNames the names of the classes the service is published under
+     * @param classLoader the {@link ClassLoader} to load the classes if there is no cached proxy class
+     *
+     * @return the proxy class constructor that accepts an {@link InvocationHandler}
+     *
+     * @throws IllegalArgumentException if some of the classes cannot be loaded
+     */
+    protected Constructor<?> getProxyConstructor(Bundle exportingBundle, Bundle consumingBundle, String[] classNames,
+            ClassLoader classLoader) {
+        ProxyClassKey key = new ProxyClassKey(exportingBundle, consumingBundle, classNames);
+
+        Constructor<?> constructor = constructors.get(key);
+        if (constructor == null) {
+            constructor = createProxyConstructor(classNames, classLoader);
+            Constructor<?> existing = constructors.putIfAbsent(key, constructor);
+            if (existing != null) {
+                constructor = existing;
+            }
+        }
+        return constructor;
+    }
+
+    private Constructor<?> createProxyConstructor(String[] classNames, ClassLoader classLoader) {
         List<Class<?>> classes = new ArrayList<Class<?>>(classNames.length);
-        
+
         for(String className : classNames) {
             try {
                 Class<?> clazz = classLoader.loadClass(className);
@@ -57,10 +157,62 @@ public class OsgiDefaultProxyCreator implements OsgiProxyCreator {
                     String.format("Unable to find class [%s] with classloader [%s]", className, classLoader));
             }
         }
-        classes.add(OsgiProxy.class);
+        classes.add(OsgiLeasingProxy.class);
         classes.add(ServiceReference.class);
 
-        return (T) Proxy.newProxyInstance(classLoader, classes.toArray(new Class<?>[classes.size()]), handler);
+        Class<?> proxyClass = Proxy.getProxyClass(classLoader, classes.toArray(new Class<?>[classes.size()]));
+        try {
+            return proxyClass.getConstructor(InvocationHandler.class);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public boolean isLease() {
+        return lease;
+    }
+
+    /**
+     * The key of the cached proxy classes, i.e. the exporting and the consuming bundles and the classes the service is
+     * published under.
+     * <p/>
+     * The last modification time of the bundle is the part of the key, so that the classes of the updated bundle are
+     * never taken from the cache even if the corresponding bundle event has been missed.
+     */
+    private static final class ProxyClassKey {
+        private final long bundleId;
+        private final long lastModified;
+        private final long consumingBundleId;
+        private final List<String> classNames;
+
+        private ProxyClassKey(Bundle bundle, Bundle consumingBundle, String[] classNames) {
+            this.bundleId = bundle.getBundleId();
+            this.lastModified = bundle.getLastModified();
+            this.consumingBundleId = consumingBundle != null ? consumingBundle.getBundleId() : -1;
+            this.classNames = Arrays.asList(classNames);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ProxyClassKey)) {
+                return false;
+            }
+            ProxyClassKey that = (ProxyClassKey) o;
+            return bundleId == that.bundleId && lastModified == that.lastModified
+                && consumingBundleId == that.consumingBundleId && classNames.equals(that.classNames);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = (int) (bundleId ^ (bundleId >>> 32));
+            result = 31 * result + (int) (lastModified ^ (lastModified >>> 32));
+            result = 31 * result + (int) (consumingBundleId ^ (consumingBundleId >>> 32));
+            result = 31 * result + classNames.hashCode();
+            return result;
+        }
     }
 
 }
@@ -14,30 +14,62 @@
 
 package org.apache.camel.osgi.service.util;
 
+import org.apache.camel.AsyncCallback;
+import org.apache.camel.AsyncProcessor;
+import org.apache.camel.Exchange;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.ServiceReference;
 
 import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * The {@link OsgiInvocationHandler} is an instance of {@link InvocationHandler} that is responsible to handle calls
  * to the original OSGi service.
+ * <p/>
+ * By default the OSGi service is get and released on every call. In the lease mode the service is get only once on
+ * the first call and is kept by the handler until {@link #releaseService()} is called, so that subsequent calls do not
+ * touch the OSGi service registry at all. Leased services are shared with other handlers of the same bundle by means
+ * of {@link OsgiServiceLeasePool}.
  */
 public class OsgiInvocationHandler implements InvocationHandler {
 
+    private static final Method EQUALS = getMethod(Object.class, "equals", Object.class);
+    private static final Method HASH_CODE = getMethod(Object.class, "hashCode");
+    private static final Method GET_REFERENCE = getMethod(OsgiProxy.class, "getReference");
+    private static final Method RELEASE_SERVICE = getMethod(OsgiLeasingProxy.class, "releaseService");
+
     private BundleContext bundleContext;
     private ServiceReference reference;
+    private boolean lease;
+
+    private volatile Object service;
+    private boolean released;
 
     /**
-     * Creates an instance of this class.
+     * Creates an instance of this class that gets and releases the OSGi service on every call.
      *
      * @param bundleContext a {@link BundleContext} instance to get the service associated with the specified reference
      * @param reference a {@link ServiceReference} instance associated with the published OSGi service
      */
     public OsgiInvocationHandler(BundleContext bundleContext, ServiceReference reference) {
+        this(bundleContext, reference, false);
+    }
+
+    /**
+     * Creates an instance of this class.
+     *
+     * @param bundleContext a {@link BundleContext} instance to get the service associated with the specified reference
+     * @param reference a {@link ServiceReference} instance associated with the published OSGi service
+     * @param lease {@code true} to get the service once and keep it until {@link #releaseService()} is called,
+     * {@code false} to get and release the service on every call
+     */
+    public OsgiInvocationHandler(BundleContext bundleContext, ServiceReference reference, boolean lease) {
         this.bundleContext = bundleContext;
         this.reference = reference;
+        this.lease = lease;
     }
 
     /**
@@ -51,10 +83,15 @@ public class OsgiInvocationHandler implements InvocationHandler {
      *     invoked on the specified proxy is returned.</li>
      *     <li>If the method is {@link org.apache.camel.osgi.service.util.OsgiProxy#getReference()} - the
      *     {@link #getReference() service reference} is returned.</li>
+     *     <li>If the method is {@link org.apache.camel.osgi.service.util.OsgiLeasingProxy#releaseService()} - the leased
+     *     service is {@link #releaseService() released}.</li>
      *     <li>If the method is provided by the {@link ServiceReference} - the call is delegated to the associated
      *     {@link #getReference() service reference}</li>
      *     <li>In all other cases the exported OSGi service is get, then the provided method is invoked on the gotten
-     *     service and finally the service is released.</li>
+     *     service and finally the service is released. In the lease mode the service is get only once and is kept
+     *     until it's released explicitly. If the method is
+     *     {@link AsyncProcessor#process(Exchange, AsyncCallback)} the service is released only when the asynchronous
+     *     processing completes.</li>
      * </ol>
      *
      * @param proxy the proxy instance that the method was invoked on
@@ -70,29 +107,178 @@ public class OsgiInvocationHandler implements InvocationHandler {
      */
     @Override
     public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-        if (Object.class.getMethod("equals", Object.class).equals(method)) {
-            return proxy == args[0];
+        // dispatch on the declaring class first, so that calls to the exported service do not compare methods at all
+        Class<?> declaringClass = method.getDeclaringClass();
+        if (declaringClass == Object.class) {
+            if (EQUALS.equals(method)) {
+                return proxy == args[0];
+            }
+            if (HASH_CODE.equals(method)) {
+                return System.identityHashCode(proxy);
+            }
+        } else if (declaringClass == OsgiProxy.class || declaringClass == OsgiLeasingProxy.class) {
+            if (GET_REFERENCE.equals(method)) {
+                return getReference();
+            }
+            if (RELEASE_SERVICE.equals(method)) {
+                releaseService();
+                return null;
+            }
+        } else if (declaringClass == ServiceReference.class) {
+            return invokeTarget(reference, method, args);
+        } else if (declaringClass == AsyncProcessor.class) {
+            return process((Exchange) args[0], (AsyncCallback) args[1]);
         }
-        if (Object.class.getMethod("hashCode").equals(method)) {
-            return System.identityHashCode(proxy);
+
+        Object leased = leaseService();
+        if (leased != null) {
+            return invokeTarget(leased, method, args);
         }
-        if (OsgiProxy.class.getMethod("getReference").equals(method)) {
-            return getReference();
+
+        Object service = getService();
+        try {
+            return invokeTarget(service, method, args);
+        } finally {
+            ungetService();
         }
-        if (method.getDeclaringClass() == ServiceReference.class) {
-            return method.invoke(reference, args);
+    }
+
+    /**
+     * Releases the leased OSGi service if any.
+     * <p/>
+     * After the service is released the handler never leases it again, so all the subsequent calls get and release the
+     * service on every call.
+     */
+    public void releaseService() {
+        synchronized (this) {
+            released = true;
+            if (service != null) {
+                service = null;
+                OsgiServiceLeasePool.release(bundleContext, reference);
+            }
         }
+    }
+
+    /**
+     * Returns the leased OSGi service getting it on the first call.
+     *
+     * @return the leased service or {@code null} if the handler is not in the lease mode, the service has been already
+     * released or it's not available
+     */
+    protected Object leaseService() {
+        Object answer = service;
+        if (answer == null && lease) {
+            synchronized (this) {
+                if (service == null && !released) {
+                    service = OsgiServiceLeasePool.lease(bundleContext, reference);
+                }
+                answer = service;
+            }
+        }
+        return answer;
+    }
 
-        Object service = bundleContext.getService(reference);
-        if(service == null) {
+    /**
+     * Gets the OSGi service for a single call. The service must be released by means of {@link #ungetService()}
+     * after the call.
+     *
+     * @return the OSGi service
+     *
+     * @throws IllegalStateException if there is no service registered
+     */
+    protected Object getService() {
+        Object answer = bundleContext.getService(reference);
+        if(answer == null) {
             throw new IllegalStateException(
                 String.format("There is no service registered for reference [%s]", reference));
         }
+        return answer;
+    }
+
+    /**
+     * Releases the OSGi service previously got by means of {@link #getService()}.
+     */
+    protected void ungetService() {
+        bundleContext.ungetService(reference);
+    }
+
+    /**
+     * Processes the exchange asynchronously by means of the leased OSGi service or the one got for this call.
+     * <p/>
+     * As the caller relies on the callback to be notified, exceptions are never thrown: if the service is not
+     * available or fails, the exception is set on the exchange and the callback is notified synchronously.
+     *
+     * @param exchange the exchange to process
+     * @param callback the callback to notify when the processing completes
+     *
+     * @return {@code true} if the exchange has been processed synchronously, {@code false} otherwise
+     */
+    protected boolean process(Exchange exchange, AsyncCallback callback) {
+        AsyncProcessor service;
+        try {
+            service = (AsyncProcessor) leaseService();
+            if (service != null) {
+                return service.process(exchange, callback);
+            }
+            service = (AsyncProcessor) getService();
+        } catch (Throwable e) {
+            exchange.setException(e);
+            callback.done(true);
+            return true;
+        }
+        return processAndUngetService(service, exchange, callback);
+    }
 
+    /**
+     * Processes the exchange asynchronously by means of the OSGi service previously got by means of
+     * {@link #getService()} and releases the service as soon as the processing completes.
+     * <p/>
+     * Exceptions thrown by the service are set on the exchange and the callback is notified synchronously.
+     *
+     * @param service the OSGi service to process the exchange
+     * @param exchange the exchange to process
+     * @param callback the callback to notify when the processing completes
+     *
+     * @return {@code true} if the exchange has been processed synchronously, {@code false} otherwise
+     */
+    protected boolean processAndUngetService(AsyncProcessor service, Exchange exchange, final AsyncCallback callback) {
+        final AtomicBoolean released = new AtomicBoolean();
         try {
-            return method.invoke(service, args);
-        } finally {
-            bundleContext.ungetService(reference);
+            return service.process(exchange, new AsyncCallback() {
+                @Override
+                public void done(boolean doneSync) {
+                    if (released.compareAndSet(false, true)) {
+                        ungetService();
+                    }
+                    callback.done(doneSync);
+                }
+            });
+        } catch (Throwable e) {
+            if (released.compareAndSet(false, true)) {
+                ungetService();
+            }
+            exchange.setException(e);
+            callback.done(true);
+            return true;
+        }
+    }
+
+    /**
+     * Invokes the specified method on the target unwrapping exceptions thrown by the target itself.
+     *
+     * @param target the object to invoke the method on
+     * @param method the method to invoke
+     * @param args the method arguments
+     *
+     * @return the result of the invocation
+     *
+     * @throws Throwable the exception thrown by the target
+     */
+    protected Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
         }
     }
 
@@ -114,4 +300,21 @@ public class OsgiInvocationHandler implements InvocationHandler {
     public ServiceReference getReference() {
         return reference;
     }
+
+    /**
+     * Returns whether the OSGi service is get once and kept until it's released.
+     *
+     * @return {@code true} in the lease mode, {@code false} otherwise
+     */
+    public boolean isLease() {
+        return lease;
+    }
+
+    private static Method getMethod(Class<?> clazz, String name, Class<?>... parameterTypes) {
+        try {
+            return clazz.getMethod(name, parameterTypes);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
 }
@@ -0,0 +1,169 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.camel.osgi.service.util;
+
+import org.apache.camel.AsyncCallback;
+import org.apache.camel.AsyncProcessor;
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+import org.apache.camel.util.AsyncProcessorConverterHelper;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceReference;
+
+/**
+ * The {@code OsgiLazyProxy} is a lightweight holder of the {@link ServiceReference} which creates the actual proxy
+ * for the OSGi service only on the first call to one of the {@code process} methods.
+ * <p/>
+ * All the methods of the {@link ServiceReference} are delegated to the original reference, so that the holder can be
+ * compared with other services by ranking without creating the actual proxy.
+ *
+ * @see OsgiLazyProxyCreator
+ */
+public class OsgiLazyProxy implements AsyncProcessor, OsgiLeasingProxy, ServiceReference {
+
+    private final BundleContext bundleContext;
+    private final ServiceReference reference;
+    private final ClassLoader classLoader;
+    private final OsgiProxyCreator proxyCreator;
+
+    private volatile Processor proxy;
+    private volatile AsyncProcessor asyncProxy;
+    private boolean released;
+
+    /**
+     * Creates an instance of this class.
+     *
+     * @param bundleContext the {@link BundleContext} instance to get the service associated with the provided
+     * reference
+     * @param reference a reference to the service to proxy
+     * @param classLoader the {@link ClassLoader} to load the interfaces of the service
+     * @param proxyCreator the {@link OsgiProxyCreator} to create the actual proxy
+     */
+    public OsgiLazyProxy(BundleContext bundleContext, ServiceReference reference, ClassLoader classLoader,
+            OsgiProxyCreator proxyCreator) {
+        this.bundleContext = bundleContext;
+        this.reference = reference;
+        this.classLoader = classLoader;
+        this.proxyCreator = proxyCreator;
+    }
+
+    @Override
+    public void process(Exchange exchange) throws Exception {
+        getProxy().process(exchange);
+    }
+
+    @Override
+    public boolean process(Exchange exchange, AsyncCallback callback) {
+        AsyncProcessor proxy = asyncProxy;
+        try {
+            if (proxy == null) {
+                getProxy();
+                proxy = asyncProxy;
+            }
+        } catch (Throwable e) {
+            exchange.setException(e);
+            callback.done(true);
+            return true;
+        }
+        return proxy.process(exchange, callback);
+    }
+
+    /**
+     * Returns the actual proxy of the OSGi service creating it on the first call.
+     *
+     * @return the actual proxy
+     *
+     * @throws IllegalArgumentException if the service has been unregistered or its interfaces cannot be loaded
+     */
+    protected Processor getProxy() {
+        Processor answer = proxy;
+        if (answer == null) {
+            synchronized (this) {
+                if (proxy == null) {
+                    Processor created = proxyCreator.createProxy(bundleContext, reference, classLoader);
+                    if (released && created instanceof OsgiLeasingProxy) {
+                        // the service is being unregistered, so the created proxy must not lease it
+                        ((OsgiLeasingProxy) created).releaseService();
+                    }
+                    // the adapted proxy is published first, so that it's available as soon as the proxy is
+                    asyncProxy = AsyncProcessorConverterHelper.convert(created);
+                    proxy = created;
+                }
+                answer = proxy;
+            }
+        }
+        return answer;
+    }
+
+    /**
+     * Returns whether the actual proxy has been already created.
+     *
+     * @return {@code true} if the actual proxy has been created, {@code false} otherwise
+     */
+    public boolean isMaterialized() {
+        return proxy != null;
+    }
+
+    @Override
+    public ServiceReference getReference() {
+        return reference;
+    }
+
+    @Override
+    public void releaseService() {
+        synchronized (this) {
+            released = true;
+            if (proxy instanceof OsgiLeasingProxy) {
+                ((OsgiLeasingProxy) proxy).releaseService();
+            }
+        }
+    }
+
+    @Override
+    public Object getProperty(String key) {
+        return reference.getProperty(key);
+    }
+
+    @Override
+    public String[] getPropertyKeys() {
+        return reference.getPropertyKeys();
+    }
+
+    @Override
+    public Bundle getBundle() {
+        return reference.getBundle();
+    }
+
+    @Override
+    public Bundle[] getUsingBundles() {
+        return reference.getUsingBundles();
+    }
+
+    @Override
+    public boolean isAssignableTo(Bundle bundle, String className) {
+        return reference.isAssignableTo(bundle, className);
+    }
+
+    @Override
+    public int compareTo(Object reference) {
+        return this.reference.compareTo(reference);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("OsgiLazyProxy(%s)", reference);
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.camel.osgi.service.util;
+
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.BundleListener;
+import org.osgi.framework.ServiceReference;
+import org.osgi.framework.SynchronousBundleListener;
+
+/**
+ * The {@code OsgiLazyProxyCreator} is the implementation of the {@link OsgiProxyCreator} that postpones creation of
+ * proxies until they are actually used.
+ * <p/>
+ * It returns {@link OsgiLazyProxy lightweight holders} of service references which create the actual proxies by means
+ * of the delegate proxy creator only when an exchange is sent to the corresponding service for the first time, so that
+ * the services that are never selected, e.g. by {@link org.apache.camel.osgi.service.OsgiDefaultLoadBalancer}, do not
+ * cost anything except the holder itself.
+ * <p/>
+ * Note that the returned holders implement only {@link org.apache.camel.AsyncProcessor}, {@link OsgiLeasingProxy} and
+ * {@link ServiceReference} interfaces whatever interfaces the service is published under. Bundle events are passed to
+ * the delegate proxy creator if it's a {@link BundleListener}.
+ *
+ * @see OsgiLazyProxy
+ */
+public class OsgiLazyProxyCreator implements OsgiProxyCreator, SynchronousBundleListener {
+
+    private final OsgiProxyCreator proxyCreator;
+
+    /**
+     * Creates a proxy creator.
+     *
+     * @param proxyCreator the proxy creator to create the actual proxies
+     */
+    public OsgiLazyProxyCreator(OsgiProxyCreator proxyCreator) {
+        this.proxyCreator = proxyCreator;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T createProxy(BundleContext bundleContext, ServiceReference reference, ClassLoader classLoader) {
+        if(reference.getBundle() == null) {
+            throw new IllegalArgumentException(String.format("Service [%s] has been unregistered", reference));
+        }
+        return (T) new OsgiLazyProxy(bundleContext, reference, classLoader, proxyCreator);
+    }
+
+    @Override
+    public void bundleChanged(BundleEvent event) {
+        if (proxyCreator instanceof BundleListener) {
+            ((BundleListener) proxyCreator).bundleChanged(event);
+        }
+    }
+
+    public OsgiProxyCreator getProxyCreator() {
+        return proxyCreator;
+    }
+}
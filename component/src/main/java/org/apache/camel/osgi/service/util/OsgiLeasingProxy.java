@@ -0,0 +1,34 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.camel.osgi.service.util;
+
+/**
+ * The {@code OsgiLeasingProxy} is an {@link OsgiProxy} which can keep the proxied OSGi service object between calls
+ * instead of getting and ungetting it on every call.
+ * <p/>
+ * The interface is used internally by the component to release the leased services when they are unregistered.
+ * Proxies created by custom {@link OsgiProxyCreator proxy creators} are not required to implement it.
+ */
+public interface OsgiLeasingProxy extends OsgiProxy {
+
+    /**
+     * Releases the OSGi service object leased by this proxy if any.
+     * <p/>
+     * After the service is released the proxy does not keep the service object anymore and gets and ungets it on
+     * every subsequent call.
+     */
+    void releaseService();
+
+}
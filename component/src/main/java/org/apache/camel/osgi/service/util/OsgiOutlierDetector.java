@@ -0,0 +1,248 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.camel.osgi.service.util;
+
+import org.apache.camel.Processor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The {@code OsgiOutlierDetector} passively tracks the health of OSGi services by means of the
+ * {@link OsgiOutlierProxy proxies} that report the outcome and the response time of every exchange, and temporarily
+ * {@link OsgiServiceCollection#suspend(Object) suspends} the services which misbehave compared to their peers.
+ * <p/>
+ * The statistics are evaluated once per interval. A service that processed at least the minimum number of exchanges
+ * in the interval is ejected if its error rate exceeds the median error rate of its peers by the specified margin, or
+ * if its average response time exceeds the median response time of its peers by the specified factor. The service is
+ * ejected for the base ejection time multiplied by {@code 2^(n-1)}, where {@code n} is the number of times the service
+ * has been ejected recently, and then resumed. Each interval the service stays healthy decreases {@code n}. No more
+ * than the specified percent of the services are ejected at the same time.
+ * <p/>
+ * The detector does not start any threads: the statistics are evaluated by the thread that completes an exchange after
+ * the interval elapses. The ejected services which ejection time has elapsed are resumed by the evaluation as well as
+ * by {@link #resumeExpired()} which the producer calls for every exchange, so that the services are resumed even if
+ * there are no services left to complete exchanges. As services are suspended in the {@link OsgiServiceCollection} itself, the ejected services
+ * are skipped by any load balancer which selects from the collection.
+ */
+public class OsgiOutlierDetector {
+
+    private static final int MAX_BACKOFF_SHIFT = 10;
+
+    private final long interval;
+    private final int minimumRequests;
+    private final double errorRate;
+    private final double latencyFactor;
+    private final long ejectionTime;
+    private final int maxEjectionPercent;
+
+    private final Set<OsgiOutlierProxy> proxies =
+        Collections.newSetFromMap(new ConcurrentHashMap<OsgiOutlierProxy, Boolean>());
+    private final AtomicLong nextEvaluation;
+    private volatile long nextResumption = Long.MAX_VALUE;
+
+    private volatile OsgiServiceCollection<Processor> services;
+
+    /**
+     * Creates an instance of {@code OsgiOutlierDetector}.
+     *
+     * @param interval the interval in milliseconds to evaluate the statistics of the services at
+     * @param minimumRequests the minimum number of exchanges a service must process in the interval to be evaluated
+     * @param errorRate the margin the error rate of a service must exceed the median error rate by to eject it
+     * @param latencyFactor the factor the average response time of a service must exceed the median response time by
+     * to eject it, zero or less to not eject services because of their response time
+     * @param ejectionTime the base time in milliseconds to eject services for
+     * @param maxEjectionPercent the maximum percent of services that can be ejected at the same time
+     */
+    public OsgiOutlierDetector(long interval, int minimumRequests, double errorRate, double latencyFactor,
+            long ejectionTime, int maxEjectionPercent) {
+        this.interval = interval;
+        this.minimumRequests = Math.max(minimumRequests, 1);
+        this.errorRate = errorRate;
+        this.latencyFactor = latencyFactor;
+        this.ejectionTime = ejectionTime;
+        this.maxEjectionPercent = maxEjectionPercent;
+        this.nextEvaluation = new AtomicLong(now() + interval);
+    }
+
+    /**
+     * Sets the collection to suspend the ejected services in.
+     *
+     * @param services the collection the proxies of which are tracked by this detector
+     */
+    public void setServices(OsgiServiceCollection<Processor> services) {
+        this.services = services;
+    }
+
+    /**
+     * Starts tracking the given proxy.
+     *
+     * @param proxy the proxy to track
+     */
+    public void register(OsgiOutlierProxy proxy) {
+        proxies.add(proxy);
+    }
+
+    /**
+     * Stops tracking the given proxy, e.g. because its service has been unregistered.
+     *
+     * @param proxy the proxy to stop tracking
+     */
+    public void unregister(OsgiOutlierProxy proxy) {
+        proxies.remove(proxy);
+    }
+
+    /**
+     * Records the outcome of an exchange processed by the given proxy and evaluates the statistics of all the services
+     * if the interval has elapsed.
+     *
+     * @param proxy the proxy that processed the exchange
+     * @param failed whether the exchange failed
+     * @param latency the response time in nanoseconds
+     */
+    public void report(OsgiOutlierProxy proxy, boolean failed, long latency) {
+        proxy.record(failed, latency);
+
+        long now = now();
+        long next = nextEvaluation.get();
+        if (now >= next && nextEvaluation.compareAndSet(next, now + interval)) {
+            evaluate(now);
+        }
+    }
+
+    /**
+     * Resumes the ejected services which ejection time has elapsed, or all the ejected services if there are no other
+     * services left, e.g. because they have been unregistered. The call is cheap if there are no ejected services.
+     */
+    public void resumeExpired() {
+        long next = nextResumption;
+        if (next == Long.MAX_VALUE) {
+            return;
+        }
+        long now = now();
+        OsgiServiceCollection<Processor> collection = services;
+        if (now >= next || (collection != null && collection.isEmpty())) {
+            resume(now);
+        }
+    }
+
+    /**
+     * Resumes the ejected services which ejection time has elapsed, or all the ejected services if there are no other
+     * services left.
+     *
+     * @param now the current time in milliseconds
+     */
+    protected synchronized void resume(long now) {
+        OsgiServiceCollection<Processor> collection = services;
+        if (collection == null) {
+            return;
+        }
+
+        boolean empty = collection.isEmpty();
+        long next = Long.MAX_VALUE;
+        for (OsgiOutlierProxy proxy : proxies) {
+            if (proxy.ejected) {
+                if (empty || now >= proxy.ejectedUntil) {
+                    proxy.ejected = false;
+                    collection.resume(proxy);
+                } else {
+                    next = Math.min(next, proxy.ejectedUntil);
+                }
+            }
+        }
+        nextResumption = next;
+    }
+
+    /**
+     * Evaluates the statistics of all the tracked services, i.e. resumes the services which ejection time has elapsed
+     * and ejects the outliers.
+     *
+     * @param now the current time in milliseconds
+     */
+    protected synchronized void evaluate(long now) {
+        OsgiServiceCollection<Processor> collection = services;
+        if (collection == null) {
+            return;
+        }
+        resume(now);
+
+        List<OsgiOutlierProxy> evaluated = new ArrayList<OsgiOutlierProxy>();
+        int ejected = 0;
+        for (OsgiOutlierProxy proxy : proxies) {
+            proxy.snapshot();
+            if (proxy.ejected) {
+                ejected++;
+            } else if (proxy.requests >= minimumRequests) {
+                evaluated.add(proxy);
+            }
+        }
+        if (evaluated.size() < 2) {
+            return;
+        }
+
+        double medianErrorRate = median(evaluated, false);
+        double medianLatency = median(evaluated, true);
+        // at least one service is always kept to report the exchanges that trigger the evaluation
+        int maxEjected = Math.min(proxies.size() * maxEjectionPercent / 100, proxies.size() - 1);
+
+        for (OsgiOutlierProxy proxy : evaluated) {
+            boolean outlier = proxy.errorRate() > medianErrorRate + errorRate
+                || (latencyFactor > 0 && medianLatency > 0 && proxy.latency() > medianLatency * latencyFactor);
+            if (outlier && ejected < maxEjected) {
+                int shift = Math.min(proxy.ejections++, MAX_BACKOFF_SHIFT);
+                proxy.ejectedUntil = now + (ejectionTime << shift);
+                proxy.ejected = collection.suspend(proxy);
+                if (proxy.ejected) {
+                    ejected++;
+                    nextResumption = Math.min(nextResumption, proxy.ejectedUntil);
+                }
+            } else if (!outlier && proxy.ejections > 0) {
+                proxy.ejections--;
+            }
+        }
+    }
+
+    /**
+     * Returns whether the given proxy is ejected at the moment.
+     *
+     * @param proxy the proxy to check
+     *
+     * @return {@code true} if the proxy is ejected, {@code false} otherwise
+     */
+    public boolean isEjected(OsgiOutlierProxy proxy) {
+        return proxy.ejected;
+    }
+
+    private static double median(List<OsgiOutlierProxy> proxies, boolean latency) {
+        double[] values = new double[proxies.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = latency ? proxies.get(i).latency() : proxies.get(i).errorRate();
+        }
+        Arrays.sort(values);
+        int middle = values.length / 2;
+        return values.length % 2 == 1 ? values[middle] : (values[middle - 1] + values[middle]) / 2;
+    }
+
+    protected static long now() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+}
@@ -0,0 +1,175 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.camel.osgi.service.util;
+
+import org.apache.camel.AsyncCallback;
+import org.apache.camel.AsyncProcessor;
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+import org.apache.camel.util.AsyncProcessorConverterHelper;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.ServiceReference;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The {@code OsgiOutlierProxy} is a proxy which measures the outcome and the response time of every exchange sent to
+ * the OSGi service by means of the delegate proxy, and reports them to the {@link OsgiOutlierDetector}.
+ * <p/>
+ * All the methods of the {@link ServiceReference} are delegated to the delegate proxy, so it must implement
+ * {@link ServiceReference} as well as {@link OsgiProxy}.
+ *
+ * @see OsgiOutlierProxyCreator
+ */
+public class OsgiOutlierProxy implements AsyncProcessor, OsgiLeasingProxy, ServiceReference {
+
+    private final Processor proxy;
+    private final AsyncProcessor asyncProxy;
+    private final ServiceReference reference;
+    private final OsgiOutlierDetector detector;
+
+    private final AtomicInteger calls = new AtomicInteger();
+    private final AtomicInteger errors = new AtomicInteger();
+    private final AtomicLong latencies = new AtomicLong();
+
+    // the statistics of the last interval and the ejection state, guarded by the detector
+
+    int requests;
+    int failures;
+    long latency;
+    int ejections;
+    long ejectedUntil;
+    volatile boolean ejected;
+
+    /**
+     * Creates an instance of this class.
+     *
+     * @param proxy the proxy of the OSGi service to send exchanges to
+     * @param detector the detector to report the outcome of exchanges to
+     */
+    public OsgiOutlierProxy(Processor proxy, OsgiOutlierDetector detector) {
+        this.proxy = proxy;
+        this.asyncProxy = AsyncProcessorConverterHelper.convert(proxy);
+        this.reference = (ServiceReference) proxy;
+        this.detector = detector;
+    }
+
+    @Override
+    public void process(Exchange exchange) throws Exception {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            proxy.process(exchange);
+            failed = exchange.getException() != null;
+        } finally {
+            detector.report(this, failed, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public boolean process(final Exchange exchange, final AsyncCallback callback) {
+        final long start = System.nanoTime();
+        return asyncProxy.process(exchange, new AsyncCallback() {
+            @Override
+            public void done(boolean doneSync) {
+                detector.report(OsgiOutlierProxy.this, exchange.getException() != null, System.nanoTime() - start);
+                callback.done(doneSync);
+            }
+        });
+    }
+
+    void record(boolean failed, long latency) {
+        calls.incrementAndGet();
+        if (failed) {
+            errors.incrementAndGet();
+        }
+        latencies.addAndGet(latency);
+    }
+
+    /**
+     * Moves the statistics gathered since the previous snapshot to the fields read by the detector.
+     */
+    void snapshot() {
+        requests = calls.getAndSet(0);
+        failures = errors.getAndSet(0);
+        latency = latencies.getAndSet(0);
+    }
+
+    double errorRate() {
+        return requests > 0 ? (double) failures / requests : 0;
+    }
+
+    double latency() {
+        return requests > 0 ? (double) latency / requests : 0;
+    }
+
+    /**
+     * Returns the proxy exchanges are sent to.
+     *
+     * @return the delegate proxy
+     */
+    public Processor getProxy() {
+        return proxy;
+    }
+
+    @Override
+    public ServiceReference getReference() {
+        return ((OsgiProxy) proxy).getReference();
+    }
+
+    @Override
+    public void releaseService() {
+        detector.unregister(this);
+        if (proxy instanceof OsgiLeasingProxy) {
+            ((OsgiLeasingProxy) proxy).releaseService();
+        }
+    }
+
+    @Override
+    public Object getProperty(String key) {
+        return reference.getProperty(key);
+    }
+
+    @Override
+    public String[] getPropertyKeys() {
+        return reference.getPropertyKeys();
+    }
+
+    @Override
+    public Bundle getBundle() {
+        return reference.getBundle();
+    }
+
+    @Override
+    public Bundle[] getUsingBundles() {
+        return reference.getUsingBundles();
+    }
+
+    @Override
+    public boolean isAssignableTo(Bundle bundle, String className) {
+        return reference.isAssignableTo(bundle, className);
+    }
+
+    @Override
+    public int compareTo(Object reference) {
+        return this.reference.compareTo(reference);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("OsgiOutlierProxy(%s)", proxy);
+    }
+}
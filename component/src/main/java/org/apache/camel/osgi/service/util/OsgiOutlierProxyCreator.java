@@ -0,0 +1,76 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.camel.osgi.service.util;
+
+import org.apache.camel.Processor;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.BundleListener;
+import org.osgi.framework.ServiceReference;
+import org.osgi.framework.SynchronousBundleListener;
+
+/**
+ * The {@code OsgiOutlierProxyCreator} is the implementation of the {@link OsgiProxyCreator} that wraps the proxies
+ * created by the delegate proxy creator into {@link OsgiOutlierProxy proxies} tracked by the
+ * {@link OsgiOutlierDetector}.
+ * <p/>
+ * Only the proxies of {@link Processor camel processors} are wrapped, the other ones are returned as is. Bundle events
+ * are passed to the delegate proxy creator if it's a {@link BundleListener}.
+ *
+ * @see OsgiOutlierProxy
+ */
+public class OsgiOutlierProxyCreator implements OsgiProxyCreator, SynchronousBundleListener {
+
+    private final OsgiProxyCreator proxyCreator;
+    private final OsgiOutlierDetector detector;
+
+    /**
+     * Creates a proxy creator.
+     *
+     * @param proxyCreator the proxy creator to create the proxies to wrap
+     * @param detector the detector to track the created proxies
+     */
+    public OsgiOutlierProxyCreator(OsgiProxyCreator proxyCreator, OsgiOutlierDetector detector) {
+        this.proxyCreator = proxyCreator;
+        this.detector = detector;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T createProxy(BundleContext bundleContext, ServiceReference reference, ClassLoader classLoader) {
+        Object proxy = proxyCreator.createProxy(bundleContext, reference, classLoader);
+        if (!(proxy instanceof Processor)) {
+            return (T) proxy;
+        }
+        OsgiOutlierProxy answer = new OsgiOutlierProxy((Processor) proxy, detector);
+        detector.register(answer);
+        return (T) answer;
+    }
+
+    @Override
+    public void bundleChanged(BundleEvent event) {
+        if (proxyCreator instanceof BundleListener) {
+            ((BundleListener) proxyCreator).bundleChanged(event);
+        }
+    }
+
+    public OsgiProxyCreator getProxyCreator() {
+        return proxyCreator;
+    }
+
+    public OsgiOutlierDetector getDetector() {
+        return detector;
+    }
+}
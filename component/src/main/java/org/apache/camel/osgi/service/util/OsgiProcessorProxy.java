@@ -0,0 +1,143 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.camel.osgi.service.util;
+
+import org.apache.camel.AsyncCallback;
+import org.apache.camel.AsyncProcessor;
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+import org.apache.camel.util.AsyncProcessorConverterHelper;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.ServiceReference;
+
+/**
+ * The {@code OsgiProcessorProxy} is a concrete proxy for OSGi services that are published only as
+ * {@link Processor camel processors} or {@link AsyncProcessor asynchronous camel processors}.
+ * <p/>
+ * Unlike {@link java.lang.reflect.Proxy dynamic proxies} it calls the exported service directly, i.e. without
+ * {@link java.lang.reflect.InvocationHandler} and reflection, so that the call sites remain monomorphic and can be
+ * easily inlined. Getting and releasing of the exported service is delegated to the {@link OsgiInvocationHandler}.
+ *
+ * @see OsgiProcessorProxyCreator
+ */
+public class OsgiProcessorProxy implements AsyncProcessor, OsgiLeasingProxy, ServiceReference {
+
+    private final OsgiInvocationHandler handler;
+    private final ServiceReference reference;
+
+    /**
+     * The leased service adapted to {@link AsyncProcessor}, so that it's not adapted on every call.
+     */
+    private volatile LeasedService leasedService;
+
+    public OsgiProcessorProxy(OsgiInvocationHandler handler) {
+        this.handler = handler;
+        this.reference = handler.getReference();
+    }
+
+    @Override
+    public void process(Exchange exchange) throws Exception {
+        Processor leased = (Processor) handler.leaseService();
+        if (leased != null) {
+            leased.process(exchange);
+            return;
+        }
+
+        Processor service = (Processor) handler.getService();
+        try {
+            service.process(exchange);
+        } finally {
+            handler.ungetService();
+        }
+    }
+
+    @Override
+    public boolean process(Exchange exchange, AsyncCallback callback) {
+        try {
+            Processor leased = (Processor) handler.leaseService();
+            if (leased != null) {
+                LeasedService current = leasedService;
+                if (current == null || current.service != leased) {
+                    current = new LeasedService(leased);
+                    leasedService = current;
+                }
+                return current.asyncService.process(exchange, callback);
+            }
+
+            Processor service = (Processor) handler.getService();
+            return handler.processAndUngetService(AsyncProcessorConverterHelper.convert(service), exchange, callback);
+        } catch (Throwable e) {
+            exchange.setException(e);
+            callback.done(true);
+            return true;
+        }
+    }
+
+    @Override
+    public ServiceReference getReference() {
+        return reference;
+    }
+
+    @Override
+    public void releaseService() {
+        handler.releaseService();
+        leasedService = null;
+    }
+
+    @Override
+    public Object getProperty(String key) {
+        return reference.getProperty(key);
+    }
+
+    @Override
+    public String[] getPropertyKeys() {
+        return reference.getPropertyKeys();
+    }
+
+    @Override
+    public Bundle getBundle() {
+        return reference.getBundle();
+    }
+
+    @Override
+    public Bundle[] getUsingBundles() {
+        return reference.getUsingBundles();
+    }
+
+    @Override
+    public boolean isAssignableTo(Bundle bundle, String className) {
+        return reference.isAssignableTo(bundle, className);
+    }
+
+    @Override
+    public int compareTo(Object reference) {
+        return this.reference.compareTo(reference);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("OsgiProcessorProxy(%s)", reference);
+    }
+
+    private static final class LeasedService {
+        private final Processor service;
+        private final AsyncProcessor asyncService;
+
+        private LeasedService(Processor service) {
+            this.service = service;
+            this.asyncService = AsyncProcessorConverterHelper.convert(service);
+        }
+    }
+}
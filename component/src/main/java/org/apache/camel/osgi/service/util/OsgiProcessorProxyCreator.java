@@ -0,0 +1,133 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.camel.osgi.service.util;
+
+import org.apache.camel.AsyncProcessor;
+import org.apache.camel.Processor;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.BundleListener;
+import org.osgi.framework.Constants;
+import org.osgi.framework.ServiceReference;
+import org.osgi.framework.SynchronousBundleListener;
+
+/**
+ * The {@code OsgiProcessorProxyCreator} is the implementation of the {@link OsgiProxyCreator} that creates
+ * {@link OsgiProcessorProxy concrete proxies} for OSGi services published only as {@link Processor camel processors},
+ * optionally together with {@link AsyncProcessor}.
+ * <p/>
+ * Services that are published under any other interfaces or which see another version of the {@link Processor}
+ * interface are proxied by means of the fallback proxy creator, which is {@link OsgiDefaultProxyCreator} by default.
+ * Bundle events are passed to the fallback proxy creator if it's a {@link BundleListener}.
+ *
+ * @see OsgiProcessorProxy
+ */
+public class OsgiProcessorProxyCreator implements OsgiProxyCreator, SynchronousBundleListener {
+
+    private final boolean lease;
+    private final OsgiProxyCreator fallbackProxyCreator;
+
+    /**
+     * Creates a proxy creator which proxies get and release OSGi services on every call.
+     */
+    public OsgiProcessorProxyCreator() {
+        this(false);
+    }
+
+    /**
+     * Creates a proxy creator.
+     *
+     * @param lease {@code true} if the created proxies must get OSGi services once and keep them until they are
+     * {@link OsgiLeasingProxy#releaseService() released}, {@code false} if services must be get and released on every call
+     */
+    public OsgiProcessorProxyCreator(boolean lease) {
+        this(lease, new OsgiDefaultProxyCreator(lease));
+    }
+
+    /**
+     * Creates a proxy creator.
+     *
+     * @param lease {@code true} if the created proxies must get OSGi services once and keep them until they are
+     * {@link OsgiLeasingProxy#releaseService() released}, {@code false} if services must be get and released on every call
+     * @param fallbackProxyCreator the proxy creator for services that are not published only as camel processors
+     */
+    public OsgiProcessorProxyCreator(boolean lease, OsgiProxyCreator fallbackProxyCreator) {
+        this.lease = lease;
+        this.fallbackProxyCreator = fallbackProxyCreator;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T createProxy(BundleContext bundleContext, ServiceReference reference, ClassLoader classLoader) {
+        if(reference.getBundle() == null) {
+            throw new IllegalArgumentException(String.format("Service [%s] has been unregistered", reference));
+        }
+
+        String[] classNames = (String[]) reference.getProperty(Constants.OBJECTCLASS);
+        if (!isProcessor(classNames, classLoader)) {
+            return fallbackProxyCreator.<T>createProxy(bundleContext, reference, classLoader);
+        }
+
+        return (T) new OsgiProcessorProxy(new OsgiInvocationHandler(bundleContext, reference, lease));
+    }
+
+    @Override
+    public void bundleChanged(BundleEvent event) {
+        if (fallbackProxyCreator instanceof BundleListener) {
+            ((BundleListener) fallbackProxyCreator).bundleChanged(event);
+        }
+    }
+
+    /**
+     * Checks whether the service is published only as the {@link Processor} and optionally {@link AsyncProcessor}
+     * which are the same as visible to this bundle.
+     *
+     * @param classNames the names of the classes the service is published under
+     * @param classLoader the class loader of the exporting bundle
+     *
+     * @return {@code true} if the service can be proxied by means of {@link OsgiProcessorProxy}
+     */
+    protected boolean isProcessor(String[] classNames, ClassLoader classLoader) {
+        if (classNames == null || classNames.length == 0) {
+            return false;
+        }
+        for (String className : classNames) {
+            Class<?> clazz;
+            if (Processor.class.getName().equals(className)) {
+                clazz = Processor.class;
+            } else if (AsyncProcessor.class.getName().equals(className)) {
+                clazz = AsyncProcessor.class;
+            } else {
+                return false;
+            }
+            try {
+                if (classLoader.loadClass(className) != clazz) {
+                    return false;
+                }
+            } catch (ClassNotFoundException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean isLease() {
+        return lease;
+    }
+
+    public OsgiProxyCreator getFallbackProxyCreator() {
+        return fallbackProxyCreator;
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.camel.osgi.service.util;
+
+import org.osgi.framework.BundleContext;
+
+/**
+ * The {@code OsgiRankedServiceList} is {@link OsgiServiceList} that keeps the tracked services ordered from the most
+ * actual to the least actual one as defined by {@link org.osgi.framework.ServiceReference#compareTo(Object)}, i.e. by
+ * descending {@link org.osgi.framework.Constants#SERVICE_RANKING service.ranking} and then by ascending
+ * {@link org.osgi.framework.Constants#SERVICE_ID service.id}.
+ * <p/>
+ * So the element at index {@code 0} is always the preferred service and the services of the same ranking form a
+ * contiguous range. Each new service is inserted at its position by means of the binary search, and the service is
+ * repositioned when its ranking is modified.
+ * <p/>
+ * The proxies of the services must implement {@link org.osgi.framework.ServiceReference}, what is true for the proxies
+ * created by {@link OsgiDefaultProxyCreator}, {@link OsgiProcessorProxyCreator} and {@link OsgiLazyProxyCreator}.
+ */
+public class OsgiRankedServiceList<E> extends OsgiServiceList<E> {
+
+    public OsgiRankedServiceList(BundleContext context, String filter, ClassLoader classLoader,
+        OsgiProxyCreator proxyCreator) {
+
+        super(context, filter, classLoader, proxyCreator);
+    }
+
+    @Override
+    protected void addService(E service) {
+        ((DynamicList<E>) services).add(position(service), service);
+    }
+
+    @Override
+    protected void modifyService(E service) {
+        services.remove(service);
+        addService(service);
+    }
+
+    /**
+     * Finds the index to insert the given service at. The method is called under the lock of the collection, so the
+     * list cannot be modified concurrently.
+     *
+     * @param service the service to find the position for
+     *
+     * @return the index of the first service that is less actual than the given one or the size of the list
+     */
+    @SuppressWarnings("unchecked")
+    private int position(E service) {
+        int low = 0;
+        int high = services.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (((Comparable<Object>) services.get(mid)).compareTo(service) >= 0) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+}
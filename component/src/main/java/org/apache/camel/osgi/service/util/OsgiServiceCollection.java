@@ -15,32 +15,59 @@
 package org.apache.camel.osgi.service.util;
 
 import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.BundleListener;
 import org.osgi.framework.Constants;
 import org.osgi.framework.InvalidSyntaxException;
 import org.osgi.framework.ServiceEvent;
 import org.osgi.framework.ServiceListener;
 import org.osgi.framework.ServiceReference;
+import org.osgi.framework.SynchronousBundleListener;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * The {@code OsgiServiceCollection} is OSGi service dynamic collection that allows iterating while the
  * underlying storage is being shrunk/expanded. This collection is read-only as its content is being retrieved
  * dynamically from the OSGi platform.
  * <p/>
- * This collection and its iterators are thread-safe. That is, multiple threads can access the collection. However,
- * since the collection is read-only, it cannot be modified by the client.
+ * This collection is thread-safe. That is, multiple threads can access the collection. However, since the collection
+ * is read-only, it cannot be modified by the client. The services are kept in the copy-on-write
+ * {@link DynamicCollection}, so that reads and iterations do not lock, but each iterator must be used by a single
+ * thread.
  * <p/>
  * {@link #startTracking()} method must be called prior to track for the OSGi services. {@link #stopTracking}
  * method must be called to release all the associated resources.
+ * <p/>
+ * If the {@link OsgiProxyCreator} is a {@link BundleListener}, e.g. to maintain some bundle related caches, then
+ * the bundle events are passed to it while tracking.
+ * <p/>
+ * {@link OsgiServiceCollectionListener Listeners} can be registered to be notified about the services that are added,
+ * modified and removed while tracking.
+ * <p/>
+ * Tracked services can be temporarily {@link #suspend(Object) suspended}, e.g. when they misbehave. Suspended services
+ * are removed from the collection until they are {@link #resume(Object) resumed} or unregistered.
+ * <p/>
+ * The time the services are registered at while tracking is available by means of
+ * {@link #getRegistrationTime(Object)}, e.g. to warm up newly started services.
  */
 public class OsgiServiceCollection<E> implements Collection<E> {
 
     protected final DynamicCollection<E> services;
     protected final Map<Long, E> idToService;
+    protected final Set<E> suspended;
+    protected final ConcurrentMap<Long, Long> registrationTimes;
 
     protected final Object lock = new Object();
 
@@ -48,8 +75,10 @@ public class OsgiServiceCollection<E> implements Collection<E> {
 
     protected final String filter;
     protected final ServiceListener listener;
+    protected final BundleListener bundleListener;
     protected final ClassLoader fallbackClassLoader;
     protected final OsgiProxyCreator proxyCreator;
+    protected final List<OsgiServiceCollectionListener<? super E>> listeners;
 
     /**
      * Create an instance of {@code OsgiServiceCollection}.
@@ -62,7 +91,7 @@ public class OsgiServiceCollection<E> implements Collection<E> {
      */
     public OsgiServiceCollection(BundleContext bundleContext, String filter, ClassLoader fallbackClassLoader,
              OsgiProxyCreator proxyCreator) {
-        this(bundleContext, filter, fallbackClassLoader, proxyCreator, new DynamicCollection<E>());
+        this(bundleContext, filter, fallbackClassLoader, proxyCreator, new DynamicCollection<E>(true));
     }
 
     /**
@@ -83,7 +112,38 @@ public class OsgiServiceCollection<E> implements Collection<E> {
         this.proxyCreator = proxyCreator;
         this.services = backed;
         this.idToService = new HashMap<Long, E>();
+        this.suspended = Collections.newSetFromMap(new IdentityHashMap<E, Boolean>());
+        this.registrationTimes = new ConcurrentHashMap<Long, Long>();
         this.listener = new ServiceInstanceListener();
+        this.bundleListener = new BundleStateListener();
+        this.listeners = new CopyOnWriteArrayList<OsgiServiceCollectionListener<? super E>>();
+    }
+
+    /**
+     * Registers a listener to be notified about changes of the tracked services.
+     * <p/>
+     * The listener is notified about all the services that are already tracked as if they were just added.
+     *
+     * @param listener the listener to register
+     */
+    public void addListener(OsgiServiceCollectionListener<? super E> listener) {
+        synchronized (lock) {
+            listeners.add(listener);
+            for (E service : services) {
+                listener.serviceAdded(service);
+            }
+        }
+    }
+
+    /**
+     * Unregisters the previously registered listener.
+     *
+     * @param listener the listener to unregister
+     */
+    public void removeListener(OsgiServiceCollectionListener<? super E> listener) {
+        synchronized (lock) {
+            listeners.remove(listener);
+        }
     }
 
     /**
@@ -92,12 +152,17 @@ public class OsgiServiceCollection<E> implements Collection<E> {
      * @throws IllegalStateException if this collection was initialized with invalid OSGi filter
      */
     public void startTracking() {
+        if (proxyCreator instanceof BundleListener) {
+            bundleContext.addBundleListener(bundleListener);
+        }
         try {
             bundleContext.addServiceListener(listener, filter);
             ServiceReference[] alreadyDefined = bundleContext.getServiceReferences(null, filter);
             if(alreadyDefined != null) {
+                // the services registered before tracking are treated as modified ones to not record their
+                // registration time
                 for(ServiceReference ref : alreadyDefined) {
-                    listener.serviceChanged(new ServiceEvent(ServiceEvent.REGISTERED, ref));
+                    listener.serviceChanged(new ServiceEvent(ServiceEvent.MODIFIED, ref));
                 }
             }
         } catch (InvalidSyntaxException e) {
@@ -112,11 +177,15 @@ public class OsgiServiceCollection<E> implements Collection<E> {
         bundleContext.removeServiceListener(listener);
 
         synchronized (lock) {
-            for (E service : services) {
+            for (E service : new ArrayList<E>(idToService.values())) {
                 listener.serviceChanged(
                     new ServiceEvent(ServiceEvent.UNREGISTERING, ((OsgiProxy) service).getReference()));
             }
         }
+
+        if (proxyCreator instanceof BundleListener) {
+            bundleContext.removeBundleListener(bundleListener);
+        }
     }
 
     @Override
@@ -194,6 +263,87 @@ public class OsgiServiceCollection<E> implements Collection<E> {
         return services.toArray(array);
     }
 
+    /**
+     * Suspends the tracked service, i.e. removes it from this collection until it is {@link #resume(Object) resumed}.
+     * Listeners are notified as if the service has been removed.
+     *
+     * @param service the proxy of the service to suspend
+     *
+     * @return {@code true} if the service has been suspended, {@code false} if it is already suspended or it is not
+     * tracked
+     */
+    public boolean suspend(E service) {
+        synchronized (lock) {
+            if (!isTracked(service) || !suspended.add(service)) {
+                return false;
+            }
+            services.remove(service);
+            for (OsgiServiceCollectionListener<? super E> l : listeners) {
+                l.serviceRemoved(service);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Resumes the previously suspended service, i.e. returns it back to this collection. Listeners are notified as if
+     * the service has been added.
+     *
+     * @param service the proxy of the service to resume
+     *
+     * @return {@code true} if the service has been resumed, {@code false} if it is not suspended or it is not tracked
+     * any more
+     */
+    public boolean resume(E service) {
+        synchronized (lock) {
+            if (!isTracked(service) || !suspended.remove(service)) {
+                return false;
+            }
+            addService(service);
+            for (OsgiServiceCollectionListener<? super E> l : listeners) {
+                l.serviceAdded(service);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Returns the time the given service has been registered at.
+     *
+     * @param service the proxy of the tracked service
+     *
+     * @return the time in milliseconds the {@link ServiceEvent#REGISTERED registration} of the service has been
+     * received at, or {@code 0} if the service had been registered before tracking started or it is not tracked
+     */
+    public long getRegistrationTime(E service) {
+        ServiceReference ref = ((OsgiProxy) service).getReference();
+        Long time = registrationTimes.get((Long) ref.getProperty(Constants.SERVICE_ID));
+        return time != null ? time : 0;
+    }
+
+    private boolean isTracked(E service) {
+        ServiceReference ref = ((OsgiProxy) service).getReference();
+        return idToService.get((Long) ref.getProperty(Constants.SERVICE_ID)) == service;
+    }
+
+    /**
+     * Adds the proxy of the newly tracked service to the backed collection. Called under the lock of this collection.
+     *
+     * @param service the proxy of the service to add
+     */
+    protected void addService(E service) {
+        services.add(service);
+    }
+
+    /**
+     * Called under the lock of this collection when properties of the already tracked service have been modified.
+     * Does nothing by default as proxies read properties from the original service reference.
+     *
+     * @param service the proxy of the modified service
+     */
+    protected void modifyService(E service) {
+    }
+
     protected class ServiceInstanceListener implements ServiceListener {
         @Override
         public void serviceChanged(ServiceEvent event) {
@@ -203,21 +353,46 @@ public class OsgiServiceCollection<E> implements Collection<E> {
                 case ServiceEvent.REGISTERED:
                 case ServiceEvent.MODIFIED:
                     synchronized (lock) {
-                        @SuppressWarnings("unchecked")
-                        E service = (E) proxyCreator.createProxy(
-                            bundleContext, ref, new BundleDelegatingClassLoader(ref.getBundle(), fallbackClassLoader));
-                        idToService.put(serviceID, service);
-                        services.add(service);
+                        // proxies read properties from the original reference, so it is enough to notify the
+                        // listeners if the modified service is already tracked
+                        E service = idToService.get(serviceID);
+                        if (service == null) {
+                            if (event.getType() == ServiceEvent.REGISTERED) {
+                                registrationTimes.put(serviceID, System.currentTimeMillis());
+                            }
+                            @SuppressWarnings("unchecked")
+                            E created = (E) proxyCreator.createProxy(bundleContext, ref,
+                                new BundleDelegatingClassLoader(ref.getBundle(), fallbackClassLoader));
+                            idToService.put(serviceID, created);
+                            addService(created);
+                            for (OsgiServiceCollectionListener<? super E> l : listeners) {
+                                l.serviceAdded(created);
+                            }
+                        } else if (!suspended.contains(service)) {
+                            modifyService(service);
+                            for (OsgiServiceCollectionListener<? super E> l : listeners) {
+                                l.serviceModified(service);
+                            }
+                        }
                     }
                     break;
                 case ServiceEvent.UNREGISTERING:
                 case ServiceEvent.MODIFIED_ENDMATCH:
                     synchronized (lock) {
                         E service = idToService.remove(serviceID);
+                        registrationTimes.remove(serviceID);
                         if (service != null) {
-                            services.remove(service);
+                            // suspended services have been already removed
+                            if (!suspended.remove(service)) {
+                                services.remove(service);
+                                for (OsgiServiceCollectionListener<? super E> l : listeners) {
+                                    l.serviceRemoved(service);
+                                }
+                            }
+                            if (service instanceof OsgiLeasingProxy) {
+                                ((OsgiLeasingProxy) service).releaseService();
+                            }
                         }
-                        bundleContext.ungetService(ref);
                     }
                     break;
                 default:
@@ -226,6 +401,13 @@ public class OsgiServiceCollection<E> implements Collection<E> {
         }
     }
 
+    protected class BundleStateListener implements SynchronousBundleListener {
+        @Override
+        public void bundleChanged(BundleEvent event) {
+            ((BundleListener) proxyCreator).bundleChanged(event);
+        }
+    }
+
     protected class OsgiServiceIterator implements Iterator<E> {
 
         private final Iterator<E> iter = services.iterator();
@@ -0,0 +1,50 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.camel.osgi.service.util;
+
+/**
+ * The {@code OsgiServiceCollectionListener} is notified by {@link OsgiServiceCollection} when the tracked OSGi services
+ * change, so that the state derived from them, e.g. the service to send exchanges to, can be maintained incrementally
+ * instead of being recalculated on each access.
+ * <p/>
+ * Notifications are delivered under the lock of the collection, i.e. one at a time and after the collection has been
+ * updated. Listeners must return quickly and must not block.
+ *
+ * @see OsgiServiceCollection#addListener(OsgiServiceCollectionListener)
+ */
+public interface OsgiServiceCollectionListener<E> {
+
+    /**
+     * Called when a service has been added to the collection.
+     *
+     * @param service the proxy of the added service
+     */
+    void serviceAdded(E service);
+
+    /**
+     * Called when properties of a service already tracked by the collection have been modified.
+     *
+     * @param service the proxy of the modified service
+     */
+    void serviceModified(E service);
+
+    /**
+     * Called when a service has been removed from the collection.
+     *
+     * @param service the proxy of the removed service
+     */
+    void serviceRemoved(E service);
+
+}
@@ -0,0 +1,193 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.camel.osgi.service.util;
+
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceReference;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The {@code OsgiServiceLeasePool} is a reference counted pool of the OSGi services leased by the application bundle.
+ * <p/>
+ * There is only one pool per {@link BundleContext application bundle context}, which is shared by all the endpoints of
+ * the bundle, so that the service is got from the OSGi service registry only once whatever number of the endpoints
+ * lease it, and is released only after the last of them releases it. The pool itself is discarded as soon as there are
+ * no leased services in it.
+ *
+ * @see OsgiInvocationHandler
+ */
+public class OsgiServiceLeasePool {
+
+    private static final Map<BundleContext, OsgiServiceLeasePool> POOLS =
+        new HashMap<BundleContext, OsgiServiceLeasePool>();
+
+    private final BundleContext bundleContext;
+    private final Map<ServiceReference, Lease> leases = new HashMap<ServiceReference, Lease>();
+    private int pending;
+    private boolean disposed;
+
+    private OsgiServiceLeasePool(BundleContext bundleContext) {
+        this.bundleContext = bundleContext;
+    }
+
+    /**
+     * Leases the OSGi service associated with the provided reference getting it from the OSGi service registry only
+     * if it's not leased yet by the same bundle. Every successful lease must be paired with
+     * {@link #release(BundleContext, ServiceReference)}.
+     * <p/>
+     * The service is got from the OSGi service registry without holding any lock, as getting the service can call
+     * the {@link org.osgi.framework.ServiceFactory} of the service bundle. If the service is leased concurrently by
+     * several threads, the superfluous ones are returned to the registry right away.
+     *
+     * @param bundleContext the application bundle context to lease the service for
+     * @param reference the reference of the service to lease
+     *
+     * @return the leased service or {@code null} if the service is not available
+     */
+    public static Object lease(BundleContext bundleContext, ServiceReference reference) {
+        OsgiServiceLeasePool pool;
+        while (true) {
+            synchronized (POOLS) {
+                pool = POOLS.get(bundleContext);
+                if (pool == null) {
+                    pool = new OsgiServiceLeasePool(bundleContext);
+                    POOLS.put(bundleContext, pool);
+                }
+            }
+            synchronized (pool) {
+                // the pool can be discarded by the concurrent release after it has been looked up
+                if (!pool.disposed) {
+                    Lease lease = pool.leases.get(reference);
+                    if (lease != null) {
+                        lease.count++;
+                        return lease.service;
+                    }
+                    // the pool must not be discarded while the service is being got
+                    pool.pending++;
+                    break;
+                }
+            }
+        }
+
+        Object service = null;
+        boolean superfluous = false;
+        try {
+            service = bundleContext.getService(reference);
+        } finally {
+            synchronized (POOLS) {
+                synchronized (pool) {
+                    pool.pending--;
+                    if (service != null) {
+                        Lease lease = pool.leases.get(reference);
+                        if (lease == null) {
+                            lease = new Lease(service);
+                            pool.leases.put(reference, lease);
+                        } else {
+                            superfluous = true;
+                        }
+                        lease.count++;
+                        service = lease.service;
+                    }
+                    pool.disposeIfUnused();
+                }
+            }
+        }
+        if (superfluous) {
+            bundleContext.ungetService(reference);
+        }
+        return service;
+    }
+
+    /**
+     * Releases the OSGi service previously leased by means of {@link #lease(BundleContext, ServiceReference)}. The
+     * service is returned to the OSGi service registry when it's released by the last user.
+     *
+     * @param bundleContext the application bundle context the service has been leased for
+     * @param reference the reference of the leased service
+     */
+    public static void release(BundleContext bundleContext, ServiceReference reference) {
+        boolean unget = false;
+        synchronized (POOLS) {
+            OsgiServiceLeasePool pool = POOLS.get(bundleContext);
+            if (pool == null) {
+                return;
+            }
+            synchronized (pool) {
+                Lease lease = pool.leases.get(reference);
+                if (lease != null && --lease.count == 0) {
+                    pool.leases.remove(reference);
+                    unget = true;
+                }
+                pool.disposeIfUnused();
+            }
+        }
+        // the service is returned without holding any lock for the same reason it's got without it
+        if (unget) {
+            bundleContext.ungetService(reference);
+        }
+    }
+
+    /**
+     * Returns the number of active leases of the service associated with the provided reference.
+     *
+     * @param bundleContext the application bundle context the service is leased for
+     * @param reference the reference of the leased service
+     *
+     * @return the number of active leases of the service
+     */
+    public static int getLeaseCount(BundleContext bundleContext, ServiceReference reference) {
+        synchronized (POOLS) {
+            OsgiServiceLeasePool pool = POOLS.get(bundleContext);
+            if (pool == null) {
+                return 0;
+            }
+            synchronized (pool) {
+                Lease lease = pool.leases.get(reference);
+                return lease != null ? lease.count : 0;
+            }
+        }
+    }
+
+    /**
+     * Returns whether there is a pool for the provided bundle context.
+     */
+    static boolean isPooled(BundleContext bundleContext) {
+        synchronized (POOLS) {
+            return POOLS.containsKey(bundleContext);
+        }
+    }
+
+    /**
+     * Discards the pool if there are neither leased services nor services being leased. Must be called while holding
+     * the locks of both the pools and this pool.
+     */
+    private void disposeIfUnused() {
+        if (leases.isEmpty() && pending == 0) {
+            disposed = true;
+            POOLS.remove(bundleContext);
+        }
+    }
+
+    private static final class Lease {
+        private final Object service;
+        private int count;
+
+        private Lease(Object service) {
+            this.service = service;
+        }
+    }
+}
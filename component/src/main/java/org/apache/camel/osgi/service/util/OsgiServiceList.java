@@ -26,15 +26,16 @@ import java.util.RandomAccess;
  * underlying storage is being shrunk/expanded. This list is read-only as its content is being retrieved
  * dynamically from the OSGi platform.
  * <p/>
- * This list and its iterators are thread-safe. That is, multiple threads can access the list. However,
- * since the list is read-only, it cannot be modified by the client.
+ * This list is thread-safe. That is, multiple threads can access the list. However, since the list is read-only, it
+ * cannot be modified by the client. The services are kept in the copy-on-write {@link DynamicList}, so that reads and
+ * iterations do not lock, but each iterator must be used by a single thread.
  */
 public class OsgiServiceList<E> extends OsgiServiceCollection<E> implements List<E>, RandomAccess {
 
     public OsgiServiceList(BundleContext context, String filter, ClassLoader classLoader,
         OsgiProxyCreator proxyCreator) {
 
-        super(context, filter, classLoader, proxyCreator, new DynamicList<E>());
+        super(context, filter, classLoader, proxyCreator, new DynamicList<E>(true));
     }
 
     @Override
@@ -0,0 +1,205 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.camel.osgi.service;
+
+import org.apache.camel.AsyncCallback;
+import org.apache.camel.AsyncProcessor;
+import org.apache.camel.CamelContext;
+import org.apache.camel.Exchange;
+import org.apache.camel.ExchangePattern;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.impl.DefaultExchange;
+import org.apache.camel.util.ServiceHelper;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.osgi.framework.BundleContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class OsgiBatchProducerTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testProcessBatchSize() throws Exception {
+        AsyncProcessor processor = mock(AsyncProcessor.class);
+        when(processor.process(any(Exchange.class), any(AsyncCallback.class))).thenAnswer(new Answer<Boolean>() {
+            @Override
+            public Boolean answer(InvocationOnMock invocation) throws Throwable {
+                ((AsyncCallback) invocation.getArguments()[1]).done(true);
+                return true;
+            }
+        });
+
+        OsgiBatchProducer producer = createProducer(2, 60000);
+        producer.asyncProcessor = processor;
+        try {
+            CamelContext camelContext = new DefaultCamelContext();
+            Exchange exchange1 = new DefaultExchange(camelContext, ExchangePattern.InOut);
+            Exchange exchange2 = new DefaultExchange(camelContext, ExchangePattern.InOut);
+            AsyncCallback callback = mock(AsyncCallback.class);
+
+            assertThat(producer.process(exchange1, callback), equalTo(false));
+            verify(processor, never()).process(any(Exchange.class), any(AsyncCallback.class));
+
+            assertThat(producer.process(exchange2, callback), equalTo(false));
+
+            ArgumentCaptor<Exchange> captor = ArgumentCaptor.forClass(Exchange.class);
+            verify(processor).process(captor.capture(), any(AsyncCallback.class));
+
+            Exchange batch = captor.getValue();
+            assertThat(batch.getProperty(OsgiComponent.BATCH_PROP), equalTo((Object) Boolean.TRUE));
+            assertThat(batch.getPattern(), sameInstance(ExchangePattern.InOut));
+
+            List<Exchange> exchanges = batch.getIn().getBody(List.class);
+            assertThat(exchanges.size(), equalTo(2));
+            assertThat(exchanges.get(0), sameInstance(exchange1));
+            assertThat(exchanges.get(1), sameInstance(exchange2));
+
+            verify(callback, times(2)).done(false);
+        } finally {
+            ServiceHelper.stopAndShutdownService(producer);
+        }
+    }
+
+    @Test
+    public void testProcessBatchTimeout() throws Exception {
+        AsyncProcessor processor = mock(AsyncProcessor.class);
+        when(processor.process(any(Exchange.class), any(AsyncCallback.class))).thenAnswer(new Answer<Boolean>() {
+            @Override
+            public Boolean answer(InvocationOnMock invocation) throws Throwable {
+                ((AsyncCallback) invocation.getArguments()[1]).done(true);
+                return true;
+            }
+        });
+
+        OsgiBatchProducer producer = createProducer(100, 50);
+        producer.asyncProcessor = processor;
+        try {
+            Exchange exchange = new DefaultExchange(new DefaultCamelContext(), ExchangePattern.InOnly);
+            AsyncCallback callback = mock(AsyncCallback.class);
+
+            // the producer must not wait for the batch to be sent
+            assertThat(producer.process(exchange, callback), equalTo(true));
+            verify(callback).done(true);
+
+            verify(processor, timeout(5000)).process(any(Exchange.class), any(AsyncCallback.class));
+        } finally {
+            ServiceHelper.stopAndShutdownService(producer);
+        }
+    }
+
+    @Test
+    public void testProcessBatchException() throws Exception {
+        final Exception exception = new IllegalStateException();
+
+        AsyncProcessor processor = mock(AsyncProcessor.class);
+        when(processor.process(any(Exchange.class), any(AsyncCallback.class))).thenAnswer(new Answer<Boolean>() {
+            @Override
+            public Boolean answer(InvocationOnMock invocation) throws Throwable {
+                ((Exchange) invocation.getArguments()[0]).setException(exception);
+                ((AsyncCallback) invocation.getArguments()[1]).done(true);
+                return true;
+            }
+        });
+
+        OsgiBatchProducer producer = createProducer(1, 60000);
+        producer.asyncProcessor = processor;
+        try {
+            Exchange exchange = new DefaultExchange(new DefaultCamelContext(), ExchangePattern.InOut);
+            AsyncCallback callback = mock(AsyncCallback.class);
+            producer.process(exchange, callback);
+
+            verify(callback).done(false);
+            assertThat(exchange.getException(), sameInstance(exception));
+        } finally {
+            ServiceHelper.stopAndShutdownService(producer);
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testProcessBatchOrder() throws Exception {
+        final List<Object> received = Collections.synchronizedList(new ArrayList<Object>());
+        final AtomicBoolean first = new AtomicBoolean(true);
+        AsyncProcessor processor = mock(AsyncProcessor.class);
+        when(processor.process(any(Exchange.class), any(AsyncCallback.class))).thenAnswer(new Answer<Boolean>() {
+            @Override
+            public Boolean answer(InvocationOnMock invocation) throws Throwable {
+                List<Exchange> batch = ((Exchange) invocation.getArguments()[0]).getIn().getBody(List.class);
+                if (first.getAndSet(false)) {
+                    // the batch flushed by the timer is being sent while the next batch becomes full
+                    Thread.sleep(500);
+                }
+                for (Exchange exchange : batch) {
+                    received.add(exchange.getIn().getBody());
+                }
+                ((AsyncCallback) invocation.getArguments()[1]).done(true);
+                return true;
+            }
+        });
+
+        OsgiBatchProducer producer = createProducer(2, 10);
+        producer.asyncProcessor = processor;
+        try {
+            CamelContext camelContext = new DefaultCamelContext();
+            producer.process(createExchange(camelContext, 0), mock(AsyncCallback.class));
+            verify(processor, timeout(5000)).process(any(Exchange.class), any(AsyncCallback.class));
+
+            producer.process(createExchange(camelContext, 1), mock(AsyncCallback.class));
+            producer.process(createExchange(camelContext, 2), mock(AsyncCallback.class));
+
+            assertThat(received, equalTo(Arrays.<Object>asList(0, 1, 2)));
+        } finally {
+            ServiceHelper.stopAndShutdownService(producer);
+        }
+    }
+
+    private static Exchange createExchange(CamelContext camelContext, Object body) {
+        Exchange exchange = new DefaultExchange(camelContext, ExchangePattern.InOnly);
+        exchange.getIn().setBody(body);
+        return exchange;
+    }
+
+    private OsgiBatchProducer createProducer(int batchSize, long batchTimeout) throws Exception {
+        OsgiDefaultEndpoint endpoint = mock(OsgiDefaultEndpoint.class);
+        when(endpoint.getApplicationBundleContext()).thenReturn(mock(BundleContext.class));
+        when(endpoint.getComponentClassLoader()).thenReturn(getClass().getClassLoader());
+        when(endpoint.getCamelContext()).thenReturn(new DefaultCamelContext());
+        when(endpoint.getEndpointUri()).thenReturn("osgi:batch:test");
+
+        OsgiBatchProducer producer = new OsgiBatchProducer(
+            endpoint, Collections.<String, Object>emptyMap(), batchSize, batchTimeout);
+        ServiceHelper.startService(producer);
+        return producer;
+    }
+
+}
@@ -17,6 +17,7 @@ package org.apache.camel.osgi.service;
 import org.apache.camel.CamelContext;
 import org.apache.camel.TypeConverter;
 import org.apache.camel.osgi.service.util.BundleDelegatingClassLoader;
+import org.apache.camel.osgi.service.util.OsgiProcessorProxyCreator;
 import org.apache.camel.processor.aggregate.AggregationStrategy;
 import org.apache.camel.spi.Registry;
 import org.junit.Test;
@@ -75,6 +76,26 @@ public class OsgiComponentTest {
         assertThat((Boolean) props.get("prop3"), equalTo(Boolean.TRUE));
         assertThat((String) props.get(Constants.OBJECTCLASS), equalTo(OsgiComponent.OBJECT_CLASS));
         assertThat((String) props.get(OsgiComponent.SERVICE_NAME_PROP), equalTo("test"));
+
+        assertThat(endpoint.getDefaultProxyCreator(), sameInstance((Object) component.getDefaultProxyCreator(false)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCreateEndpointLeaseServicesWithProxyCreator() throws Exception {
+        Bundle bundle = mock(Bundle.class);
+        BundleDelegatingClassLoader classLoader = new BundleDelegatingClassLoader(bundle, getClass().getClassLoader());
+
+        CamelContext camelContext = mock(CamelContext.class);
+        when(camelContext.getApplicationContextClassLoader()).thenReturn(classLoader);
+
+        OsgiComponent component = new OsgiComponent();
+        component.setCamelContext(camelContext);
+        component.setProxyCreator(new OsgiProcessorProxyCreator());
+
+        Map<String, Object> params = new HashMap<String, Object>();
+        params.put("leaseServices", true);
+
+        component.createEndpoint("osgi:default:test", "default:test", params);
     }
 
     @Test
@@ -128,4 +149,14 @@ public class OsgiComponentTest {
         verify(typeConverter).convertTo(same(Integer.class), eq("1"));
         verify(typeConverter).convertTo(same(Long.class), eq("2"));
     }
+
+    @Test
+    public void testGetDefaultProxyCreator() throws Exception {
+        OsgiComponent component = new OsgiComponent();
+
+        assertThat(component.getDefaultProxyCreator(false).isLease(), equalTo(false));
+        assertThat(component.getDefaultProxyCreator(true).isLease(), equalTo(true));
+        assertThat(component.getDefaultProxyCreator(false), sameInstance(component.getDefaultProxyCreator(false)));
+        assertThat(component.getDefaultProxyCreator(true), sameInstance(component.getDefaultProxyCreator(true)));
+    }
 }
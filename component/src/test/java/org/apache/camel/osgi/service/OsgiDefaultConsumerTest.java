@@ -14,28 +14,45 @@
 
 package org.apache.camel.osgi.service;
 
+import org.apache.camel.AsyncCallback;
+import org.apache.camel.AsyncProcessor;
+import org.apache.camel.CamelContext;
+import org.apache.camel.Endpoint;
 import org.apache.camel.Exchange;
 import org.apache.camel.ExchangePattern;
+import org.apache.camel.Message;
 import org.apache.camel.Processor;
 import org.apache.camel.Service;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.impl.DefaultExchange;
+import org.apache.camel.impl.DefaultMessage;
+import org.apache.camel.osgi.service.util.OsgiCopyOnWriteMap;
 import org.apache.camel.util.ServiceHelper;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.ServiceRegistration;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Dictionary;
 import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.junit.Assert.assertThat;
+import static org.mockito.AdditionalMatchers.aryEq;
 import static org.mockito.Mockito.RETURNS_MOCKS;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.anyBoolean;
 import static org.mockito.Mockito.anyObject;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.doAnswer;
@@ -66,7 +83,7 @@ public class OsgiDefaultConsumerTest {
 
         verify(processor).start();
         verify(bundleContext)
-            .registerService(eq(OsgiComponent.OBJECT_CLASS), same(consumer), eq(new Hashtable<String, Object>(props)));
+            .registerService(aryEq(OsgiComponent.OBJECT_CLASSES), same(consumer), eq(new Hashtable<String, Object>(props)));
     }
 
     @Test
@@ -86,7 +103,7 @@ public class OsgiDefaultConsumerTest {
 
         verify(processor).start();
         verify(bundleContext)
-            .registerService(eq(OsgiComponent.OBJECT_CLASS), same(consumer), eq(new Hashtable<String, Object>(props)));
+            .registerService(aryEq(OsgiComponent.OBJECT_CLASSES), same(consumer), eq(new Hashtable<String, Object>(props)));
     }
 
     @Test
@@ -94,7 +111,7 @@ public class OsgiDefaultConsumerTest {
         ServiceRegistration registration = mock(ServiceRegistration.class);
 
         BundleContext bundleContext = mock(BundleContext.class);
-        when(bundleContext.registerService(eq(OsgiComponent.OBJECT_CLASS), anyObject(), any(Dictionary.class)))
+        when(bundleContext.registerService(aryEq(OsgiComponent.OBJECT_CLASSES), anyObject(), any(Dictionary.class)))
             .thenReturn(registration);
 
         OsgiDefaultEndpoint endpoint = mock(OsgiDefaultEndpoint.class);
@@ -116,7 +133,7 @@ public class OsgiDefaultConsumerTest {
         ServiceRegistration registration = mock(ServiceRegistration.class);
 
         BundleContext bundleContext = mock(BundleContext.class);
-        when(bundleContext.registerService(eq(OsgiComponent.OBJECT_CLASS), anyObject(), any(Dictionary.class)))
+        when(bundleContext.registerService(aryEq(OsgiComponent.OBJECT_CLASSES), anyObject(), any(Dictionary.class)))
             .thenReturn(registration);
 
         OsgiDefaultEndpoint endpoint = mock(OsgiDefaultEndpoint.class);
@@ -151,7 +168,7 @@ public class OsgiDefaultConsumerTest {
 
         verify(processor).start();
         verify(bundleContext, times(2))
-            .registerService(eq(OsgiComponent.OBJECT_CLASS), same(consumer), eq(new Hashtable<String, Object>(props)));
+            .registerService(aryEq(OsgiComponent.OBJECT_CLASSES), same(consumer), eq(new Hashtable<String, Object>(props)));
     }
 
     @Test
@@ -159,7 +176,7 @@ public class OsgiDefaultConsumerTest {
         ServiceRegistration registration = mock(ServiceRegistration.class);
 
         BundleContext bundleContext = mock(BundleContext.class);
-        when(bundleContext.registerService(eq(OsgiComponent.OBJECT_CLASS), anyObject(), any(Dictionary.class)))
+        when(bundleContext.registerService(aryEq(OsgiComponent.OBJECT_CLASSES), anyObject(), any(Dictionary.class)))
             .thenReturn(registration);
 
         OsgiDefaultEndpoint endpoint = mock(OsgiDefaultEndpoint.class);
@@ -205,6 +222,414 @@ public class OsgiDefaultConsumerTest {
         assertThat((String) exchangeProps.get("Hello"), equalTo("World"));
     }
 
+    @Test
+    public void testProcessAsync() throws Exception {
+        Map<String, Object> exchangeProps = new HashMap<String, Object>();
+
+        Exchange exchange = mock(Exchange.class, RETURNS_MOCKS);
+        when(exchange.getPattern()).thenReturn(ExchangePattern.InOut);
+        when(exchange.getProperties()).thenReturn(exchangeProps);
+
+        final AsyncCallback[] routeCallback = new AsyncCallback[1];
+        AsyncProcessor processor = mock(AsyncProcessor.class);
+        when(processor.process(any(Exchange.class), any(AsyncCallback.class))).thenAnswer(new Answer<Boolean>() {
+            @Override
+            public Boolean answer(InvocationOnMock invocation) throws Throwable {
+                Exchange exchange = (Exchange) invocation.getArguments()[0];
+                exchange.setProperty("Hello", "World");
+                routeCallback[0] = (AsyncCallback) invocation.getArguments()[1];
+                return false;
+            }
+        });
+
+        OsgiDefaultEndpoint endpoint = mock(OsgiDefaultEndpoint.class);
+        OsgiDefaultConsumer consumer = new OsgiDefaultConsumer(endpoint, processor, Collections.<String, Object>emptyMap());
+
+        AsyncCallback callback = mock(AsyncCallback.class);
+        assertThat(consumer.process(exchange, callback), equalTo(false));
+        verify(callback, never()).done(anyBoolean());
+
+        // results must be copied back only after the route completes
+        routeCallback[0].done(false);
+        verify(callback).done(false);
+
+        assertThat((String) exchangeProps.get("Hello"), equalTo("World"));
+    }
+
+    @Test
+    public void testProcessSameContext() throws Exception {
+        CamelContext camelContext = mock(CamelContext.class);
+
+        Exchange exchange = mock(Exchange.class);
+        when(exchange.getContext()).thenReturn(camelContext);
+
+        Processor processor = mock(Processor.class);
+
+        OsgiDefaultEndpoint endpoint = mock(OsgiDefaultEndpoint.class);
+        when(endpoint.getCamelContext()).thenReturn(camelContext);
+
+        OsgiDefaultConsumer consumer = new OsgiDefaultConsumer(endpoint, processor, Collections.<String, Object>emptyMap());
+        consumer.process(exchange);
+
+        verify(processor).process(same(exchange));
+        verify(exchange, never()).getIn();
+    }
+
+    @Test
+    public void testProcessShareExchange() throws Exception {
+        CamelContext camelContext = mock(CamelContext.class);
+
+        Exchange exchange = mock(Exchange.class);
+        when(exchange.getContext()).thenReturn(mock(CamelContext.class));
+
+        Processor processor = mock(Processor.class);
+
+        OsgiDefaultEndpoint endpoint = mock(OsgiDefaultEndpoint.class);
+        when(endpoint.getCamelContext()).thenReturn(camelContext);
+        when(endpoint.isShareExchange()).thenReturn(true);
+
+        OsgiDefaultConsumer consumer = new OsgiDefaultConsumer(endpoint, processor, Collections.<String, Object>emptyMap());
+        consumer.process(exchange);
+
+        ArgumentCaptor<Exchange> captor = ArgumentCaptor.forClass(Exchange.class);
+        verify(processor).process(captor.capture());
+        verify(exchange, never()).getIn();
+
+        Exchange shared = captor.getValue();
+        assertThat(shared, instanceOf(OsgiSharedExchange.class));
+        assertThat(((OsgiSharedExchange) shared).getExchange(), sameInstance(exchange));
+        assertThat(shared.getContext(), sameInstance(camelContext));
+        assertThat(shared.getFromEndpoint(), sameInstance((Endpoint) endpoint));
+    }
+
+    @Test
+    public void testProcessCopyOnWrite() throws Exception {
+        Exchange exchange = new DefaultExchange(new DefaultCamelContext());
+        exchange.getIn().setHeader("read", "value");
+        exchange.setProperty("read", "value");
+
+        final Map<String, Object> originalHeaders = exchange.getIn().getHeaders();
+        final Map<String, Object> originalProps = exchange.getProperties();
+
+        Processor processor = mock(Processor.class);
+        doAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                Exchange exchange = (Exchange) invocation.getArguments()[0];
+                assertThat(((OsgiCopyOnWriteMap<?, ?>) exchange.getIn().getHeaders()).isSharing(originalHeaders),
+                    equalTo(true));
+                assertThat(((OsgiCopyOnWriteMap<?, ?>) exchange.getProperties()).isSharing(originalProps),
+                    equalTo(true));
+                assertThat(exchange.getIn().getHeader("read"), equalTo((Object) "value"));
+                exchange.getIn().setBody("body");
+                return null;
+            }
+        }).when(processor).process(any(Exchange.class));
+
+        OsgiDefaultEndpoint endpoint = mock(OsgiDefaultEndpoint.class);
+        when(endpoint.getCamelContext()).thenReturn(mock(CamelContext.class));
+
+        OsgiDefaultConsumer consumer = new OsgiDefaultConsumer(endpoint, processor, Collections.<String, Object>emptyMap());
+        consumer.process(exchange);
+
+        assertThat(exchange.getIn().getHeaders(), sameInstance(originalHeaders));
+        assertThat(exchange.getIn().getHeader("read"), equalTo((Object) "value"));
+        assertThat(exchange.getIn().getBody(), equalTo((Object) "body"));
+        assertThat(exchange.getProperty("read"), equalTo((Object) "value"));
+    }
+
+    @Test
+    public void testCopyMessageHeaders() throws Exception {
+        Message message = new DefaultMessage();
+        message.setHeader("Key", "value");
+        Map<String, Object> original = message.getHeaders();
+
+        OsgiDefaultEndpoint endpoint = mock(OsgiDefaultEndpoint.class);
+        OsgiDefaultConsumer consumer = new OsgiDefaultConsumer(endpoint, mock(Processor.class),
+            Collections.<String, Object>emptyMap());
+
+        Message copy = consumer.copyMessage(message);
+        assertThat(copy.getHeader("KEY"), equalTo((Object) "value"));
+        assertThat(((OsgiCopyOnWriteMap<?, ?>) copy.getHeaders()).isSharing(original), equalTo(true));
+
+        copy.setHeader("KEY", "newValue");
+        assertThat(copy.getHeader("key"), equalTo((Object) "newValue"));
+        assertThat(copy.getHeaders().size(), equalTo(1));
+        assertThat(((OsgiCopyOnWriteMap<?, ?>) copy.getHeaders()).isSharing(original), equalTo(false));
+        assertThat(message.getHeader("key"), equalTo((Object) "value"));
+
+        Message copyOfCopy = consumer.copyMessage(copy);
+        assertThat(copyOfCopy.getHeader("KEY"), equalTo((Object) "newValue"));
+        assertThat(((OsgiCopyOnWriteMap<?, ?>) copyOfCopy.getHeaders()).isSharing(copy.getHeaders()), equalTo(true));
+
+        copyOfCopy.removeHeader("key");
+        assertThat(copyOfCopy.hasHeaders(), equalTo(false));
+        assertThat(copy.getHeader("key"), equalTo((Object) "newValue"));
+    }
+
+    @Test
+    public void testProcessCopyOnWriteModified() throws Exception {
+        Exchange exchange = new DefaultExchange(new DefaultCamelContext());
+        exchange.getIn().setHeader("read", "value");
+        exchange.setProperty("read", "value");
+
+        Processor processor = mock(Processor.class);
+        doAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                Exchange exchange = (Exchange) invocation.getArguments()[0];
+                exchange.getIn().setHeader("write", "value");
+                exchange.setProperty("write", "value");
+                return null;
+            }
+        }).when(processor).process(any(Exchange.class));
+
+        OsgiDefaultEndpoint endpoint = mock(OsgiDefaultEndpoint.class);
+        when(endpoint.getCamelContext()).thenReturn(mock(CamelContext.class));
+
+        OsgiDefaultConsumer consumer = new OsgiDefaultConsumer(endpoint, processor, Collections.<String, Object>emptyMap());
+        consumer.process(exchange);
+
+        assertThat(exchange.getIn().getHeader("read"), equalTo((Object) "value"));
+        assertThat(exchange.getIn().getHeader("write"), equalTo((Object) "value"));
+        assertThat(exchange.getProperty("read"), equalTo((Object) "value"));
+        assertThat(exchange.getProperty("write"), equalTo((Object) "value"));
+    }
+
+    @Test
+    public void testProcessQueuedInOnly() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch processed = new CountDownLatch(1);
+
+        Processor processor = new Processor() {
+            @Override
+            public void process(Exchange exchange) throws Exception {
+                started.countDown();
+                release.await();
+                processed.countDown();
+            }
+        };
+
+        OsgiDefaultConsumer consumer = createQueuedConsumer(processor, 1, OsgiOverflowPolicy.Block);
+        try {
+            Exchange exchange = new DefaultExchange(new DefaultCamelContext(), ExchangePattern.InOnly);
+            AsyncCallback callback = mock(AsyncCallback.class);
+
+            // the producer must not wait for the consumer route
+            assertThat(consumer.process(exchange, callback), equalTo(true));
+            verify(callback).done(true);
+
+            assertThat(started.await(5, TimeUnit.SECONDS), equalTo(true));
+            release.countDown();
+            assertThat(processed.await(5, TimeUnit.SECONDS), equalTo(true));
+        } finally {
+            release.countDown();
+            ServiceHelper.stopService(consumer);
+        }
+    }
+
+    @Test
+    public void testProcessQueuedInOut() throws Exception {
+        Processor processor = new Processor() {
+            @Override
+            public void process(Exchange exchange) throws Exception {
+                exchange.getOut().setBody("reply");
+            }
+        };
+
+        OsgiDefaultConsumer consumer = createQueuedConsumer(processor, 1, OsgiOverflowPolicy.Block);
+        try {
+            Exchange exchange = new DefaultExchange(new DefaultCamelContext(), ExchangePattern.InOut);
+            final CountDownLatch done = new CountDownLatch(1);
+            boolean doneSync = consumer.process(exchange, new AsyncCallback() {
+                @Override
+                public void done(boolean doneSync) {
+                    done.countDown();
+                }
+            });
+
+            assertThat(doneSync, equalTo(false));
+            assertThat(done.await(5, TimeUnit.SECONDS), equalTo(true));
+            assertThat(exchange.getOut().getBody(), equalTo((Object) "reply"));
+        } finally {
+            ServiceHelper.stopService(consumer);
+        }
+    }
+
+    @Test
+    public void testStopQueuedDrainsQueue() throws Exception {
+        Processor processor = new Processor() {
+            @Override
+            public void process(Exchange exchange) throws Exception {
+                Thread.sleep(100);
+                exchange.getOut().setBody("reply");
+            }
+        };
+
+        OsgiDefaultConsumer consumer = createQueuedConsumer(processor, 2, OsgiOverflowPolicy.Block);
+        Exchange first = new DefaultExchange(new DefaultCamelContext(), ExchangePattern.InOut);
+        Exchange second = new DefaultExchange(new DefaultCamelContext(), ExchangePattern.InOut);
+        AsyncCallback callback = mock(AsyncCallback.class);
+
+        assertThat(consumer.process(first, callback), equalTo(false));
+        assertThat(consumer.process(second, callback), equalTo(false));
+        ServiceHelper.stopService(consumer);
+
+        // the queued exchanges are processed before the consumer stops
+        verify(callback, times(2)).done(false);
+        assertThat(first.getOut().getBody(), equalTo((Object) "reply"));
+        assertThat(second.getOut().getBody(), equalTo((Object) "reply"));
+    }
+
+    @Test
+    public void testStopQueuedTimeout() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        Processor processor = new Processor() {
+            @Override
+            public void process(Exchange exchange) throws Exception {
+                started.countDown();
+                release.await();
+            }
+        };
+
+        CamelContext camelContext = new DefaultCamelContext();
+        camelContext.getShutdownStrategy().setTimeout(100);
+        camelContext.getShutdownStrategy().setTimeUnit(TimeUnit.MILLISECONDS);
+
+        OsgiDefaultConsumer consumer = createQueuedConsumer(camelContext, processor, 2, OsgiOverflowPolicy.Block);
+        try {
+            Exchange first = new DefaultExchange(new DefaultCamelContext(), ExchangePattern.InOut);
+            Exchange second = new DefaultExchange(new DefaultCamelContext(), ExchangePattern.InOut);
+            AsyncCallback firstCallback = mock(AsyncCallback.class);
+            AsyncCallback secondCallback = mock(AsyncCallback.class);
+
+            assertThat(consumer.process(first, firstCallback), equalTo(false));
+            assertThat(started.await(5, TimeUnit.SECONDS), equalTo(true));
+            assertThat(consumer.process(second, secondCallback), equalTo(false));
+            ServiceHelper.stopService(consumer);
+
+            // the exchange left in the queue is completed when the consumer stops
+            verify(secondCallback).done(false);
+            assertThat(second.getException(), instanceOf(RejectedExecutionException.class));
+
+            // the consumer is stopped, so the exchange cannot be queued anymore
+            Exchange third = new DefaultExchange(new DefaultCamelContext(), ExchangePattern.InOut);
+            AsyncCallback thirdCallback = mock(AsyncCallback.class);
+            assertThat(consumer.processQueued(third, thirdCallback), equalTo(true));
+            verify(thirdCallback).done(true);
+            assertThat(third.getException(), instanceOf(RejectedExecutionException.class));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void testProcessQueuedReject() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        Processor processor = new Processor() {
+            @Override
+            public void process(Exchange exchange) throws Exception {
+                started.countDown();
+                release.await();
+            }
+        };
+
+        OsgiDefaultConsumer consumer = createQueuedConsumer(processor, 1, OsgiOverflowPolicy.Reject);
+        try {
+            CamelContext camelContext = new DefaultCamelContext();
+            AsyncCallback callback = mock(AsyncCallback.class);
+
+            // the first exchange is processed by the only consumer, the second one waits in the queue
+            consumer.process(new DefaultExchange(camelContext, ExchangePattern.InOnly), callback);
+            assertThat(started.await(5, TimeUnit.SECONDS), equalTo(true));
+            consumer.process(new DefaultExchange(camelContext, ExchangePattern.InOnly), callback);
+
+            Exchange rejected = new DefaultExchange(camelContext, ExchangePattern.InOnly);
+            consumer.process(rejected, callback);
+
+            assertThat(rejected.getException(), instanceOf(RejectedExecutionException.class));
+        } finally {
+            release.countDown();
+            ServiceHelper.stopService(consumer);
+        }
+    }
+
+    @Test
+    public void testProcessQueuedCallerRuns() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Thread caller = Thread.currentThread();
+        final Thread[] processedBy = new Thread[1];
+
+        Processor processor = new Processor() {
+            @Override
+            public void process(Exchange exchange) throws Exception {
+                if ("caller".equals(exchange.getIn().getBody())) {
+                    processedBy[0] = Thread.currentThread();
+                    return;
+                }
+                started.countDown();
+                release.await();
+            }
+        };
+
+        OsgiDefaultConsumer consumer = createQueuedConsumer(processor, 1, OsgiOverflowPolicy.CallerRuns);
+        try {
+            CamelContext camelContext = new DefaultCamelContext();
+            AsyncCallback callback = mock(AsyncCallback.class);
+
+            consumer.process(new DefaultExchange(camelContext, ExchangePattern.InOnly), callback);
+            assertThat(started.await(5, TimeUnit.SECONDS), equalTo(true));
+            consumer.process(new DefaultExchange(camelContext, ExchangePattern.InOnly), callback);
+
+            Exchange exchange = new DefaultExchange(camelContext, ExchangePattern.InOnly);
+            exchange.getIn().setBody("caller");
+            consumer.process(exchange, callback);
+
+            assertThat(processedBy[0], sameInstance(caller));
+        } finally {
+            release.countDown();
+            ServiceHelper.stopService(consumer);
+        }
+    }
+
+    @Test
+    public void testProcessBatch() throws Exception {
+        Processor processor = new Processor() {
+            @Override
+            public void process(Exchange exchange) throws Exception {
+                exchange.getOut().setBody(exchange.getIn().getBody(String.class) + "-reply");
+            }
+        };
+
+        OsgiDefaultEndpoint endpoint = mock(OsgiDefaultEndpoint.class);
+        when(endpoint.getCamelContext()).thenReturn(new DefaultCamelContext());
+
+        OsgiDefaultConsumer consumer = new OsgiDefaultConsumer(endpoint, processor, Collections.<String, Object>emptyMap());
+
+        CamelContext camelContext = new DefaultCamelContext();
+        Exchange exchange1 = new DefaultExchange(camelContext, ExchangePattern.InOut);
+        exchange1.getIn().setBody("1");
+        Exchange exchange2 = new DefaultExchange(camelContext, ExchangePattern.InOut);
+        exchange2.getIn().setBody("2");
+
+        Exchange batch = new DefaultExchange(camelContext, ExchangePattern.InOut);
+        batch.setProperty(OsgiComponent.BATCH_PROP, Boolean.TRUE);
+        batch.getIn().setBody(Arrays.asList(exchange1, exchange2));
+
+        AsyncCallback callback = mock(AsyncCallback.class);
+        assertThat(consumer.process(batch, callback), equalTo(true));
+        verify(callback).done(true);
+
+        assertThat(exchange1.getOut().getBody(), equalTo((Object) "1-reply"));
+        assertThat(exchange2.getOut().getBody(), equalTo((Object) "2-reply"));
+    }
+
     @Test
     public void testCopyExchange() throws Exception {
         Processor processor = mock(Processor.class);
@@ -223,4 +648,24 @@ public class OsgiDefaultConsumerTest {
         assertThat(copy.getPattern(), sameInstance(ExchangePattern.OutOptionalIn));
     }
 
+    private OsgiDefaultConsumer createQueuedConsumer(Processor processor, int queueSize, OsgiOverflowPolicy policy)
+            throws Exception {
+        return createQueuedConsumer(new DefaultCamelContext(), processor, queueSize, policy);
+    }
+
+    private OsgiDefaultConsumer createQueuedConsumer(CamelContext camelContext, Processor processor, int queueSize,
+            OsgiOverflowPolicy policy) throws Exception {
+        OsgiDefaultEndpoint endpoint = mock(OsgiDefaultEndpoint.class);
+        when(endpoint.getApplicationBundleContext()).thenReturn(mock(BundleContext.class));
+        when(endpoint.getCamelContext()).thenReturn(camelContext);
+        when(endpoint.getEndpointUri()).thenReturn("osgi:test");
+        when(endpoint.getQueueSize()).thenReturn(queueSize);
+        when(endpoint.getConcurrentConsumers()).thenReturn(1);
+        when(endpoint.getOverflowPolicy()).thenReturn(policy);
+
+        OsgiDefaultConsumer consumer = new OsgiDefaultConsumer(endpoint, processor, Collections.<String, Object>emptyMap());
+        ServiceHelper.startService(consumer);
+        return consumer;
+    }
+
 }
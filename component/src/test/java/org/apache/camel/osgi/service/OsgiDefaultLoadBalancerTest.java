@@ -16,6 +16,7 @@ package org.apache.camel.osgi.service;
 
 import org.apache.camel.Exchange;
 import org.apache.camel.Processor;
+import org.apache.camel.osgi.service.util.OsgiRankedServiceList;
 import org.junit.Test;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
@@ -23,8 +24,10 @@ import org.osgi.framework.Constants;
 import org.osgi.framework.ServiceReference;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.any;
@@ -73,6 +76,69 @@ public class OsgiDefaultLoadBalancerTest {
         assertThat(balancer.chooseProcessor(processors, exchange), sameInstance(processors.get(1)));
     }
 
+    @Test
+    public void testChooseProcessorTracked() throws Exception {
+        Exchange exchange = mock(Exchange.class);
+
+        Processor first = createProcessor(0, 0);
+        Processor second = createProcessor(1, 1);
+
+        OsgiDefaultLoadBalancer balancer = new OsgiDefaultLoadBalancer();
+        balancer.addProcessor(first);
+        balancer.serviceAdded(first);
+        assertThat(balancer.chooseProcessor(balancer.getProcessors(), exchange), sameInstance(first));
+
+        balancer.addProcessor(second);
+        balancer.serviceAdded(second);
+        assertThat(balancer.chooseProcessor(balancer.getProcessors(), exchange), sameInstance(second));
+
+        balancer.removeProcessor(second);
+        balancer.serviceRemoved(second);
+        assertThat(balancer.chooseProcessor(balancer.getProcessors(), exchange), sameInstance(first));
+
+        balancer.removeProcessor(first);
+        balancer.serviceRemoved(first);
+        assertThat(balancer.chooseProcessor(balancer.getProcessors(), exchange), nullValue());
+    }
+
+    @Test
+    public void testChooseProcessorTrackedModified() throws Exception {
+        Exchange exchange = mock(Exchange.class);
+
+        Processor first = createProcessor(0, 0);
+        Processor second = createProcessor(1, 1);
+
+        OsgiDefaultLoadBalancer balancer = new OsgiDefaultLoadBalancer();
+        for (Processor processor : Arrays.asList(first, second)) {
+            balancer.addProcessor(processor);
+            balancer.serviceAdded(processor);
+        }
+        assertThat(balancer.chooseProcessor(balancer.getProcessors(), exchange), sameInstance(second));
+
+        when(((ServiceReference) first).getProperty(Constants.SERVICE_RANKING)).thenReturn(2);
+        balancer.serviceModified(first);
+        assertThat(balancer.chooseProcessor(balancer.getProcessors(), exchange), sameInstance(first));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testChooseProcessorRanked() throws Exception {
+        Exchange exchange = mock(Exchange.class);
+
+        Processor first = createProcessor(0, 0);
+        Processor second = createProcessor(1, 1);
+
+        // the ranked list is trusted to keep the most actual service first
+        OsgiRankedServiceList<Processor> processors = mock(OsgiRankedServiceList.class);
+        when(processors.iterator()).thenReturn(Arrays.asList(first, second).iterator());
+
+        OsgiDefaultLoadBalancer balancer = new OsgiDefaultLoadBalancer();
+        assertThat(balancer.chooseProcessor(processors, exchange), sameInstance(first));
+
+        when(processors.iterator()).thenReturn(Collections.<Processor>emptyList().iterator());
+        assertThat(balancer.chooseProcessor(processors, exchange), nullValue());
+    }
+
     private Processor createProcessor(long id, int ranking) {
         final ServiceReference service = mock(ServiceReference.class, withSettings().extraInterfaces(Processor.class));
         when(service.getProperty(Constants.SERVICE_ID)).thenReturn(id);
@@ -14,8 +14,11 @@
 
 package org.apache.camel.osgi.service;
 
+import org.apache.camel.AsyncCallback;
+import org.apache.camel.AsyncProcessor;
 import org.apache.camel.Exchange;
 import org.apache.camel.Processor;
+import org.apache.camel.osgi.service.util.OsgiDefaultProxyCreator;
 import org.apache.camel.osgi.service.util.OsgiServiceList;
 import org.apache.camel.processor.loadbalancer.LoadBalancer;
 import org.apache.camel.util.ServiceHelper;
@@ -50,6 +53,20 @@ public class OsgiDefaultProducerTest {
         verify(processor).process(same(exchange));
     }
 
+    @Test
+    public void testProcessAsync() throws Exception {
+        AsyncProcessor processor = mock(AsyncProcessor.class);
+
+        OsgiDefaultProducer producer = createProducer(Collections.<String, Object>emptyMap());
+        producer.asyncProcessor = processor;
+
+        Exchange exchange = mock(Exchange.class);
+        AsyncCallback callback = mock(AsyncCallback.class);
+        producer.process(exchange, callback);
+
+        verify(processor).process(same(exchange), same(callback));
+    }
+
     @Test
     public void testCreateProcessor() throws Exception {
         OsgiDefaultProducer producer = createProducer(Collections.<String, Object>emptyMap());
@@ -95,6 +112,18 @@ public class OsgiDefaultProducerTest {
         verify(producer.getApplicationBundleContext()).removeServiceListener(Matchers.any(ServiceListener.class));
     }
 
+    @Test
+    public void testDefaultProxyCreator() throws Exception {
+        OsgiDefaultEndpoint endpoint = mock(OsgiDefaultEndpoint.class);
+        when(endpoint.getApplicationBundleContext()).thenReturn(mock(BundleContext.class));
+        when(endpoint.getComponentClassLoader()).thenReturn(getClass().getClassLoader());
+        when(endpoint.getDefaultProxyCreator()).thenReturn(new OsgiDefaultProxyCreator());
+
+        new OsgiDefaultProducer(endpoint, Collections.<String, Object>emptyMap());
+
+        verify(endpoint).getDefaultProxyCreator();
+    }
+
     private OsgiDefaultProducer createProducer(Map<String, Object> props) throws Exception {
         BundleContext bundleContext = mock(BundleContext.class);
         
@@ -19,8 +19,11 @@ import org.apache.camel.osgi.service.util.BundleDelegatingClassLoader;
 import org.junit.Test;
 import org.osgi.framework.Bundle;
 
+import java.util.Arrays;
+
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.mock;
@@ -47,6 +50,24 @@ public class OsgiEndpointTypeTest {
 
         endpointType = OsgiEndpointType.fromPath("random:test");
         assertThat(endpointType, sameInstance(OsgiEndpointType.RANDOM));
+
+        endpointType = OsgiEndpointType.fromPath("batch:test");
+        assertThat(endpointType, sameInstance(OsgiEndpointType.BATCH));
+
+        endpointType = OsgiEndpointType.fromPath("weighted:test");
+        assertThat(endpointType, sameInstance(OsgiEndpointType.WEIGHTED));
+
+        endpointType = OsgiEndpointType.fromPath("leastactive:test");
+        assertThat(endpointType, sameInstance(OsgiEndpointType.LEASTACTIVE));
+
+        endpointType = OsgiEndpointType.fromPath("latency:test");
+        assertThat(endpointType, sameInstance(OsgiEndpointType.LATENCY));
+
+        endpointType = OsgiEndpointType.fromPath("sticky:test");
+        assertThat(endpointType, sameInstance(OsgiEndpointType.STICKY));
+
+        endpointType = OsgiEndpointType.fromPath("failover:test");
+        assertThat(endpointType, sameInstance(OsgiEndpointType.FAILOVER));
     }
 
     @Test
@@ -56,6 +77,27 @@ public class OsgiEndpointTypeTest {
         assertThat(OsgiEndpointType.MULTICAST.getName("multicast:test"), equalTo("test"));
         assertThat(OsgiEndpointType.ROUNDROBIN.getName("roundrobin:test"), equalTo("test"));
         assertThat(OsgiEndpointType.RANDOM.getName("random:test"), equalTo("test"));
+        assertThat(OsgiEndpointType.BATCH.getName("batch:test"), equalTo("test"));
+        assertThat(OsgiEndpointType.WEIGHTED.getName("weighted:test"), equalTo("test"));
+        assertThat(OsgiEndpointType.LEASTACTIVE.getName("leastactive:test"), equalTo("test"));
+        assertThat(OsgiEndpointType.LATENCY.getName("latency:test"), equalTo("test"));
+        assertThat(OsgiEndpointType.STICKY.getName("sticky:test"), equalTo("test"));
+        assertThat(OsgiEndpointType.FAILOVER.getName("failover:test"), equalTo("test"));
+    }
+
+    @Test
+    public void testReservedPrefixes() throws Exception {
+        // the names of default endpoints which start with the prefixes of the newer endpoint types
+        for (String prefix : Arrays.asList("batch", "weighted", "leastactive", "latency", "sticky", "failover")) {
+            String path = prefix + ":foo";
+            OsgiEndpointType endpointType = OsgiEndpointType.fromPath(path);
+            assertThat(endpointType, not(sameInstance(OsgiEndpointType.DEFAULT)));
+            assertThat(endpointType.getName(path), equalTo("foo"));
+
+            endpointType = OsgiEndpointType.fromPath("default:" + path);
+            assertThat(endpointType, sameInstance(OsgiEndpointType.DEFAULT));
+            assertThat(endpointType.getName("default:" + path), equalTo(path));
+        }
     }
 
     @Test
@@ -75,6 +117,12 @@ public class OsgiEndpointTypeTest {
         assertThat(OsgiEndpointType.MULTICAST.createEndpoint("osgi:multicast:test", comp), instanceOf(OsgiMulticastEndpoint.class));
         assertThat(OsgiEndpointType.ROUNDROBIN.createEndpoint("osgi:roundrobin:test", comp), instanceOf(OsgiRoundRobinEndpoint.class));
         assertThat(OsgiEndpointType.RANDOM.createEndpoint("osgi:random:test", comp), instanceOf(OsgiRandomEndpoint.class));
+        assertThat(OsgiEndpointType.BATCH.createEndpoint("osgi:batch:test", comp), instanceOf(OsgiBatchEndpoint.class));
+        assertThat(OsgiEndpointType.WEIGHTED.createEndpoint("osgi:weighted:test", comp), instanceOf(OsgiWeightedEndpoint.class));
+        assertThat(OsgiEndpointType.LEASTACTIVE.createEndpoint("osgi:leastactive:test", comp), instanceOf(OsgiLeastActiveEndpoint.class));
+        assertThat(OsgiEndpointType.LATENCY.createEndpoint("osgi:latency:test", comp), instanceOf(OsgiLatencyEndpoint.class));
+        assertThat(OsgiEndpointType.STICKY.createEndpoint("osgi:sticky:test", comp), instanceOf(OsgiStickyEndpoint.class));
+        assertThat(OsgiEndpointType.FAILOVER.createEndpoint("osgi:failover:test", comp), instanceOf(OsgiFailoverEndpoint.class));
     }
 
 }
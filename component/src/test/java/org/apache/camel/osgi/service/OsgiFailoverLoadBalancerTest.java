@@ -0,0 +1,326 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.camel.osgi.service;
+
+import org.apache.camel.AsyncCallback;
+import org.apache.camel.AsyncProcessor;
+import org.apache.camel.CamelContext;
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.impl.DefaultExchange;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+public class OsgiFailoverLoadBalancerTest {
+
+    private static final CamelContext CONTEXT = new DefaultCamelContext();
+
+    @Test
+    public void testProcessFailover() throws Exception {
+        CountingProcessor failing = new CountingProcessor(true);
+        CountingProcessor working = new CountingProcessor(false);
+
+        OsgiFailoverLoadBalancer balancer = new OsgiFailoverLoadBalancer(-1, 0, 1, 0, 30000);
+        balancer.addProcessor(failing);
+        balancer.addProcessor(working);
+
+        Exchange exchange = createExchange("body");
+        balancer.process(exchange);
+
+        assertThat(exchange.getException(), nullValue());
+        assertThat(failing.count, equalTo(1));
+        assertThat(working.count, equalTo(1));
+        // the first attempt processes the original exchange, the next one processes its copy
+        assertThat(failing.exchanges.get(0), sameInstance(exchange));
+        assertThat(working.exchanges.get(0), not(sameInstance(exchange)));
+        assertThat(working.exchanges.get(0).getExchangeId(), equalTo(exchange.getExchangeId()));
+    }
+
+    @Test
+    public void testProcessSlowStart() throws Exception {
+        CountingProcessor working = new CountingProcessor(false);
+        CountingProcessor fresh = new CountingProcessor(false);
+
+        OsgiFailoverLoadBalancer balancer = new OsgiFailoverLoadBalancer(
+            -1, 0, 1, 0, 30000, OsgiSlowStartTest.createSlowStart(fresh));
+        balancer.addProcessor(working);
+        balancer.addProcessor(fresh);
+
+        for (int i = 0; i < 4; i++) {
+            balancer.process(createExchange("body"));
+        }
+        assertThat(working.count, equalTo(4));
+        assertThat(fresh.count, equalTo(0));
+
+        // the newly registered service is still tried if the other one fails
+        working.failing = true;
+        Exchange exchange = createExchange("body");
+        balancer.process(exchange);
+        assertThat(exchange.getException(), nullValue());
+        assertThat(fresh.count, equalTo(1));
+    }
+
+    @Test
+    public void testProcessTrialThrows() throws Exception {
+        final AtomicInteger count = new AtomicInteger();
+        AsyncProcessor throwing = new AsyncProcessor() {
+            @Override
+            public boolean process(Exchange exchange, AsyncCallback callback) {
+                count.incrementAndGet();
+                throw new IllegalArgumentException();
+            }
+
+            @Override
+            public void process(Exchange exchange) throws Exception {
+                throw new UnsupportedOperationException();
+            }
+        };
+
+        OsgiFailoverLoadBalancer balancer = new OsgiFailoverLoadBalancer(-1, 1, 1, 0, 0);
+        balancer.addProcessor(throwing);
+
+        for (int i = 1; i <= 3; i++) {
+            Exchange exchange = createExchange("body");
+            AsyncCallback callback = mock(AsyncCallback.class);
+            assertThat(balancer.process(exchange, callback), equalTo(true));
+            assertThat(exchange.getException(), instanceOf(IllegalArgumentException.class));
+            verify(callback).done(true);
+            // the trial permit is released, so the next exchange is the trial one
+            assertThat(count.get(), equalTo(i));
+        }
+    }
+
+    @Test
+    public void testProcessAllFailed() throws Exception {
+        CountingProcessor first = new CountingProcessor(true);
+        CountingProcessor second = new CountingProcessor(true);
+
+        OsgiFailoverLoadBalancer balancer = new OsgiFailoverLoadBalancer(-1, 0, 1, 0, 30000);
+        balancer.addProcessor(first);
+        balancer.addProcessor(second);
+
+        Exchange exchange = createExchange("body");
+        balancer.process(exchange);
+
+        assertThat(exchange.getException(), instanceOf(IllegalArgumentException.class));
+        assertThat(first.count, equalTo(1));
+        assertThat(second.count, equalTo(1));
+    }
+
+    @Test
+    public void testProcessMaximumFailoverAttempts() throws Exception {
+        CountingProcessor first = new CountingProcessor(true);
+        CountingProcessor second = new CountingProcessor(true);
+
+        OsgiFailoverLoadBalancer balancer = new OsgiFailoverLoadBalancer(0, 0, 1, 0, 30000);
+        balancer.addProcessor(first);
+        balancer.addProcessor(second);
+
+        Exchange exchange = createExchange("body");
+        balancer.process(exchange);
+
+        assertThat(exchange.getException(), instanceOf(IllegalArgumentException.class));
+        assertThat(first.count + second.count, equalTo(1));
+    }
+
+    @Test
+    public void testProcessNoProcessors() throws Exception {
+        OsgiFailoverLoadBalancer balancer = new OsgiFailoverLoadBalancer(-1, 5, 0.5, 20, 30000);
+
+        Exchange exchange = createExchange("body");
+        AsyncCallback callback = mock(AsyncCallback.class);
+        assertThat(balancer.process(exchange, callback), equalTo(true));
+        assertThat(exchange.getException(), instanceOf(IllegalStateException.class));
+        verify(callback).done(true);
+    }
+
+    @Test
+    public void testConsecutiveFailures() throws Exception {
+        CountingProcessor failing = new CountingProcessor(true);
+        CountingProcessor working = new CountingProcessor(false);
+
+        OsgiFailoverLoadBalancer balancer = new OsgiFailoverLoadBalancer(-1, 2, 1, 0, 30000);
+        balancer.addProcessor(failing);
+        balancer.addProcessor(working);
+
+        for (int i = 0; i < 10; i++) {
+            balancer.process(createExchange("body"));
+        }
+
+        assertThat(balancer.isOpen(failing), equalTo(true));
+        assertThat(balancer.isOpen(working), equalTo(false));
+        assertThat(failing.count, equalTo(2));
+        assertThat(working.count, equalTo(10));
+    }
+
+    @Test
+    public void testFailureRate() throws Exception {
+        CountingProcessor flaky = new CountingProcessor(false);
+
+        OsgiFailoverLoadBalancer balancer = new OsgiFailoverLoadBalancer(-1, 0, 0.5, 4, 30000);
+        balancer.addProcessor(flaky);
+
+        for (int i = 0; i < 3; i++) {
+            flaky.failing = i % 2 == 0;
+            balancer.process(createExchange("body"));
+            assertThat(balancer.isOpen(flaky), equalTo(false));
+        }
+
+        flaky.failing = false;
+        balancer.process(createExchange("body"));
+        assertThat(balancer.isOpen(flaky), equalTo(true));
+
+        Exchange exchange = createExchange("body");
+        balancer.process(exchange);
+        assertThat(exchange.getException(), instanceOf(IllegalStateException.class));
+        assertThat(flaky.count, equalTo(4));
+    }
+
+    @Test
+    public void testCoolOff() throws Exception {
+        CountingProcessor flaky = new CountingProcessor(true);
+
+        OsgiFailoverLoadBalancer balancer = new OsgiFailoverLoadBalancer(-1, 1, 1, 0, 50);
+        balancer.addProcessor(flaky);
+
+        balancer.process(createExchange("body"));
+        assertThat(balancer.isOpen(flaky), equalTo(true));
+
+        // the trial exchange fails, so the breaker is kept open
+        Thread.sleep(100);
+        balancer.process(createExchange("body"));
+        assertThat(flaky.count, equalTo(2));
+        assertThat(balancer.isOpen(flaky), equalTo(true));
+
+        // the trial exchange succeeds, so the breaker is closed
+        Thread.sleep(100);
+        flaky.failing = false;
+        balancer.process(createExchange("body"));
+        assertThat(flaky.count, equalTo(3));
+        assertThat(balancer.isOpen(flaky), equalTo(false));
+    }
+
+    @Test
+    public void testRemovedBreaker() throws Exception {
+        CountingProcessor failing = new CountingProcessor(true);
+
+        OsgiFailoverLoadBalancer balancer = new OsgiFailoverLoadBalancer(-1, 1, 1, 0, 30000);
+        balancer.addProcessor(failing);
+        balancer.process(createExchange("body"));
+        assertThat(balancer.isOpen(failing), equalTo(true));
+
+        balancer.removeProcessor(failing);
+        assertThat(balancer.isOpen(failing), equalTo(false));
+
+        balancer.addProcessor(failing);
+        assertThat(balancer.isOpen(failing), equalTo(false));
+    }
+
+    @Test
+    public void testChooseProcessor() throws Exception {
+        CountingProcessor failing = new CountingProcessor(true);
+        CountingProcessor working = new CountingProcessor(false);
+
+        OsgiFailoverLoadBalancer balancer = new OsgiFailoverLoadBalancer(-1, 1, 1, 0, 0);
+        balancer.addProcessor(failing);
+        balancer.addProcessor(working);
+        balancer.process(createExchange("body"));
+        assertThat(balancer.isOpen(failing), equalTo(true));
+
+        // the services with open breakers are skipped even if the cool-off period is over
+        for (int i = 0; i < 4; i++) {
+            assertThat(balancer.chooseProcessor(balancer.getProcessors(), createExchange("body")),
+                sameInstance((Processor) working));
+        }
+        assertThat(balancer.isOpen(failing), equalTo(true));
+    }
+
+    @Test
+    public void testProcessAsync() throws Exception {
+        final List<AsyncCallback> callbacks = new ArrayList<AsyncCallback>();
+        AsyncProcessor failing = new AsyncProcessor() {
+            @Override
+            public boolean process(Exchange exchange, AsyncCallback callback) {
+                exchange.setException(new IllegalArgumentException());
+                callbacks.add(callback);
+                return false;
+            }
+
+            @Override
+            public void process(Exchange exchange) throws Exception {
+                throw new UnsupportedOperationException();
+            }
+        };
+        CountingProcessor working = new CountingProcessor(false);
+
+        OsgiFailoverLoadBalancer balancer = new OsgiFailoverLoadBalancer(-1, 0, 1, 0, 30000);
+        balancer.addProcessor(failing);
+        balancer.addProcessor(working);
+
+        Exchange exchange = createExchange("body");
+        AsyncCallback callback = mock(AsyncCallback.class);
+        assertThat(balancer.process(exchange, callback), equalTo(false));
+        assertThat(working.count, equalTo(0));
+
+        callbacks.get(0).done(false);
+        assertThat(working.count, equalTo(1));
+        assertThat(exchange.getException(), nullValue());
+        verify(callback).done(false);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidFailureRate() throws Exception {
+        new OsgiFailoverLoadBalancer(-1, 5, 0, 20, 30000);
+    }
+
+    private static Exchange createExchange(Object body) {
+        Exchange exchange = new DefaultExchange(CONTEXT);
+        exchange.getIn().setBody(body);
+        return exchange;
+    }
+
+    private static class CountingProcessor implements Processor {
+        private final List<Exchange> exchanges = new ArrayList<Exchange>();
+        private volatile boolean failing;
+        private int count;
+
+        private CountingProcessor(boolean failing) {
+            this.failing = failing;
+        }
+
+        @Override
+        public void process(Exchange exchange) throws Exception {
+            count++;
+            exchanges.add(exchange);
+            if (failing) {
+                exchange.getIn().setBody("failed");
+                throw new IllegalArgumentException();
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.camel.osgi.service;
+
+import org.apache.camel.AsyncCallback;
+import org.apache.camel.AsyncProcessor;
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.impl.DefaultExchange;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class OsgiLatencyLoadBalancerTest {
+
+    @Test
+    public void testProcess() throws Exception {
+        Processor slow = new SleepingProcessor(20);
+        Processor fast = new SleepingProcessor(0);
+
+        OsgiLatencyLoadBalancer balancer = new OsgiLatencyLoadBalancer(0.5, 0);
+        balancer.addProcessor(slow);
+
+        AsyncCallback callback = mock(AsyncCallback.class);
+        balancer.process(createExchange(), callback);
+        verify(callback).done(true);
+        assertTrue(balancer.getAverageLatency(slow) >= 20000000);
+
+        // services that have not processed any exchange yet are the fastest ones
+        balancer.addProcessor(fast);
+        assertThat(balancer.getAverageLatency(fast), equalTo(0.0));
+        assertThat(balancer.chooseProcessor(balancer.getProcessors(), createExchange()), sameInstance(fast));
+
+        balancer.process(createExchange(), callback);
+        assertTrue(balancer.getAverageLatency(fast) > 0);
+        assertTrue(balancer.getAverageLatency(fast) < balancer.getAverageLatency(slow));
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(balancer.chooseProcessor(balancer.getProcessors(), createExchange()), sameInstance(fast));
+        }
+
+        balancer.removeProcessor(slow);
+        assertThat(balancer.getAverageLatency(slow), equalTo(-1.0));
+    }
+
+    @Test
+    public void testProcessFailure() throws Exception {
+        Processor failing = new Processor() {
+            @Override
+            public void process(Exchange exchange) throws Exception {
+                throw new IllegalStateException("failed");
+            }
+        };
+
+        OsgiLatencyLoadBalancer balancer = new OsgiLatencyLoadBalancer(0.5, 0);
+        balancer.addProcessor(failing);
+
+        Exchange exchange = createExchange();
+        balancer.process(exchange, mock(AsyncCallback.class));
+        assertThat(exchange.getException(), instanceOf(IllegalStateException.class));
+
+        // failed exchanges do not make the service look fast
+        assertThat(balancer.getAverageLatency(failing), equalTo(0.0));
+    }
+
+    @Test
+    public void testProcessNewServiceInFlight() throws Exception {
+        Processor slow = new SleepingProcessor(20);
+        AsyncProcessor stuck = mock(AsyncProcessor.class);
+        when(stuck.process(any(Exchange.class), any(AsyncCallback.class))).thenReturn(false);
+
+        OsgiLatencyLoadBalancer balancer = new OsgiLatencyLoadBalancer(0.5, 0);
+        balancer.addProcessor(slow);
+        balancer.process(createExchange(), mock(AsyncCallback.class));
+        balancer.addProcessor(stuck);
+
+        // the new service is preferred while it has no more exchanges in flight than the measured one
+        assertThat(balancer.chooseProcessor(balancer.getProcessors(), createExchange()), sameInstance((Processor) stuck));
+        assertThat(balancer.process(createExchange(), mock(AsyncCallback.class)), equalTo(false));
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(balancer.chooseProcessor(balancer.getProcessors(), createExchange()), sameInstance(slow));
+        }
+    }
+
+    @Test
+    public void testChooseProcessorSlowStart() throws Exception {
+        Processor slow = new SleepingProcessor(20);
+        Processor fresh = new SleepingProcessor(0);
+
+        OsgiLatencyLoadBalancer balancer = new OsgiLatencyLoadBalancer(0.5, 0, OsgiSlowStartTest.createSlowStart(fresh));
+        balancer.addProcessor(slow);
+        balancer.addProcessor(fresh);
+
+        // the newly registered service is not selected even though it has not been measured yet
+        for (int i = 0; i < 10; i++) {
+            assertThat(balancer.chooseProcessor(balancer.getProcessors(), createExchange()), sameInstance(slow));
+        }
+    }
+
+    @Test
+    public void testProbe() throws Exception {
+        Processor slow = new SleepingProcessor(20);
+        Processor fast = new SleepingProcessor(0);
+
+        OsgiLatencyLoadBalancer balancer = new OsgiLatencyLoadBalancer(0.5, 1);
+        balancer.addProcessor(slow);
+        balancer.process(createExchange(), mock(AsyncCallback.class));
+        balancer.addProcessor(fast);
+
+        Set<Processor> chosen = new HashSet<Processor>();
+        for (int i = 0; i < 100; i++) {
+            chosen.add(balancer.chooseProcessor(balancer.getProcessors(), createExchange()));
+        }
+        assertThat(chosen.contains(slow), equalTo(true));
+        assertThat(chosen.contains(fast), equalTo(true));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidSmoothing() throws Exception {
+        new OsgiLatencyLoadBalancer(0, 0.05);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidProbeRatio() throws Exception {
+        new OsgiLatencyLoadBalancer(0.2, 2);
+    }
+
+    private static Exchange createExchange() {
+        return new DefaultExchange(new DefaultCamelContext());
+    }
+
+    private static class SleepingProcessor implements Processor {
+        private final long millis;
+
+        private SleepingProcessor(long millis) {
+            this.millis = millis;
+        }
+
+        @Override
+        public void process(Exchange exchange) throws Exception {
+            if (millis > 0) {
+                Thread.sleep(millis);
+            }
+        }
+    }
+}
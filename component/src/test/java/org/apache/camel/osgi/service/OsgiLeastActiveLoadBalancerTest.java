@@ -0,0 +1,130 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.camel.osgi.service;
+
+import org.apache.camel.AsyncCallback;
+import org.apache.camel.AsyncProcessor;
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.impl.DefaultExchange;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class OsgiLeastActiveLoadBalancerTest {
+
+    @Test
+    public void testProcess() throws Exception {
+        List<AsyncCallback> callbacks = new ArrayList<AsyncCallback>();
+        AsyncProcessor busy = createProcessor(callbacks);
+        AsyncProcessor idle = createProcessor(new ArrayList<AsyncCallback>());
+
+        OsgiLeastActiveLoadBalancer balancer = new OsgiLeastActiveLoadBalancer();
+        balancer.addProcessor(busy);
+
+        AsyncCallback callback = mock(AsyncCallback.class);
+        assertThat(balancer.process(createExchange(), callback), equalTo(false));
+        assertThat(balancer.getActiveCount(busy), equalTo(1));
+
+        // with two services the less loaded one is always selected
+        balancer.addProcessor(idle);
+        for (int i = 0; i < 10; i++) {
+            assertThat(balancer.chooseProcessor(balancer.getProcessors(), createExchange()),
+                sameInstance((Processor) idle));
+        }
+
+        callbacks.get(0).done(false);
+        verify(callback).done(false);
+        assertThat(balancer.getActiveCount(busy), equalTo(0));
+    }
+
+    @Test
+    public void testChooseProcessorSlowStart() throws Exception {
+        List<AsyncCallback> callbacks = new ArrayList<AsyncCallback>();
+        AsyncProcessor busy = createProcessor(callbacks);
+        AsyncProcessor fresh = createProcessor(new ArrayList<AsyncCallback>());
+
+        OsgiLeastActiveLoadBalancer balancer = new OsgiLeastActiveLoadBalancer(OsgiSlowStartTest.createSlowStart(fresh));
+        balancer.addProcessor(busy);
+        balancer.process(createExchange(), mock(AsyncCallback.class));
+
+        // the newly registered service is not selected even though it has fewer exchanges in flight
+        balancer.addProcessor(fresh);
+        for (int i = 0; i < 10; i++) {
+            assertThat(balancer.chooseProcessor(balancer.getProcessors(), createExchange()),
+                sameInstance((Processor) busy));
+        }
+    }
+
+    @Test
+    public void testProcessKeepsCounters() throws Exception {
+        List<AsyncCallback> callbacks = new ArrayList<AsyncCallback>();
+        AsyncProcessor first = createProcessor(callbacks);
+        AsyncProcessor second = createProcessor(callbacks);
+
+        OsgiLeastActiveLoadBalancer balancer = new OsgiLeastActiveLoadBalancer();
+        balancer.addProcessor(first);
+        balancer.process(createExchange(), mock(AsyncCallback.class));
+
+        balancer.addProcessor(second);
+        assertThat(balancer.getActiveCount(first), equalTo(1));
+        assertThat(balancer.getActiveCount(second), equalTo(0));
+
+        balancer.removeProcessor(first);
+        assertThat(balancer.getActiveCount(first), equalTo(-1));
+    }
+
+    @Test
+    public void testProcessNoProcessors() throws Exception {
+        OsgiLeastActiveLoadBalancer balancer = new OsgiLeastActiveLoadBalancer();
+        assertThat(balancer.chooseProcessor(balancer.getProcessors(), createExchange()), nullValue());
+
+        Exchange exchange = createExchange();
+        AsyncCallback callback = mock(AsyncCallback.class);
+        assertThat(balancer.process(exchange, callback), equalTo(true));
+        assertThat(exchange.getException(), instanceOf(IllegalStateException.class));
+        verify(callback).done(true);
+    }
+
+    private static Exchange createExchange() {
+        return new DefaultExchange(new DefaultCamelContext());
+    }
+
+    private static AsyncProcessor createProcessor(final List<AsyncCallback> callbacks) {
+        AsyncProcessor processor = mock(AsyncProcessor.class);
+        when(processor.process(any(Exchange.class), any(AsyncCallback.class))).thenAnswer(new Answer<Boolean>() {
+            @Override
+            public Boolean answer(InvocationOnMock invocation) throws Throwable {
+                callbacks.add((AsyncCallback) invocation.getArguments()[1]);
+                return false;
+            }
+        });
+        return processor;
+    }
+}
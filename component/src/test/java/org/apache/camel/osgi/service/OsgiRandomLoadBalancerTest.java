@@ -0,0 +1,55 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.camel.osgi.service;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class OsgiRandomLoadBalancerTest {
+
+    @Test
+    public void testChooseProcessorSlowStart() throws Exception {
+        Processor old = mock(Processor.class);
+        Processor fresh = mock(Processor.class);
+        Exchange exchange = mock(Exchange.class);
+
+        OsgiRandomLoadBalancer balancer = new OsgiRandomLoadBalancer(OsgiSlowStartTest.createSlowStart(fresh));
+        List<Processor> processors = Arrays.asList(old, fresh);
+        int chosen = 0;
+        for (int i = 0; i < 100; i++) {
+            if (balancer.chooseProcessor(processors, exchange) == fresh) {
+                chosen++;
+            }
+        }
+        // the service is chosen only if both random attempts select it
+        assertTrue(String.format("Chosen: %s", chosen), chosen < 50);
+
+        // the newly registered service is chosen if there is no other one
+        assertThat(balancer.chooseProcessor(Collections.singletonList(fresh), exchange), sameInstance(fresh));
+        assertThat(balancer.chooseProcessor(Collections.<Processor>emptyList(), exchange), nullValue());
+    }
+
+}
@@ -38,4 +38,15 @@ public class OsgiRandomProducerTest {
         assertThat(producer.createProcessor(), instanceOf(RandomLoadBalancer.class));
     }
 
+    @Test
+    public void testCreateProcessorTwoChoices() throws Exception {
+        CamelContext camelContext = mock(CamelContext.class);
+
+        OsgiDefaultEndpoint endpoint = mock(OsgiDefaultEndpoint.class);
+        when(endpoint.getCamelContext()).thenReturn(camelContext);
+
+        OsgiRandomProducer producer = new OsgiRandomProducer(endpoint, Collections.<String, Object>emptyMap(), true);
+        assertThat(producer.createProcessor(), instanceOf(OsgiLeastActiveLoadBalancer.class));
+    }
+
 }
@@ -0,0 +1,144 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.camel.osgi.service;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class OsgiRoundRobinLoadBalancerTest {
+
+    @Test
+    public void testChooseProcessor() throws Exception {
+        Processor first = mock(Processor.class);
+        Processor second = mock(Processor.class);
+        Processor third = mock(Processor.class);
+
+        List<Processor> processors = Arrays.asList(first, second, third);
+        OsgiRoundRobinLoadBalancer balancer = new OsgiRoundRobinLoadBalancer();
+        Exchange exchange = mock(Exchange.class);
+
+        // every service is selected once in each round regardless of the position the cursor starts at
+        for (int round = 0; round < 3; round++) {
+            HashSet<Processor> chosen = new HashSet<Processor>();
+            for (int i = 0; i < processors.size(); i++) {
+                chosen.add(balancer.chooseProcessor(processors, exchange));
+            }
+            assertThat(chosen.size(), equalTo(processors.size()));
+        }
+
+        assertThat(balancer.chooseProcessor(Collections.<Processor>emptyList(), exchange), nullValue());
+    }
+
+    @Test
+    public void testChooseProcessorTracked() throws Exception {
+        Processor first = mock(Processor.class);
+        Processor second = mock(Processor.class);
+
+        OsgiRoundRobinLoadBalancer balancer = new OsgiRoundRobinLoadBalancer();
+        balancer.addProcessor(first);
+        balancer.serviceAdded(first);
+        balancer.addProcessor(second);
+        balancer.serviceAdded(second);
+
+        Exchange exchange = mock(Exchange.class);
+        Processor chosen = balancer.chooseProcessor(balancer.getProcessors(), exchange);
+        assertThat(balancer.chooseProcessor(balancer.getProcessors(), exchange),
+            sameInstance(chosen == first ? second : first));
+
+        balancer.removeProcessor(first);
+        balancer.serviceRemoved(first);
+        assertThat(balancer.chooseProcessor(balancer.getProcessors(), exchange), sameInstance(second));
+        assertThat(balancer.chooseProcessor(balancer.getProcessors(), exchange), sameInstance(second));
+
+        balancer.removeProcessor(second);
+        balancer.serviceRemoved(second);
+        assertThat(balancer.chooseProcessor(balancer.getProcessors(), exchange), nullValue());
+    }
+
+    @Test
+    public void testChooseProcessorSlowStart() throws Exception {
+        Processor first = mock(Processor.class);
+        Processor second = mock(Processor.class);
+        Processor fresh = mock(Processor.class);
+
+        OsgiRoundRobinLoadBalancer balancer = new OsgiRoundRobinLoadBalancer(OsgiSlowStartTest.createSlowStart(fresh));
+        balancer.addProcessor(first);
+        balancer.addProcessor(fresh);
+        balancer.addProcessor(second);
+
+        // the turns of the newly registered service go to the next services
+        Exchange exchange = mock(Exchange.class);
+        for (int i = 0; i < 9; i++) {
+            assertThat(balancer.chooseProcessor(balancer.getProcessors(), exchange), not(sameInstance(fresh)));
+        }
+
+        balancer.removeProcessor(first);
+        balancer.removeProcessor(second);
+        assertThat(balancer.chooseProcessor(balancer.getProcessors(), exchange), sameInstance(fresh));
+    }
+
+    @Test
+    public void testChooseProcessorConcurrently() throws Exception {
+        final OsgiRoundRobinLoadBalancer balancer = new OsgiRoundRobinLoadBalancer();
+        for (int i = 0; i < 4; i++) {
+            balancer.addProcessor(mock(Processor.class));
+        }
+
+        final Map<Processor, AtomicInteger> counts = new IdentityHashMap<Processor, AtomicInteger>();
+        for (Processor processor : balancer.getProcessors()) {
+            counts.put(processor, new AtomicInteger());
+        }
+
+        int threads = 8;
+        final int exchanges = 1000;
+        final CountDownLatch latch = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Exchange exchange = mock(Exchange.class);
+                    for (int j = 0; j < exchanges; j++) {
+                        counts.get(balancer.chooseProcessor(balancer.getProcessors(), exchange)).incrementAndGet();
+                    }
+                    latch.countDown();
+                }
+            }).start();
+        }
+        latch.await();
+
+        // each thread makes full rounds, so the exchanges are distributed evenly in aggregate
+        for (AtomicInteger count : counts.values()) {
+            assertThat(count.get(), equalTo(threads * exchanges / counts.size()));
+        }
+    }
+
+}
@@ -15,7 +15,6 @@
 package org.apache.camel.osgi.service;
 
 import org.apache.camel.CamelContext;
-import org.apache.camel.processor.loadbalancer.RoundRobinLoadBalancer;
 import org.junit.Test;
 
 import java.util.Collections;
@@ -35,7 +34,7 @@ public class OsgiRoundRobinProducerTest {
         when(endpoint.getCamelContext()).thenReturn(camelContext);
 
         OsgiRoundRobinProducer producer = new OsgiRoundRobinProducer(endpoint, Collections.<String, Object>emptyMap());
-        assertThat(producer.createProcessor(), instanceOf(RoundRobinLoadBalancer.class));
+        assertThat(producer.createProcessor(), instanceOf(OsgiRoundRobinLoadBalancer.class));
     }
 
 }
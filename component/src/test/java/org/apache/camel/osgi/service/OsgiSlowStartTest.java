@@ -0,0 +1,73 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.camel.osgi.service;
+
+import org.apache.camel.Processor;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class OsgiSlowStartTest {
+
+    @Test
+    public void testGetShare() throws Exception {
+        OsgiSlowStart slowStart = new OsgiSlowStart(1000);
+        assertThat(slowStart.getShare(10000, 10000), equalTo(0.0));
+        assertThat(slowStart.getShare(10000, 10250), equalTo(0.25));
+        assertThat(slowStart.getShare(10000, 11000), equalTo(1.0));
+
+        // the services which registration time is unknown are not ramped up
+        assertThat(slowStart.getShare(0, 10000), equalTo(1.0));
+        // the clock going backwards does not make the share negative
+        assertThat(slowStart.getShare(10000, 9000), equalTo(0.0));
+
+        assertThat(OsgiSlowStart.DISABLED.getShare(10000, 10000), equalTo(1.0));
+    }
+
+    @Test
+    public void testAdmit() throws Exception {
+        Processor old = mock(Processor.class);
+        Processor fresh = mock(Processor.class);
+        List<Processor> processors = Arrays.asList(old, fresh);
+
+        OsgiSlowStart slowStart = createSlowStart(fresh);
+        for (int i = 0; i < 100; i++) {
+            assertThat(slowStart.admit(processors, old), equalTo(true));
+            assertThat(slowStart.admit(processors, fresh), equalTo(false));
+            assertThat(OsgiSlowStart.DISABLED.admit(processors, fresh), equalTo(true));
+        }
+
+        // the services selected not from the OsgiServiceCollection are not ramped up
+        assertThat(new OsgiSlowStart(Long.MAX_VALUE).admit(processors, fresh), equalTo(true));
+    }
+
+    /**
+     * Creates the slow start which does not admit the given service as it has just been registered.
+     */
+    static OsgiSlowStart createSlowStart(final Processor registered) {
+        return new OsgiSlowStart(Long.MAX_VALUE / 2) {
+            @Override
+            protected long getRegistrationTime(List<Processor> processors, Processor processor) {
+                return processor == registered ? System.currentTimeMillis() : 0;
+            }
+        };
+    }
+
+}
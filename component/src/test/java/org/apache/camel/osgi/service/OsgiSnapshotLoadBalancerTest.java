@@ -0,0 +1,115 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.camel.osgi.service;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class OsgiSnapshotLoadBalancerTest {
+
+    @Test
+    public void testProcessors() throws Exception {
+        Processor first = mock(Processor.class);
+        Processor second = mock(Processor.class);
+
+        TestLoadBalancer balancer = new TestLoadBalancer();
+        assertThat(balancer.getStates().length, equalTo(0));
+
+        balancer.addProcessor(first);
+        State state = balancer.getState(first);
+        assertThat(state.processor, sameInstance(first));
+
+        // the state of the service is kept while other services come and go
+        balancer.addProcessor(second);
+        assertThat(balancer.getStates().length, equalTo(2));
+        assertThat(balancer.getStates()[0], sameInstance(state));
+        assertThat(balancer.getStates()[1].processor, sameInstance(second));
+
+        balancer.removeProcessor(first);
+        assertThat(balancer.getState(first), nullValue());
+        assertThat(balancer.getStates().length, equalTo(1));
+
+        // the state of the service which comes back is created from scratch
+        balancer.addProcessor(first);
+        assertThat(balancer.getState(first), not(sameInstance(state)));
+        assertThat(balancer.created, equalTo(3));
+    }
+
+    @Test
+    public void testServiceNotifications() throws Exception {
+        Processor first = mock(Processor.class);
+        final List<Processor> processors = new ArrayList<Processor>();
+
+        TestLoadBalancer balancer = new TestLoadBalancer() {
+            @Override
+            public List<Processor> getProcessors() {
+                return processors;
+            }
+        };
+
+        processors.add(first);
+        balancer.serviceAdded(first);
+        State state = balancer.getState(first);
+        assertThat(state.processor, sameInstance(first));
+
+        balancer.serviceModified(first);
+        assertThat(balancer.getState(first), sameInstance(state));
+
+        processors.remove(first);
+        balancer.serviceRemoved(first);
+        assertThat(balancer.getState(first), nullValue());
+        assertThat(balancer.getStates().length, equalTo(0));
+    }
+
+    private static class TestLoadBalancer extends OsgiSnapshotLoadBalancer<State> {
+        private int created;
+
+        private TestLoadBalancer() {
+            super(State.class);
+        }
+
+        @Override
+        protected State createState(Processor processor) {
+            created++;
+            return new State(processor);
+        }
+
+        @Override
+        protected Processor chooseProcessor(List<Processor> processors, Exchange exchange) {
+            State[] states = getStates();
+            return states.length > 0 ? states[0].processor : null;
+        }
+    }
+
+    private static class State {
+        private final Processor processor;
+
+        private State(Processor processor) {
+            this.processor = processor;
+        }
+    }
+
+}
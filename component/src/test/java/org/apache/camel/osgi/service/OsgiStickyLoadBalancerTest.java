@@ -0,0 +1,196 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.camel.osgi.service;
+
+import org.apache.camel.CamelContext;
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+import org.apache.camel.builder.ExpressionBuilder;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.impl.DefaultExchange;
+import org.junit.Test;
+import org.osgi.framework.Constants;
+import org.osgi.framework.ServiceReference;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+public class OsgiStickyLoadBalancerTest {
+
+    private static final int KEYS = 10000;
+    private static final CamelContext CONTEXT = new DefaultCamelContext();
+
+    @Test
+    public void testChooseProcessorSticky() throws Exception {
+        OsgiStickyLoadBalancer balancer = createBalancer();
+        for (long id = 0; id < 4; id++) {
+            balancer.addProcessor(createProcessor(id));
+        }
+
+        Map<Integer, Processor> first = choose(balancer);
+        Map<Integer, Processor> second = choose(balancer);
+        assertThat(second, equalTo(first));
+
+        // all the services receive some keys
+        assertThat(new HashSet<Processor>(first.values()).size(), equalTo(4));
+    }
+
+    @Test
+    public void testChooseProcessorSameRing() throws Exception {
+        OsgiStickyLoadBalancer balancer1 = createBalancer();
+        OsgiStickyLoadBalancer balancer2 = createBalancer();
+
+        List<Processor> processors = new ArrayList<Processor>();
+        for (long id = 0; id < 4; id++) {
+            processors.add(createProcessor(id));
+        }
+        for (int i = 0; i < processors.size(); i++) {
+            balancer1.addProcessor(processors.get(i));
+            balancer2.addProcessor(processors.get(processors.size() - i - 1));
+        }
+
+        assertThat(choose(balancer1), equalTo(choose(balancer2)));
+    }
+
+    @Test
+    public void testChooseProcessorAdded() throws Exception {
+        OsgiStickyLoadBalancer balancer = createBalancer();
+        for (long id = 0; id < 4; id++) {
+            balancer.addProcessor(createProcessor(id));
+        }
+        Map<Integer, Processor> before = choose(balancer);
+
+        Processor added = createProcessor(4);
+        balancer.addProcessor(added);
+        Map<Integer, Processor> after = choose(balancer);
+
+        int moved = 0;
+        for (Integer key : before.keySet()) {
+            if (before.get(key) != after.get(key)) {
+                // keys are moved only to the new service
+                assertThat(after.get(key), sameInstance(added));
+                moved++;
+            }
+        }
+        assertTrue(String.format("Moved keys: %s", moved), moved > KEYS / 10 && moved < KEYS / 3);
+    }
+
+    @Test
+    public void testChooseProcessorSlowStart() throws Exception {
+        Processor added = createProcessor(4);
+        OsgiStickyLoadBalancer balancer = new OsgiStickyLoadBalancer(
+            ExpressionBuilder.headerExpression("key"), 100, OsgiSlowStartTest.createSlowStart(added));
+        for (long id = 0; id < 4; id++) {
+            balancer.addProcessor(createProcessor(id));
+        }
+        Map<Integer, Processor> before = choose(balancer);
+
+        // the keys of the newly registered service stay with their previous owners until it's admitted
+        balancer.addProcessor(added);
+        assertThat(choose(balancer), equalTo(before));
+    }
+
+    @Test
+    public void testChooseProcessorRemoved() throws Exception {
+        OsgiStickyLoadBalancer balancer = createBalancer();
+        List<Processor> processors = new ArrayList<Processor>();
+        for (long id = 0; id < 4; id++) {
+            processors.add(createProcessor(id));
+            balancer.addProcessor(processors.get(processors.size() - 1));
+        }
+        Map<Integer, Processor> before = choose(balancer);
+
+        Processor removed = processors.get(2);
+        balancer.removeProcessor(removed);
+        Map<Integer, Processor> after = choose(balancer);
+
+        for (Integer key : before.keySet()) {
+            if (before.get(key) != removed) {
+                // keys of the remaining services are not moved
+                assertThat(after.get(key), sameInstance(before.get(key)));
+            }
+        }
+        assertThat(after.containsValue(removed), equalTo(false));
+    }
+
+    @Test
+    public void testChooseProcessorNoKey() throws Exception {
+        Processor first = createProcessor(0);
+        Processor second = createProcessor(1);
+
+        OsgiStickyLoadBalancer balancer = createBalancer();
+        assertThat(balancer.chooseProcessor(balancer.getProcessors(), createExchange(null)), nullValue());
+
+        balancer.serviceAdded(first);
+        balancer.serviceAdded(second);
+        balancer.serviceAdded(second);
+
+        Set<Processor> chosen = new HashSet<Processor>();
+        chosen.add(balancer.chooseProcessor(balancer.getProcessors(), createExchange(null)));
+        chosen.add(balancer.chooseProcessor(balancer.getProcessors(), createExchange(null)));
+        assertThat(chosen.size(), equalTo(2));
+
+        balancer.serviceRemoved(first);
+        balancer.serviceRemoved(second);
+        assertThat(balancer.chooseProcessor(balancer.getProcessors(), createExchange(null)), nullValue());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoKey() throws Exception {
+        new OsgiStickyLoadBalancer(null, 100);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidVirtualNodes() throws Exception {
+        new OsgiStickyLoadBalancer(ExpressionBuilder.headerExpression("key"), 0);
+    }
+
+    private static OsgiStickyLoadBalancer createBalancer() {
+        return new OsgiStickyLoadBalancer(ExpressionBuilder.headerExpression("key"), 100);
+    }
+
+    private static Map<Integer, Processor> choose(OsgiStickyLoadBalancer balancer) {
+        Map<Integer, Processor> answer = new HashMap<Integer, Processor>();
+        for (int key = 0; key < KEYS; key++) {
+            answer.put(key, balancer.chooseProcessor(balancer.getProcessors(), createExchange(key)));
+        }
+        return answer;
+    }
+
+    private static Exchange createExchange(Object key) {
+        Exchange exchange = new DefaultExchange(CONTEXT);
+        exchange.getIn().setHeader("key", key);
+        return exchange;
+    }
+
+    private static Processor createProcessor(long id) {
+        ServiceReference service = mock(ServiceReference.class, withSettings().extraInterfaces(Processor.class));
+        when(service.getProperty(Constants.SERVICE_ID)).thenReturn(id);
+        return (Processor) service;
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.camel.osgi.service;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+import org.junit.Test;
+import org.osgi.framework.ServiceReference;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+public class OsgiWeightedLoadBalancerTest {
+
+    @Test
+    public void testChooseProcessor() throws Exception {
+        Processor first = createProcessor(5);
+        Processor second = createProcessor(1);
+        Processor third = createProcessor(1);
+
+        List<Processor> processors = Arrays.asList(first, second, third);
+
+        // smooth weighted round-robin interleaves the heavy service with the others
+        OsgiWeightedLoadBalancer balancer = new OsgiWeightedLoadBalancer("weight");
+        assertThat(choose(balancer, processors, 7), equalTo(Arrays.asList(
+            first, first, second, first, third, first, first)));
+    }
+
+    @Test
+    public void testChooseProcessorDefaultWeight() throws Exception {
+        Processor first = createProcessor(null);
+        Processor second = createProcessor("invalid");
+        Processor third = createProcessor("2");
+
+        List<Processor> processors = Arrays.asList(first, second, third);
+
+        OsgiWeightedLoadBalancer balancer = new OsgiWeightedLoadBalancer("weight");
+        assertThat(choose(balancer, processors, 4), equalTo(Arrays.asList(third, first, second, third)));
+    }
+
+    @Test
+    public void testChooseProcessorZeroWeight() throws Exception {
+        Processor first = createProcessor(0);
+        Processor second = createProcessor(4);
+
+        OsgiWeightedLoadBalancer balancer = new OsgiWeightedLoadBalancer("weight");
+        assertThat(choose(balancer, Arrays.asList(first, second), 3), equalTo(Arrays.asList(second, second, second)));
+        assertThat(balancer.chooseProcessor(Arrays.asList(first), mock(Exchange.class)), nullValue());
+    }
+
+    @Test
+    public void testChooseProcessorTracked() throws Exception {
+        Processor first = createProcessor(1);
+        Processor second = createProcessor(1);
+
+        OsgiWeightedLoadBalancer balancer = new OsgiWeightedLoadBalancer("weight");
+        for (Processor processor : Arrays.asList(first, second)) {
+            balancer.addProcessor(processor);
+            balancer.serviceAdded(processor);
+        }
+        assertThat(choose(balancer, balancer.getProcessors(), 4), equalTo(Arrays.asList(first, second, first, second)));
+
+        when(((ServiceReference) second).getProperty("weight")).thenReturn(3);
+        balancer.serviceModified(second);
+        assertThat(choose(balancer, balancer.getProcessors(), 4), equalTo(Arrays.asList(second, first, second, second)));
+
+        balancer.removeProcessor(second);
+        balancer.serviceRemoved(second);
+        assertThat(choose(balancer, balancer.getProcessors(), 2), equalTo(Arrays.asList(first, first)));
+    }
+
+    @Test
+    public void testChooseProcessorSlowStart() throws Exception {
+        final Processor first = createProcessor(1);
+        final Processor second = createProcessor(1);
+        final long[] registered = {System.currentTimeMillis() - 100};
+
+        OsgiWeightedLoadBalancer balancer = new OsgiWeightedLoadBalancer("weight", 1000) {
+            @Override
+            protected long getRegistrationTime(Processor processor) {
+                return processor == second ? registered[0] : 0;
+            }
+        };
+        for (Processor processor : Arrays.asList(first, second)) {
+            balancer.addProcessor(processor);
+            balancer.serviceAdded(processor);
+        }
+
+        // the newly registered service gets 1/10 of its weight at the beginning of the slow start window
+        List<Processor> chosen = choose(balancer, balancer.getProcessors(), 11);
+        assertThat(Collections.frequency(chosen, first), equalTo(10));
+        assertThat(Collections.frequency(chosen, second), equalTo(1));
+
+        registered[0] = System.currentTimeMillis() - 500;
+        balancer.serviceModified(second);
+        chosen = choose(balancer, balancer.getProcessors(), 15);
+        assertThat(Collections.frequency(chosen, first), equalTo(10));
+        assertThat(Collections.frequency(chosen, second), equalTo(5));
+
+        registered[0] = System.currentTimeMillis() - 1000;
+        balancer.serviceModified(second);
+        assertThat(choose(balancer, balancer.getProcessors(), 4), equalTo(Arrays.asList(first, second, first, second)));
+    }
+
+    @Test
+    public void testChooseProcessorLargeWeights() throws Exception {
+        final Processor first = createProcessor(Integer.MAX_VALUE);
+        final Processor second = createProcessor(Integer.MAX_VALUE - 1);
+        final Processor third = createProcessor(1);
+
+        // the weights are scaled down to the maximum length of the order keeping the lightest service in it
+        OsgiWeightedLoadBalancer balancer = new OsgiWeightedLoadBalancer("weight");
+        List<Processor> chosen = choose(balancer, Arrays.asList(first, second, third),
+            OsgiWeightedLoadBalancer.MAX_SCHEDULE_LENGTH);
+        assertThat(Collections.frequency(chosen, first), equalTo(512));
+        assertThat(Collections.frequency(chosen, second), equalTo(511));
+        assertThat(Collections.frequency(chosen, third), equalTo(1));
+
+        // ramping the weights up does not overflow
+        balancer = new OsgiWeightedLoadBalancer("weight", 1000000000L) {
+            @Override
+            protected long getRegistrationTime(Processor processor) {
+                return processor == second ? System.currentTimeMillis() - 500000000L : 0;
+            }
+        };
+        for (Processor processor : Arrays.asList(first, second)) {
+            balancer.addProcessor(processor);
+            balancer.serviceAdded(processor);
+        }
+        chosen = choose(balancer, balancer.getProcessors(), 3);
+        assertThat(Collections.frequency(chosen, first), equalTo(2));
+        assertThat(Collections.frequency(chosen, second), equalTo(1));
+    }
+
+    private static List<Processor> choose(OsgiWeightedLoadBalancer balancer, List<Processor> processors, int count) {
+        Exchange exchange = mock(Exchange.class);
+        List<Processor> answer = new ArrayList<Processor>();
+        for (int i = 0; i < count; i++) {
+            answer.add(balancer.chooseProcessor(processors, exchange));
+        }
+        return answer;
+    }
+
+    private static Processor createProcessor(Object weight) {
+        ServiceReference service = mock(ServiceReference.class, withSettings().extraInterfaces(Processor.class));
+        when(service.getProperty("weight")).thenReturn(weight);
+        return (Processor) service;
+    }
+}
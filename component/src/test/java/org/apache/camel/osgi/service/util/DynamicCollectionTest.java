@@ -17,9 +17,11 @@ package org.apache.camel.osgi.service.util;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.lang.ref.WeakReference;
 import java.util.Iterator;
 
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.junit.Assert.assertThat;
 
@@ -123,4 +125,147 @@ public class DynamicCollectionTest {
         assertThat(iterator.hasNext(), equalTo(false));
     }
 
+    @Test
+    public void testModificationsWhileIterating() throws Exception {
+        Object obj2 = new Object();
+        collection.add(OBJ_0);
+
+        Iterator first = collection.iterator();
+        assertThat(first.next(), sameInstance(OBJ_0));
+
+        // the iterators created at different moments catch up with the same modifications independently
+        collection.add(OBJ_1);
+        Iterator second = collection.iterator();
+        collection.remove(OBJ_0);
+        collection.add(obj2);
+
+        assertThat(first.next(), sameInstance(OBJ_1));
+        assertThat(first.next(), sameInstance(obj2));
+        assertThat(first.hasNext(), equalTo(false));
+
+        assertThat(second.next(), sameInstance(OBJ_1));
+        assertThat(second.next(), sameInstance(obj2));
+        assertThat(second.hasNext(), equalTo(false));
+    }
+
+    @Test
+    public void testCopyOnWrite() throws Exception {
+        DynamicCollection<Object> collection = new DynamicCollection<Object>(true);
+        Object obj2 = new Object();
+
+        Iterator iterator = collection.iterator();
+        assertThat(iterator.hasNext(), equalTo(false));
+
+        collection.add(OBJ_0);
+        collection.add(OBJ_1);
+        assertThat(collection.size(), equalTo(2));
+        assertThat(collection.contains(OBJ_1), equalTo(true));
+        assertThat(iterator.hasNext(), equalTo(true));
+
+        // the element which has been returned by hasNext is still returned after being removed
+        collection.remove(OBJ_0);
+        assertThat(iterator.next(), sameInstance(OBJ_0));
+        assertThat(iterator.next(), sameInstance(OBJ_1));
+
+        collection.add(obj2);
+        assertThat(iterator.next(), sameInstance(obj2));
+        assertThat(iterator.hasNext(), equalTo(false));
+
+        assertThat(collection.first(), sameInstance(OBJ_1));
+        assertThat(collection.last(), sameInstance(obj2));
+        assertThat(collection.toArray(), equalTo(new Object[] {OBJ_1, obj2}));
+
+        collection.clear();
+        assertThat(collection.isEmpty(), equalTo(true));
+        assertThat(collection.contains(OBJ_1), equalTo(false));
+    }
+
+    @Test
+    public void testCopyOnWriteRemoveBeforeWhileIterating() throws Exception {
+        DynamicCollection<Object> collection = new DynamicCollection<Object>(true);
+        collection.add(OBJ_0);
+        collection.add(OBJ_1);
+
+        Iterator iterator = collection.iterator();
+        assertThat(iterator.next(), sameInstance(OBJ_0));
+        collection.remove(OBJ_0);
+        collection.add(OBJ_0);
+        assertThat(iterator.next(), sameInstance(OBJ_1));
+        assertThat(iterator.next(), sameInstance(OBJ_0));
+        assertThat(iterator.hasNext(), equalTo(false));
+    }
+
+    @Test
+    public void testCopyOnWriteIdleIteratorRetainsNoElements() throws Exception {
+        DynamicCollection<Object> collection = new DynamicCollection<Object>(true);
+        collection.add(OBJ_0);
+
+        Iterator<Object> iterator = collection.iterator();
+
+        Object removed = new Object();
+        WeakReference<Object> reference = new WeakReference<Object>(removed);
+        collection.add(removed);
+        collection.remove(removed);
+        collection.add(OBJ_1);
+        removed = null;
+
+        for (int i = 0; i < 10 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertThat(reference.get(), nullValue());
+
+        assertThat(iterator.next(), sameInstance(OBJ_0));
+        assertThat(iterator.next(), sameInstance(OBJ_1));
+        assertThat(iterator.hasNext(), equalTo(false));
+    }
+
+    @Test
+    public void testIdentityLookup() throws Exception {
+        testIdentityLookup(new DynamicCollection<Object>());
+        testIdentityLookup(new DynamicCollection<Object>(true));
+    }
+
+    private void testIdentityLookup(DynamicCollection<Object> collection) {
+        EqualsCounter first = new EqualsCounter(0);
+        EqualsCounter second = new EqualsCounter(1);
+        EqualsCounter third = new EqualsCounter(2);
+        collection.add(first);
+        collection.add(second);
+        collection.add(third);
+
+        // the contained elements are found without comparing them with the other ones
+        assertThat(collection.contains(third), equalTo(true));
+        assertThat(collection.remove(second), equalTo(true));
+        assertThat(collection.contains(third), equalTo(true));
+        assertThat(collection.remove(first), equalTo(true));
+        assertThat(first.count + second.count + third.count, equalTo(0));
+
+        // the elements which are not found by identity are compared by equals
+        assertThat(collection.contains(new EqualsCounter(2)), equalTo(true));
+        assertThat(collection.remove(new EqualsCounter(1)), equalTo(false));
+        assertThat(collection.remove(new EqualsCounter(2)), equalTo(true));
+        assertThat(collection.isEmpty(), equalTo(true));
+    }
+
+    private static class EqualsCounter {
+        private final int value;
+        private int count;
+
+        private EqualsCounter(int value) {
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            count++;
+            return o instanceof EqualsCounter && ((EqualsCounter) o).value == value;
+        }
+
+        @Override
+        public int hashCode() {
+            return value;
+        }
+    }
+
 }
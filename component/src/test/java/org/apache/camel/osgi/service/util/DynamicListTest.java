@@ -17,7 +17,11 @@ package org.apache.camel.osgi.service.util;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.sameInstance;
@@ -96,4 +100,73 @@ public class DynamicListTest {
         assertThat(iterator.hasNext(), equalTo(false));
     }
 
+    @Test
+    public void testCopyOnWriteListIterator() throws Exception {
+        DynamicList<Object> list = new DynamicList<Object>(true);
+        Object obj2 = new Object();
+        list.add(OBJ_0);
+        list.add(OBJ_1);
+
+        ListIterator<Object> iterator = list.listIterator();
+        assertThat(iterator.next(), sameInstance(OBJ_0));
+        assertThat(iterator.nextIndex(), equalTo(1));
+
+        // the element added before the current position shifts the iterator
+        list.add(0, obj2);
+        assertThat(iterator.nextIndex(), equalTo(2));
+        assertThat(iterator.previous(), sameInstance(OBJ_0));
+        assertThat(iterator.previous(), sameInstance(obj2));
+        assertThat(iterator.hasPrevious(), equalTo(false));
+
+        assertThat(list.indexOf(OBJ_1), equalTo(2));
+        assertThat(list.get(0), sameInstance(obj2));
+        assertThat(list.subList(1, 3), equalTo(Arrays.asList(OBJ_0, OBJ_1)));
+
+        assertThat(list.set(0, OBJ_1), sameInstance(obj2));
+        assertThat(list.lastIndexOf(OBJ_1), equalTo(2));
+        assertThat(list.indexOf(OBJ_1), equalTo(0));
+    }
+
+    @Test
+    public void testIndexOfAfterModifications() throws Exception {
+        Object obj2 = new Object();
+        Object obj3 = new Object();
+        List<Object> expected = new ArrayList<Object>(Arrays.asList(OBJ_0, OBJ_1, obj2, OBJ_1, obj3, OBJ_0));
+        list.addAll(expected);
+        assertIndexes(expected);
+
+        list.add(1, obj3);
+        expected.add(1, obj3);
+        assertIndexes(expected);
+
+        list.remove(0);
+        expected.remove(0);
+        assertIndexes(expected);
+
+        list.set(1, obj2);
+        expected.set(1, obj2);
+        assertIndexes(expected);
+
+        list.remove(OBJ_1);
+        expected.remove(OBJ_1);
+        assertIndexes(expected);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testSubListUnmodifiable() throws Exception {
+        list.add(OBJ_0);
+        list.add(OBJ_1);
+
+        List<Object> subList = list.subList(0, 1);
+        assertThat(subList, equalTo(Arrays.asList(OBJ_0)));
+        subList.clear();
+    }
+
+    private void assertIndexes(List<Object> expected) {
+        assertThat(list.size(), equalTo(expected.size()));
+        for (Object o : expected) {
+            assertThat(list.indexOf(o), equalTo(expected.indexOf(o)));
+        }
+    }
+
 }
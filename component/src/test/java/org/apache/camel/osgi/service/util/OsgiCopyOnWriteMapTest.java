@@ -0,0 +1,95 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.camel.osgi.service.util;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class OsgiCopyOnWriteMapTest {
+
+    @Test
+    public void testRead() throws Exception {
+        Map<String, Object> original = new HashMap<String, Object>();
+        original.put("key", "value");
+
+        OsgiCopyOnWriteMap<String, Object> map = new OsgiCopyOnWriteMap<String, Object>(original);
+
+        assertThat(map.get("key"), equalTo((Object) "value"));
+        assertThat(map.size(), equalTo(1));
+        assertThat(map.containsKey("key"), equalTo(true));
+        assertThat(map.equals(original), equalTo(true));
+        assertThat(map.isSharing(original), equalTo(true));
+
+        // removal of the missing key must not copy the map
+        map.remove("missing");
+        assertThat(map.isCopied(), equalTo(false));
+    }
+
+    @Test
+    public void testWrite() throws Exception {
+        Map<String, Object> original = new HashMap<String, Object>();
+        original.put("key", "value");
+
+        OsgiCopyOnWriteMap<String, Object> map = new OsgiCopyOnWriteMap<String, Object>(original);
+        map.put("key", "newValue");
+        map.put("newKey", "value");
+
+        assertThat(map.isCopied(), equalTo(true));
+        assertThat(map.isSharing(original), equalTo(false));
+        assertThat(map.get("key"), equalTo((Object) "newValue"));
+        assertThat(map.size(), equalTo(2));
+
+        assertThat(original.get("key"), equalTo((Object) "value"));
+        assertThat(original.size(), equalTo(1));
+    }
+
+    @Test
+    public void testWriteThroughViews() throws Exception {
+        Map<String, Object> original = new HashMap<String, Object>();
+        original.put("key1", "value1");
+        original.put("key2", "value2");
+
+        OsgiCopyOnWriteMap<String, Object> map = new OsgiCopyOnWriteMap<String, Object>(original);
+
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            entry.setValue("newValue");
+        }
+        assertThat(map.get("key1"), equalTo((Object) "newValue"));
+        assertThat(map.get("key2"), equalTo((Object) "newValue"));
+
+        map = new OsgiCopyOnWriteMap<String, Object>(original);
+        for (Iterator<String> iterator = map.keySet().iterator(); iterator.hasNext();) {
+            if ("key1".equals(iterator.next())) {
+                iterator.remove();
+            }
+        }
+        assertThat(map.get("key1"), nullValue());
+        assertThat(map.size(), equalTo(1));
+
+        map = new OsgiCopyOnWriteMap<String, Object>(original);
+        map.values().clear();
+        assertThat(map.isEmpty(), equalTo(true));
+
+        assertThat(original.get("key1"), equalTo((Object) "value1"));
+        assertThat(original.get("key2"), equalTo((Object) "value2"));
+    }
+}
@@ -15,13 +15,17 @@
 package org.apache.camel.osgi.service.util;
 
 import org.junit.Test;
+import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleEvent;
 import org.osgi.framework.Constants;
 import org.osgi.framework.ServiceReference;
 
 import java.util.List;
 
 import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.RETURNS_MOCKS;
 import static org.mockito.Mockito.mock;
@@ -67,4 +71,100 @@ public class OsgiDefaultProxyCreatorTest {
         creator.createProxy(bundleContext, reference, getClass().getClassLoader());
     }
 
+    @Test
+    public void testCreateProxyCached() throws Exception {
+        BundleContext bundleContext = mock(BundleContext.class);
+        Bundle bundle = mock(Bundle.class);
+
+        ServiceReference reference1 = mock(ServiceReference.class);
+        when(reference1.getBundle()).thenReturn(bundle);
+        when(reference1.getProperty(Constants.OBJECTCLASS)).thenReturn(new String[] {List.class.getName()});
+
+        ServiceReference reference2 = mock(ServiceReference.class);
+        when(reference2.getBundle()).thenReturn(bundle);
+        when(reference2.getProperty(Constants.OBJECTCLASS)).thenReturn(new String[] {List.class.getName()});
+
+        OsgiDefaultProxyCreator creator = new OsgiDefaultProxyCreator();
+        Object proxy1 = creator.createProxy(bundleContext, reference1, getClass().getClassLoader());
+        // the classes must not be loaded again
+        Object proxy2 = creator.createProxy(bundleContext, reference2, new UnusableClassLoader());
+
+        assertThat(proxy1, not(sameInstance(proxy2)));
+        assertThat(proxy2.getClass(), sameInstance((Object) proxy1.getClass()));
+        assertThat(((OsgiProxy) proxy2).getReference(), sameInstance(reference2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBundleChanged() throws Exception {
+        BundleContext bundleContext = mock(BundleContext.class);
+        Bundle bundle = mock(Bundle.class);
+
+        ServiceReference reference = mock(ServiceReference.class);
+        when(reference.getBundle()).thenReturn(bundle);
+        when(reference.getProperty(Constants.OBJECTCLASS)).thenReturn(new String[] {List.class.getName()});
+
+        OsgiDefaultProxyCreator creator = new OsgiDefaultProxyCreator();
+        creator.createProxy(bundleContext, reference, getClass().getClassLoader());
+
+        creator.bundleChanged(new BundleEvent(BundleEvent.UNRESOLVED, bundle));
+
+        // the classes must be loaded again
+        creator.createProxy(bundleContext, reference, new UnusableClassLoader());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConsumingBundleChanged() throws Exception {
+        Bundle consumingBundle = mock(Bundle.class);
+        when(consumingBundle.getBundleId()).thenReturn(1L);
+        BundleContext bundleContext = mock(BundleContext.class);
+        when(bundleContext.getBundle()).thenReturn(consumingBundle);
+        Bundle bundle = mock(Bundle.class);
+        when(bundle.getBundleId()).thenReturn(2L);
+
+        ServiceReference reference = mock(ServiceReference.class);
+        when(reference.getBundle()).thenReturn(bundle);
+        when(reference.getProperty(Constants.OBJECTCLASS)).thenReturn(new String[] {List.class.getName()});
+
+        OsgiDefaultProxyCreator creator = new OsgiDefaultProxyCreator();
+        creator.createProxy(bundleContext, reference, getClass().getClassLoader());
+
+        creator.bundleChanged(new BundleEvent(BundleEvent.UNINSTALLED, consumingBundle));
+
+        // the proxy class defined by the class loader of the consuming bundle must not be reused
+        creator.createProxy(bundleContext, reference, new UnusableClassLoader());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCreateProxyOtherConsumingBundle() throws Exception {
+        Bundle consumingBundle1 = mock(Bundle.class);
+        when(consumingBundle1.getBundleId()).thenReturn(1L);
+        BundleContext bundleContext1 = mock(BundleContext.class);
+        when(bundleContext1.getBundle()).thenReturn(consumingBundle1);
+
+        Bundle consumingBundle2 = mock(Bundle.class);
+        when(consumingBundle2.getBundleId()).thenReturn(2L);
+        BundleContext bundleContext2 = mock(BundleContext.class);
+        when(bundleContext2.getBundle()).thenReturn(consumingBundle2);
+
+        Bundle bundle = mock(Bundle.class);
+        when(bundle.getBundleId()).thenReturn(3L);
+
+        ServiceReference reference = mock(ServiceReference.class);
+        when(reference.getBundle()).thenReturn(bundle);
+        when(reference.getProperty(Constants.OBJECTCLASS)).thenReturn(new String[] {List.class.getName()});
+
+        OsgiDefaultProxyCreator creator = new OsgiDefaultProxyCreator();
+        creator.createProxy(bundleContext1, reference, getClass().getClassLoader());
+
+        // the classes must be loaded for the other consuming bundle
+        creator.createProxy(bundleContext2, reference, new UnusableClassLoader());
+    }
+
+    private static class UnusableClassLoader extends ClassLoader {
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            throw new ClassNotFoundException(name);
+        }
+    }
+
 }
@@ -14,17 +14,31 @@
 
 package org.apache.camel.osgi.service.util;
 
+import de.kalpatec.pojosr.framework.launch.PojoServiceRegistry;
+import de.kalpatec.pojosr.framework.launch.PojoServiceRegistryFactory;
+import org.apache.camel.AsyncCallback;
+import org.apache.camel.AsyncProcessor;
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
 import org.junit.Test;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.ServiceReference;
+import org.osgi.framework.ServiceRegistration;
 
+import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.ServiceLoader;
 
 import static org.hamcrest.CoreMatchers.*;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.same;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -48,6 +62,50 @@ public class OsgiInvocationHandlerTest {
         assertThat((String) service.get(0), equalTo("test"));
     }
 
+    @Test
+    public void testInvokeLease() throws Throwable {
+        List<?> service = new ArrayList<Object>();
+
+        ServiceReference reference = mock(ServiceReference.class);
+
+        BundleContext bundleContext = mock(BundleContext.class);
+        when(bundleContext.getService(same(reference))).thenReturn(service);
+
+        OsgiInvocationHandler handler = new OsgiInvocationHandler(bundleContext, reference, true);
+        handler.invoke(reference, List.class.getMethod("add", Object.class), new Object[] {"test1"});
+        handler.invoke(reference, List.class.getMethod("add", Object.class), new Object[] {"test2"});
+
+        verify(bundleContext).getService(same(reference));
+        verify(bundleContext, never()).ungetService(same(reference));
+
+        assertThat(service.size(), equalTo(2));
+    }
+
+    @Test
+    public void testInvokeReleaseService() throws Throwable {
+        List<?> service = new ArrayList<Object>();
+
+        ServiceReference reference = mock(ServiceReference.class);
+
+        BundleContext bundleContext = mock(BundleContext.class);
+        when(bundleContext.getService(same(reference))).thenReturn(service);
+
+        OsgiInvocationHandler handler = new OsgiInvocationHandler(bundleContext, reference, true);
+        handler.invoke(reference, List.class.getMethod("add", Object.class), new Object[] {"test1"});
+        handler.invoke(reference, OsgiLeasingProxy.class.getMethod("releaseService"), new Object[0]);
+
+        verify(bundleContext).getService(same(reference));
+        verify(bundleContext).ungetService(same(reference));
+
+        // released service must not be leased again
+        handler.invoke(reference, List.class.getMethod("add", Object.class), new Object[] {"test2"});
+
+        verify(bundleContext, times(2)).getService(same(reference));
+        verify(bundleContext, times(2)).ungetService(same(reference));
+
+        assertThat(service.size(), equalTo(2));
+    }
+
     @Test
     public void testInvokeEquals() throws Throwable {
         List<?> service = new ArrayList<Object>();
@@ -94,6 +152,19 @@ public class OsgiInvocationHandlerTest {
         assertThat((ServiceReference) answer, sameInstance(reference));
     }
 
+    @Test(expected = UnsupportedOperationException.class)
+    public void testInvokeServiceException() throws Throwable {
+        List<?> service = Collections.emptyList();
+
+        ServiceReference reference = mock(ServiceReference.class);
+
+        BundleContext bundleContext = mock(BundleContext.class);
+        when(bundleContext.getService(same(reference))).thenReturn(service);
+
+        OsgiInvocationHandler handler = new OsgiInvocationHandler(bundleContext, reference);
+        handler.invoke(reference, List.class.getMethod("add", Object.class), new Object[] {"test"});
+    }
+
     @Test(expected = IllegalStateException.class)
     public void testInvokeNoService() throws Throwable {
         ServiceReference reference = mock(ServiceReference.class);
@@ -102,5 +173,54 @@ public class OsgiInvocationHandlerTest {
         OsgiInvocationHandler handler = new OsgiInvocationHandler(bundleContext, reference);
         handler.invoke(reference, List.class.getMethod("add", Object.class), new Object[]{"test"});
     }
-    
+
+    @Test
+    public void testInvokeAsyncUnregistered() throws Throwable {
+        ServiceLoader<PojoServiceRegistryFactory> loader = ServiceLoader.load(PojoServiceRegistryFactory.class);
+        PojoServiceRegistry registry = loader.iterator().next().newPojoServiceRegistry(new HashMap<String, Object>());
+
+        AsyncProcessor service = mock(AsyncProcessor.class);
+        ServiceRegistration registration = registry.registerService(
+            new String[] {Processor.class.getName(), AsyncProcessor.class.getName()}, service, null);
+
+        // the service is selected and then unregistered before it's called
+        AsyncProcessor proxy = new OsgiDefaultProxyCreator().createProxy(
+            registry.getBundleContext(), registration.getReference(), getClass().getClassLoader());
+        registration.unregister();
+
+        Exchange exchange = mock(Exchange.class);
+        AsyncCallback callback = mock(AsyncCallback.class);
+        assertThat(proxy.process(exchange, callback), equalTo(true));
+
+        verify(exchange).setException(any(IllegalStateException.class));
+        verify(callback).done(true);
+        verify(service, never()).process(any(Exchange.class), any(AsyncCallback.class));
+    }
+
+    @Test
+    public void testInvokeAsyncServiceException() throws Throwable {
+        AsyncProcessor service = mock(AsyncProcessor.class);
+        RuntimeException exception = new RuntimeException();
+        when(service.process(any(Exchange.class), any(AsyncCallback.class))).thenThrow(exception);
+
+        ServiceReference reference = mock(ServiceReference.class);
+
+        BundleContext bundleContext = mock(BundleContext.class);
+        when(bundleContext.getService(same(reference))).thenReturn(service);
+
+        Method process = AsyncProcessor.class.getMethod("process", Exchange.class, AsyncCallback.class);
+        for (boolean lease : new boolean[] {false, true}) {
+            OsgiInvocationHandler handler = new OsgiInvocationHandler(bundleContext, reference, lease);
+
+            Exchange exchange = mock(Exchange.class);
+            AsyncCallback callback = mock(AsyncCallback.class);
+            assertThat(handler.invoke(reference, process, new Object[] {exchange, callback}), equalTo((Object) true));
+
+            verify(exchange).setException(same(exception));
+            verify(callback).done(true);
+            handler.releaseService();
+        }
+        verify(bundleContext, times(2)).ungetService(same(reference));
+    }
+
 }
@@ -0,0 +1,135 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.camel.osgi.service.util;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceReference;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+public class OsgiLazyProxyCreatorTest {
+
+    @Test
+    public void testCreateProxy() throws Exception {
+        BundleContext bundleContext = mock(BundleContext.class);
+        ServiceReference reference = mock(ServiceReference.class);
+        when(reference.getBundle()).thenReturn(mock(Bundle.class));
+        when(reference.getProperty("key")).thenReturn("value");
+
+        OsgiProxyCreator delegate = mock(OsgiProxyCreator.class);
+
+        OsgiLazyProxyCreator creator = new OsgiLazyProxyCreator(delegate);
+        Object proxy = creator.createProxy(bundleContext, reference, getClass().getClassLoader());
+
+        assertThat(proxy, instanceOf(OsgiLazyProxy.class));
+        assertThat(((OsgiProxy) proxy).getReference(), sameInstance(reference));
+        assertThat(((ServiceReference) proxy).getProperty("key"), is((Object) "value"));
+        assertThat(((OsgiLazyProxy) proxy).isMaterialized(), is(false));
+
+        verify(delegate, never()).createProxy(any(BundleContext.class), any(ServiceReference.class),
+                any(ClassLoader.class));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCreateProxyNoBundle() throws Exception {
+        BundleContext bundleContext = mock(BundleContext.class);
+        ServiceReference reference = mock(ServiceReference.class);
+
+        OsgiLazyProxyCreator creator = new OsgiLazyProxyCreator(mock(OsgiProxyCreator.class));
+        creator.createProxy(bundleContext, reference, getClass().getClassLoader());
+    }
+
+    @Test
+    public void testProcess() throws Exception {
+        BundleContext bundleContext = mock(BundleContext.class);
+        ServiceReference reference = mock(ServiceReference.class);
+        when(reference.getBundle()).thenReturn(mock(Bundle.class));
+        ClassLoader classLoader = getClass().getClassLoader();
+
+        Processor processor = mock(Processor.class, withSettings().extraInterfaces(OsgiLeasingProxy.class));
+        OsgiProxyCreator delegate = mock(OsgiProxyCreator.class);
+        when(delegate.createProxy(bundleContext, reference, classLoader)).thenReturn(processor);
+
+        OsgiLazyProxy proxy = new OsgiLazyProxyCreator(delegate).createProxy(bundleContext, reference, classLoader);
+
+        Exchange exchange = mock(Exchange.class);
+        proxy.process(exchange);
+        proxy.process(exchange);
+
+        assertThat(proxy.isMaterialized(), is(true));
+        verify(delegate, times(1)).createProxy(bundleContext, reference, classLoader);
+        verify(processor, times(2)).process(exchange);
+
+        proxy.releaseService();
+        verify((OsgiLeasingProxy) processor).releaseService();
+    }
+
+    @Test
+    public void testProcessReleased() throws Exception {
+        BundleContext bundleContext = mock(BundleContext.class);
+        ServiceReference reference = mock(ServiceReference.class);
+        when(reference.getBundle()).thenReturn(mock(Bundle.class));
+        ClassLoader classLoader = getClass().getClassLoader();
+
+        Processor processor = mock(Processor.class, withSettings().extraInterfaces(OsgiLeasingProxy.class));
+        OsgiProxyCreator delegate = mock(OsgiProxyCreator.class);
+        when(delegate.createProxy(bundleContext, reference, classLoader)).thenReturn(processor);
+
+        OsgiLazyProxy proxy = new OsgiLazyProxyCreator(delegate).createProxy(bundleContext, reference, classLoader);
+        proxy.releaseService();
+
+        Exchange exchange = mock(Exchange.class);
+        proxy.process(exchange);
+
+        verify((OsgiLeasingProxy) processor).releaseService();
+        verify(processor).process(exchange);
+    }
+
+    @Test
+    public void testProcessNotLeasing() throws Exception {
+        BundleContext bundleContext = mock(BundleContext.class);
+        ServiceReference reference = mock(ServiceReference.class);
+        when(reference.getBundle()).thenReturn(mock(Bundle.class));
+        ClassLoader classLoader = getClass().getClassLoader();
+
+        // proxies of custom proxy creators may implement only OsgiProxy
+        Processor processor = mock(Processor.class, withSettings().extraInterfaces(OsgiProxy.class));
+        OsgiProxyCreator delegate = mock(OsgiProxyCreator.class);
+        when(delegate.createProxy(bundleContext, reference, classLoader)).thenReturn(processor);
+
+        OsgiLazyProxy proxy = new OsgiLazyProxyCreator(delegate).createProxy(bundleContext, reference, classLoader);
+        proxy.releaseService();
+
+        Exchange exchange = mock(Exchange.class);
+        proxy.process(exchange);
+        proxy.releaseService();
+
+        verify(processor).process(exchange);
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.camel.osgi.service.util;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.ServiceReference;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.same;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+public class OsgiOutlierDetectorTest {
+
+    private static final long INTERVAL = TimeUnit.HOURS.toMillis(1);
+    private static final long EJECTION_TIME = 1000;
+
+    private OsgiServiceCollection<Processor> services;
+    private OsgiOutlierDetector detector;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception {
+        services = mock(OsgiServiceCollection.class);
+        when(services.suspend(any(Processor.class))).thenReturn(true);
+        when(services.resume(any(Processor.class))).thenReturn(true);
+
+        detector = new OsgiOutlierDetector(INTERVAL, 10, 0.3, 3.0, EJECTION_TIME, 50);
+        detector.setServices(services);
+    }
+
+    @Test
+    public void testEjectErrors() throws Exception {
+        OsgiOutlierProxy proxy1 = createProxy();
+        OsgiOutlierProxy proxy2 = createProxy();
+        OsgiOutlierProxy proxy3 = createProxy();
+
+        report(proxy1, 10, 0, 1000);
+        report(proxy2, 10, 1, 1000);
+        report(proxy3, 10, 8, 1000);
+
+        detector.evaluate(0);
+        verify(services).suspend(same(proxy3));
+        verify(services, never()).suspend(same(proxy1));
+        verify(services, never()).suspend(same(proxy2));
+        assertThat(detector.isEjected(proxy3), equalTo(true));
+
+        detector.evaluate(EJECTION_TIME - 1);
+        verify(services, never()).resume(same(proxy3));
+
+        detector.evaluate(EJECTION_TIME);
+        verify(services).resume(same(proxy3));
+        assertThat(detector.isEjected(proxy3), equalTo(false));
+    }
+
+    @Test
+    public void testResumeExpired() throws Exception {
+        OsgiOutlierProxy proxy1 = createProxy();
+        OsgiOutlierProxy proxy2 = createProxy();
+        OsgiOutlierProxy proxy3 = createProxy();
+
+        report(proxy1, 10, 0, 1000);
+        report(proxy2, 10, 0, 1000);
+        report(proxy3, 10, 10, 1000);
+
+        // the service is resumed without any exchanges being completed
+        detector.evaluate(OsgiOutlierDetector.now() - EJECTION_TIME);
+        assertThat(detector.isEjected(proxy3), equalTo(true));
+
+        detector.resumeExpired();
+        verify(services).resume(same(proxy3));
+        assertThat(detector.isEjected(proxy3), equalTo(false));
+    }
+
+    @Test
+    public void testResumeNoServicesLeft() throws Exception {
+        OsgiOutlierProxy proxy1 = createProxy();
+        OsgiOutlierProxy proxy2 = createProxy();
+        OsgiOutlierProxy proxy3 = createProxy();
+
+        report(proxy1, 10, 0, 1000);
+        report(proxy2, 10, 0, 1000);
+        report(proxy3, 10, 10, 1000);
+
+        detector.evaluate(OsgiOutlierDetector.now());
+        detector.resumeExpired();
+        assertThat(detector.isEjected(proxy3), equalTo(true));
+
+        // the services in rotation have been unregistered
+        when(services.isEmpty()).thenReturn(true);
+        detector.resumeExpired();
+        verify(services).resume(same(proxy3));
+        assertThat(detector.isEjected(proxy3), equalTo(false));
+    }
+
+    @Test
+    public void testEjectLatency() throws Exception {
+        OsgiOutlierProxy proxy1 = createProxy();
+        OsgiOutlierProxy proxy2 = createProxy();
+        OsgiOutlierProxy proxy3 = createProxy();
+
+        report(proxy1, 10, 0, 1000);
+        report(proxy2, 10, 0, 2000);
+        report(proxy3, 10, 0, 10000);
+
+        detector.evaluate(0);
+        verify(services).suspend(same(proxy3));
+        verify(services, never()).suspend(same(proxy1));
+        verify(services, never()).suspend(same(proxy2));
+    }
+
+    @Test
+    public void testMinimumRequests() throws Exception {
+        OsgiOutlierProxy proxy1 = createProxy();
+        OsgiOutlierProxy proxy2 = createProxy();
+        OsgiOutlierProxy proxy3 = createProxy();
+
+        report(proxy1, 10, 0, 1000);
+        report(proxy2, 10, 0, 1000);
+        report(proxy3, 9, 9, 1000);
+
+        detector.evaluate(0);
+        verify(services, never()).suspend(any(Processor.class));
+    }
+
+    @Test
+    public void testMaxEjectionPercent() throws Exception {
+        detector = new OsgiOutlierDetector(INTERVAL, 10, 0.3, 3.0, EJECTION_TIME, 20);
+        detector.setServices(services);
+
+        OsgiOutlierProxy proxy1 = createProxy();
+        OsgiOutlierProxy proxy2 = createProxy();
+        OsgiOutlierProxy proxy3 = createProxy();
+        OsgiOutlierProxy proxy4 = createProxy();
+        OsgiOutlierProxy proxy5 = createProxy();
+
+        report(proxy1, 10, 0, 1000);
+        report(proxy2, 10, 0, 1000);
+        report(proxy3, 10, 0, 1000);
+        report(proxy4, 10, 10, 1000);
+        report(proxy5, 10, 10, 1000);
+
+        // only 1 of 5 services can be ejected at the same time
+        detector.evaluate(0);
+        assertThat(detector.isEjected(proxy4) ^ detector.isEjected(proxy5), equalTo(true));
+        OsgiOutlierProxy ejected = detector.isEjected(proxy4) ? proxy4 : proxy5;
+        OsgiOutlierProxy other = ejected == proxy4 ? proxy5 : proxy4;
+
+        report(proxy1, 10, 0, 1000);
+        report(proxy2, 10, 0, 1000);
+        report(proxy3, 10, 0, 1000);
+        report(other, 10, 10, 1000);
+        detector.evaluate(1);
+        assertThat(detector.isEjected(other), equalTo(false));
+
+        // the other service is ejected as soon as the first one is resumed
+        report(proxy1, 10, 0, 1000);
+        report(proxy2, 10, 0, 1000);
+        report(proxy3, 10, 0, 1000);
+        report(other, 10, 10, 1000);
+        detector.evaluate(EJECTION_TIME);
+        assertThat(detector.isEjected(ejected), equalTo(false));
+        assertThat(detector.isEjected(other), equalTo(true));
+    }
+
+    @Test
+    public void testEjectionBackoff() throws Exception {
+        OsgiOutlierProxy proxy1 = createProxy();
+        OsgiOutlierProxy proxy2 = createProxy();
+        OsgiOutlierProxy proxy3 = createProxy();
+
+        report(proxy1, 10, 0, 1000);
+        report(proxy2, 10, 0, 1000);
+        report(proxy3, 10, 10, 1000);
+        detector.evaluate(0);
+
+        detector.evaluate(EJECTION_TIME);
+        assertThat(detector.isEjected(proxy3), equalTo(false));
+
+        // the service is ejected twice as long the next time
+        report(proxy1, 10, 0, 1000);
+        report(proxy2, 10, 0, 1000);
+        report(proxy3, 10, 10, 1000);
+        detector.evaluate(EJECTION_TIME);
+        assertThat(detector.isEjected(proxy3), equalTo(true));
+
+        detector.evaluate(3 * EJECTION_TIME - 1);
+        assertThat(detector.isEjected(proxy3), equalTo(true));
+
+        detector.evaluate(3 * EJECTION_TIME);
+        assertThat(detector.isEjected(proxy3), equalTo(false));
+    }
+
+    @Test
+    public void testUnregister() throws Exception {
+        OsgiOutlierProxy proxy1 = createProxy();
+        OsgiOutlierProxy proxy2 = createProxy();
+        OsgiOutlierProxy proxy3 = createProxy();
+
+        report(proxy1, 10, 0, 1000);
+        report(proxy2, 10, 0, 1000);
+        report(proxy3, 10, 10, 1000);
+        proxy3.releaseService();
+
+        detector.evaluate(0);
+        verify(services, never()).suspend(any(Processor.class));
+    }
+
+    @Test
+    public void testProcess() throws Exception {
+        Processor processor = createProcessor();
+        OsgiOutlierProxy proxy = new OsgiOutlierProxy(processor, detector);
+
+        Exchange exchange = mock(Exchange.class);
+        proxy.process(exchange);
+
+        RuntimeException exception = new RuntimeException();
+        doThrow(exception).when(processor).process(same(exchange));
+        try {
+            proxy.process(exchange);
+        } catch (RuntimeException e) {
+            assertThat(e, equalTo(exception));
+        }
+
+        proxy.snapshot();
+        assertThat(proxy.requests, equalTo(2));
+        assertThat(proxy.errorRate(), equalTo(0.5));
+    }
+
+    private OsgiOutlierProxy createProxy() {
+        OsgiOutlierProxy proxy = new OsgiOutlierProxy(createProcessor(), detector);
+        detector.register(proxy);
+        return proxy;
+    }
+
+    private static Processor createProcessor() {
+        return mock(Processor.class, withSettings().extraInterfaces(OsgiProxy.class, ServiceReference.class));
+    }
+
+    private void report(OsgiOutlierProxy proxy, int requests, int errors, long latency) {
+        for (int i = 0; i < requests; i++) {
+            detector.report(proxy, i < errors, latency);
+        }
+    }
+
+}
@@ -0,0 +1,197 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.camel.osgi.service.util;
+
+import org.apache.camel.AsyncCallback;
+import org.apache.camel.AsyncProcessor;
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.Constants;
+import org.osgi.framework.ServiceReference;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.same;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class OsgiProcessorProxyCreatorTest {
+
+    @Test
+    public void testCreateProxy() throws Exception {
+        Bundle bundle = mock(Bundle.class);
+
+        ServiceReference reference = mock(ServiceReference.class);
+        when(reference.getBundle()).thenReturn(bundle);
+        when(reference.getProperty(Constants.OBJECTCLASS)).thenReturn(new String[] {Processor.class.getName()});
+
+        BundleContext bundleContext = mock(BundleContext.class);
+
+        OsgiProcessorProxyCreator proxyCreator = new OsgiProcessorProxyCreator();
+        Object proxy = proxyCreator.createProxy(bundleContext, reference, getClass().getClassLoader());
+
+        assertThat(proxy, instanceOf(OsgiProcessorProxy.class));
+        assertThat(((OsgiProxy) proxy).getReference(), sameInstance(reference));
+    }
+
+    @Test
+    public void testCreateProxyFallback() throws Exception {
+        Bundle bundle = mock(Bundle.class);
+
+        ServiceReference reference = mock(ServiceReference.class);
+        when(reference.getBundle()).thenReturn(bundle);
+        when(reference.getProperty(Constants.OBJECTCLASS))
+            .thenReturn(new String[] {Processor.class.getName(), List.class.getName()});
+
+        BundleContext bundleContext = mock(BundleContext.class);
+
+        OsgiProcessorProxyCreator proxyCreator = new OsgiProcessorProxyCreator();
+        Object proxy = proxyCreator.createProxy(bundleContext, reference, getClass().getClassLoader());
+
+        assertThat(Proxy.isProxyClass(proxy.getClass()), equalTo(true));
+        assertThat(proxy, instanceOf(Processor.class));
+        assertThat(proxy, instanceOf(List.class));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCreateProxyUnregistered() throws Exception {
+        ServiceReference reference = mock(ServiceReference.class);
+        BundleContext bundleContext = mock(BundleContext.class);
+
+        OsgiProcessorProxyCreator proxyCreator = new OsgiProcessorProxyCreator();
+        proxyCreator.createProxy(bundleContext, reference, getClass().getClassLoader());
+    }
+
+    @Test
+    public void testProcess() throws Exception {
+        Processor service = mock(Processor.class);
+
+        Bundle bundle = mock(Bundle.class);
+
+        ServiceReference reference = mock(ServiceReference.class);
+        when(reference.getBundle()).thenReturn(bundle);
+        when(reference.getProperty(Constants.OBJECTCLASS)).thenReturn(new String[] {Processor.class.getName()});
+
+        BundleContext bundleContext = mock(BundleContext.class);
+        when(bundleContext.getService(same(reference))).thenReturn(service);
+
+        OsgiProcessorProxyCreator proxyCreator = new OsgiProcessorProxyCreator();
+        Processor proxy = proxyCreator.createProxy(bundleContext, reference, getClass().getClassLoader());
+
+        Exchange exchange = mock(Exchange.class);
+        proxy.process(exchange);
+        proxy.process(exchange);
+
+        verify(service, times(2)).process(same(exchange));
+        verify(bundleContext, times(2)).getService(same(reference));
+        verify(bundleContext, times(2)).ungetService(same(reference));
+    }
+
+    @Test
+    public void testCreateProxyAsync() throws Exception {
+        Bundle bundle = mock(Bundle.class);
+
+        ServiceReference reference = mock(ServiceReference.class);
+        when(reference.getBundle()).thenReturn(bundle);
+        when(reference.getProperty(Constants.OBJECTCLASS))
+            .thenReturn(new String[] {Processor.class.getName(), AsyncProcessor.class.getName()});
+
+        BundleContext bundleContext = mock(BundleContext.class);
+
+        OsgiProcessorProxyCreator proxyCreator = new OsgiProcessorProxyCreator();
+        Object proxy = proxyCreator.createProxy(bundleContext, reference, getClass().getClassLoader());
+
+        assertThat(proxy, instanceOf(OsgiProcessorProxy.class));
+        assertThat(proxy, instanceOf(AsyncProcessor.class));
+    }
+
+    @Test
+    public void testProcessAsync() throws Exception {
+        final AsyncCallback[] serviceCallback = new AsyncCallback[1];
+        AsyncProcessor service = mock(AsyncProcessor.class);
+        when(service.process(any(Exchange.class), any(AsyncCallback.class))).thenAnswer(new Answer<Boolean>() {
+            @Override
+            public Boolean answer(InvocationOnMock invocation) throws Throwable {
+                serviceCallback[0] = (AsyncCallback) invocation.getArguments()[1];
+                return false;
+            }
+        });
+
+        Bundle bundle = mock(Bundle.class);
+
+        ServiceReference reference = mock(ServiceReference.class);
+        when(reference.getBundle()).thenReturn(bundle);
+        when(reference.getProperty(Constants.OBJECTCLASS))
+            .thenReturn(new String[] {Processor.class.getName(), AsyncProcessor.class.getName()});
+
+        BundleContext bundleContext = mock(BundleContext.class);
+        when(bundleContext.getService(same(reference))).thenReturn(service);
+
+        OsgiProcessorProxyCreator proxyCreator = new OsgiProcessorProxyCreator();
+        AsyncProcessor proxy = proxyCreator.createProxy(bundleContext, reference, getClass().getClassLoader());
+
+        Exchange exchange = mock(Exchange.class);
+        AsyncCallback callback = mock(AsyncCallback.class);
+        assertThat(proxy.process(exchange, callback), equalTo(false));
+
+        // the service must be kept until the asynchronous processing completes
+        verify(bundleContext, never()).ungetService(same(reference));
+
+        serviceCallback[0].done(false);
+        verify(bundleContext).ungetService(same(reference));
+        verify(callback).done(false);
+    }
+
+    @Test
+    public void testProcessLease() throws Exception {
+        Processor service = mock(Processor.class);
+
+        Bundle bundle = mock(Bundle.class);
+
+        ServiceReference reference = mock(ServiceReference.class);
+        when(reference.getBundle()).thenReturn(bundle);
+        when(reference.getProperty(Constants.OBJECTCLASS)).thenReturn(new String[] {Processor.class.getName()});
+
+        BundleContext bundleContext = mock(BundleContext.class);
+        when(bundleContext.getService(same(reference))).thenReturn(service);
+
+        OsgiProcessorProxyCreator proxyCreator = new OsgiProcessorProxyCreator(true);
+        Processor proxy = proxyCreator.createProxy(bundleContext, reference, getClass().getClassLoader());
+
+        Exchange exchange = mock(Exchange.class);
+        proxy.process(exchange);
+        proxy.process(exchange);
+        ((OsgiLeasingProxy) proxy).releaseService();
+
+        verify(service, times(2)).process(same(exchange));
+        verify(bundleContext).getService(same(reference));
+        verify(bundleContext).ungetService(same(reference));
+    }
+
+}
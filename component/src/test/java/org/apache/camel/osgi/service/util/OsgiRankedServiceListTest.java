@@ -0,0 +1,172 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.camel.osgi.service.util;
+
+import de.kalpatec.pojosr.framework.launch.PojoServiceRegistry;
+import de.kalpatec.pojosr.framework.launch.PojoServiceRegistryFactory;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.Constants;
+import org.osgi.framework.ServiceReference;
+import org.osgi.framework.ServiceRegistration;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.ServiceLoader;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+public class OsgiRankedServiceListTest {
+
+    private PojoServiceRegistry registry;
+
+    @Before
+    public void setUp() throws Exception {
+        ServiceLoader<PojoServiceRegistryFactory> loader = ServiceLoader.load(PojoServiceRegistryFactory.class);
+        registry = loader.iterator().next().newPojoServiceRegistry(new HashMap<String, Object>());
+    }
+
+    private OsgiRankedServiceList createList(String filter) throws Exception {
+        OsgiProxyCreator proxyCreator = mock(OsgiProxyCreator.class);
+        when(proxyCreator.createProxy(any(BundleContext.class), any(ServiceReference.class), any(ClassLoader.class)))
+            .thenAnswer(new Answer<Object>() {
+                @Override
+                public Object answer(InvocationOnMock invocation) throws Throwable {
+                    final ServiceReference reference = (ServiceReference) invocation.getArguments()[1];
+                    OsgiProxy osgiProxy = mock(OsgiProxy.class, withSettings().extraInterfaces(ServiceReference.class));
+                    //return original service reference
+                    when(osgiProxy.getReference()).thenReturn(reference);
+                    //compare original service references
+                    when(((ServiceReference) osgiProxy).compareTo(any())).thenAnswer(new Answer<Object>() {
+                        @Override
+                        public Object answer(InvocationOnMock invocation) throws Throwable {
+                            return reference.compareTo(((OsgiProxy) invocation.getArguments()[0]).getReference());
+                        }
+                    });
+                    return osgiProxy;
+                }
+            });
+
+        return new OsgiRankedServiceList(registry.getBundleContext(), filter, getClass().getClassLoader(), proxyCreator);
+    }
+
+    @Test
+    public void testAdd() throws Exception {
+        OsgiRankedServiceList list = createList("(a=b)");
+        list.startTracking();
+
+        long first = getId(register(1));
+        long second = getId(register(3));
+        long third = getId(register(2));
+        long fourth = getId(register(3));
+
+        assertThat(getIds(list), equalTo(ids(second, fourth, third, first)));
+    }
+
+    @Test
+    public void testStartTracking() throws Exception {
+        long first = getId(register(1));
+        long second = getId(register(3));
+        long third = getId(register(2));
+
+        OsgiRankedServiceList list = createList("(a=b)");
+        list.startTracking();
+
+        assertThat(getIds(list), equalTo(ids(second, third, first)));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testModify() throws Exception {
+        OsgiRankedServiceList list = createList("(a=b)");
+        list.startTracking();
+
+        ServiceRegistration first = register(1);
+        ServiceRegistration second = register(2);
+        ServiceRegistration third = register(3);
+
+        first.setProperties(new Hashtable(props(4)));
+        assertThat(getIds(list), equalTo(ids(getId(first), getId(third), getId(second))));
+
+        third.setProperties(new Hashtable(props(0)));
+        assertThat(getIds(list), equalTo(ids(getId(first), getId(second), getId(third))));
+    }
+
+    @Test
+    public void testRemove() throws Exception {
+        OsgiRankedServiceList list = createList("(a=b)");
+        list.startTracking();
+
+        ServiceRegistration first = register(1);
+        ServiceRegistration second = register(2);
+        ServiceRegistration third = register(3);
+
+        long secondId = getId(second);
+        second.unregister();
+        assertThat(getIds(list), equalTo(ids(getId(third), getId(first))));
+
+        long thirdId = getId(third);
+        third.unregister();
+        assertThat(getIds(list), equalTo(ids(getId(first))));
+
+        ServiceRegistration fourth = register(2);
+        assertThat(getIds(list), equalTo(ids(getId(fourth), getId(first))));
+        assertThat(getIds(list).contains(secondId) || getIds(list).contains(thirdId), equalTo(false));
+    }
+
+    @SuppressWarnings("unchecked")
+    private ServiceRegistration register(int ranking) {
+        return registry.registerService(Collection.class.getName(), new ArrayList<Object>(), new Hashtable(props(ranking)));
+    }
+
+    private static HashMap<String, Object> props(int ranking) {
+        HashMap<String, Object> props = new HashMap<String, Object>();
+        props.put("a", "b");
+        props.put(Constants.SERVICE_RANKING, ranking);
+        return props;
+    }
+
+    private static long getId(ServiceRegistration registration) {
+        return (Long) registration.getReference().getProperty(Constants.SERVICE_ID);
+    }
+
+    private static List<Long> getIds(OsgiRankedServiceList list) {
+        List<Long> ids = new ArrayList<Long>();
+        for (Object service : list) {
+            ids.add((Long) ((OsgiProxy) service).getReference().getProperty(Constants.SERVICE_ID));
+        }
+        return ids;
+    }
+
+    private static List<Long> ids(long... ids) {
+        List<Long> answer = new ArrayList<Long>();
+        for (long id : ids) {
+            answer.add(id);
+        }
+        return answer;
+    }
+
+}
@@ -36,7 +36,12 @@ import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.same;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.withSettings;
 
@@ -219,4 +224,101 @@ public class OsgiServiceCollectionTest {
         assertThat(collection.size(), equalTo(0));
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testListener() throws Exception {
+        OsgiServiceCollection collection = createCollection("(a=b)");
+        collection.startTracking();
+
+        ServiceRegistration registration = registry.registerService(
+            Collection.class.getName(), new ArrayList<Object>(), new Hashtable(Collections.singletonMap("a", "b")));
+
+        OsgiServiceCollectionListener listener = mock(OsgiServiceCollectionListener.class);
+        collection.addListener(listener);
+
+        Object service = collection.iterator().next();
+        verify(listener).serviceAdded(same(service));
+
+        Hashtable props = new Hashtable();
+        props.put("a", "b");
+        props.put("c", "d");
+        registration.setProperties(props);
+        verify(listener).serviceModified(same(service));
+
+        registration.unregister();
+        verify(listener).serviceRemoved(same(service));
+
+        collection.removeListener(listener);
+        registry.registerService(
+            Collection.class.getName(), new ArrayList<Object>(), new Hashtable(Collections.singletonMap("a", "b")));
+        verifyNoMoreInteractions(listener);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testSuspendResume() throws Exception {
+        OsgiServiceCollection collection = createCollection("(a=b)");
+        collection.startTracking();
+
+        ServiceRegistration registration = registry.registerService(
+            Collection.class.getName(), new ArrayList<Object>(), new Hashtable(Collections.singletonMap("a", "b")));
+
+        OsgiServiceCollectionListener listener = mock(OsgiServiceCollectionListener.class);
+        collection.addListener(listener);
+
+        Object service = collection.iterator().next();
+        verify(listener).serviceAdded(same(service));
+
+        assertThat(collection.suspend(service), equalTo(true));
+        assertThat(collection.suspend(service), equalTo(false));
+        assertThat(collection.isEmpty(), equalTo(true));
+        verify(listener).serviceRemoved(same(service));
+
+        // suspended services are not reported as modified
+        Hashtable props = new Hashtable();
+        props.put("a", "b");
+        props.put("c", "d");
+        registration.setProperties(props);
+
+        assertThat(collection.resume(service), equalTo(true));
+        assertThat(collection.resume(service), equalTo(false));
+        assertThat(collection.size(), equalTo(1));
+        verify(listener, times(2)).serviceAdded(same(service));
+
+        collection.suspend(service);
+        registration.unregister();
+        verify(listener, times(2)).serviceRemoved(same(service));
+        verify(listener, never()).serviceModified(any());
+
+        // unregistered services cannot be resumed
+        assertThat(collection.resume(service), equalTo(false));
+        assertThat(collection.isEmpty(), equalTo(true));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testRegistrationTime() throws Exception {
+        OsgiServiceCollection collection = createCollection("(a=b)");
+
+        registry.registerService(
+            Collection.class.getName(), new ArrayList<Object>(), new Hashtable(Collections.singletonMap("a", "b")));
+        collection.startTracking();
+
+        // the service registered before tracking started is not considered as a newly registered one
+        Object service = collection.iterator().next();
+        assertThat(collection.getRegistrationTime(service), equalTo(0L));
+
+        long start = System.currentTimeMillis();
+        ServiceRegistration registration = registry.registerService(
+            Collection.class.getName(), new ArrayList<Object>(), new Hashtable(Collections.singletonMap("a", "b")));
+
+        Iterator iterator = collection.iterator();
+        iterator.next();
+        service = iterator.next();
+        assertThat(collection.getRegistrationTime(service) >= start, equalTo(true));
+
+        registration.unregister();
+        assertThat(collection.getRegistrationTime(service), equalTo(0L));
+    }
+
 }
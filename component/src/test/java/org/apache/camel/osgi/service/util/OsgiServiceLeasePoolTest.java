@@ -0,0 +1,139 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.camel.osgi.service.util;
+
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceReference;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.same;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class OsgiServiceLeasePoolTest {
+
+    @Test
+    public void testLease() throws Exception {
+        List<?> service = new ArrayList<Object>();
+        ServiceReference reference = mock(ServiceReference.class);
+
+        BundleContext bundleContext = mock(BundleContext.class);
+        when(bundleContext.getService(same(reference))).thenReturn(service);
+
+        assertThat(OsgiServiceLeasePool.lease(bundleContext, reference), sameInstance((Object) service));
+        assertThat(OsgiServiceLeasePool.lease(bundleContext, reference), sameInstance((Object) service));
+        assertThat(OsgiServiceLeasePool.getLeaseCount(bundleContext, reference), equalTo(2));
+
+        verify(bundleContext, times(1)).getService(same(reference));
+
+        OsgiServiceLeasePool.release(bundleContext, reference);
+        verify(bundleContext, never()).ungetService(same(reference));
+
+        OsgiServiceLeasePool.release(bundleContext, reference);
+        verify(bundleContext).ungetService(same(reference));
+        assertThat(OsgiServiceLeasePool.getLeaseCount(bundleContext, reference), equalTo(0));
+
+        // the pool must get the service again after it has been released by all the users
+        OsgiServiceLeasePool.lease(bundleContext, reference);
+        verify(bundleContext, times(2)).getService(same(reference));
+        OsgiServiceLeasePool.release(bundleContext, reference);
+    }
+
+    @Test
+    public void testLeaseNoService() throws Exception {
+        ServiceReference reference = mock(ServiceReference.class);
+        BundleContext bundleContext = mock(BundleContext.class);
+
+        assertThat(OsgiServiceLeasePool.lease(bundleContext, reference), nullValue());
+        assertThat(OsgiServiceLeasePool.getLeaseCount(bundleContext, reference), equalTo(0));
+        assertThat(OsgiServiceLeasePool.isPooled(bundleContext), equalTo(false));
+
+        OsgiServiceLeasePool.release(bundleContext, reference);
+        verify(bundleContext, never()).ungetService(same(reference));
+    }
+
+    @Test
+    public void testLeaseConcurrent() throws Exception {
+        final List<?> service = new ArrayList<Object>();
+        final ServiceReference reference = mock(ServiceReference.class);
+        final BundleContext bundleContext = mock(BundleContext.class);
+        final Object[] leased = new Object[1];
+
+        // the service is leased by another thread while it's being got by the first one
+        when(bundleContext.getService(same(reference))).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                Thread thread = new Thread() {
+                    @Override
+                    public void run() {
+                        leased[0] = OsgiServiceLeasePool.lease(bundleContext, reference);
+                    }
+                };
+                thread.start();
+                thread.join(5000);
+                assertThat("the pool is locked while getting the service", thread.isAlive(), equalTo(false));
+                return service;
+            }
+        }).thenReturn(service);
+
+        assertThat(OsgiServiceLeasePool.lease(bundleContext, reference), sameInstance((Object) service));
+        assertThat(leased[0], sameInstance((Object) service));
+        assertThat(OsgiServiceLeasePool.getLeaseCount(bundleContext, reference), equalTo(2));
+
+        // the service got by the first thread is superfluous
+        verify(bundleContext, times(2)).getService(same(reference));
+        verify(bundleContext, times(1)).ungetService(same(reference));
+
+        OsgiServiceLeasePool.release(bundleContext, reference);
+        OsgiServiceLeasePool.release(bundleContext, reference);
+        verify(bundleContext, times(2)).ungetService(same(reference));
+        assertThat(OsgiServiceLeasePool.isPooled(bundleContext), equalTo(false));
+    }
+
+    @Test
+    public void testLeaseShared() throws Throwable {
+        List<?> service = new ArrayList<Object>();
+        ServiceReference reference = mock(ServiceReference.class);
+
+        BundleContext bundleContext = mock(BundleContext.class);
+        when(bundleContext.getService(same(reference))).thenReturn(service);
+
+        OsgiInvocationHandler handler1 = new OsgiInvocationHandler(bundleContext, reference, true);
+        OsgiInvocationHandler handler2 = new OsgiInvocationHandler(bundleContext, reference, true);
+        handler1.invoke(reference, List.class.getMethod("add", Object.class), new Object[] {"test1"});
+        handler2.invoke(reference, List.class.getMethod("add", Object.class), new Object[] {"test2"});
+
+        verify(bundleContext, times(1)).getService(same(reference));
+        assertThat(service.size(), equalTo(2));
+
+        handler1.releaseService();
+        verify(bundleContext, never()).ungetService(same(reference));
+
+        handler2.releaseService();
+        verify(bundleContext).ungetService(same(reference));
+    }
+}